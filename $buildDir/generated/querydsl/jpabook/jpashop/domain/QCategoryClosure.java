@@ -0,0 +1,41 @@
+package jpabook.jpashop.domain;
+
+import static com.querydsl.core.types.PathMetadataFactory.*;
+
+import com.querydsl.core.types.dsl.*;
+
+import com.querydsl.core.types.PathMetadata;
+import javax.annotation.processing.Generated;
+import com.querydsl.core.types.Path;
+
+
+/**
+ * QCategoryClosure is a Querydsl query type for CategoryClosure
+ */
+@Generated("com.querydsl.codegen.DefaultEntitySerializer")
+public class QCategoryClosure extends EntityPathBase<CategoryClosure> {
+
+    private static final long serialVersionUID = 828423482L;
+
+    public static final QCategoryClosure categoryClosure = new QCategoryClosure("categoryClosure");
+
+    public final NumberPath<Long> ancestorId = createNumber("ancestorId", Long.class);
+
+    public final NumberPath<Integer> depth = createNumber("depth", Integer.class);
+
+    public final NumberPath<Long> descendantId = createNumber("descendantId", Long.class);
+
+    public QCategoryClosure(String variable) {
+        super(CategoryClosure.class, forVariable(variable));
+    }
+
+    public QCategoryClosure(Path<? extends CategoryClosure> path) {
+        super(path.getType(), path.getMetadata());
+    }
+
+    public QCategoryClosure(PathMetadata metadata) {
+        super(CategoryClosure.class, metadata);
+    }
+
+}
+
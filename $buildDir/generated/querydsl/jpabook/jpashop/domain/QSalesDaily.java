@@ -0,0 +1,43 @@
+package jpabook.jpashop.domain;
+
+import static com.querydsl.core.types.PathMetadataFactory.*;
+
+import com.querydsl.core.types.dsl.*;
+
+import com.querydsl.core.types.PathMetadata;
+import javax.annotation.processing.Generated;
+import com.querydsl.core.types.Path;
+
+
+/**
+ * QSalesDaily is a Querydsl query type for SalesDaily
+ */
+@Generated("com.querydsl.codegen.DefaultEntitySerializer")
+public class QSalesDaily extends EntityPathBase<SalesDaily> {
+
+    private static final long serialVersionUID = -981097360L;
+
+    public static final QSalesDaily salesDaily = new QSalesDaily("salesDaily");
+
+    public final NumberPath<Long> itemId = createNumber("itemId", Long.class);
+
+    public final NumberPath<Long> qty = createNumber("qty", Long.class);
+
+    public final NumberPath<Long> revenue = createNumber("revenue", Long.class);
+
+    public final DatePath<java.time.LocalDate> salesDay = createDate("salesDay", java.time.LocalDate.class);
+
+    public QSalesDaily(String variable) {
+        super(SalesDaily.class, forVariable(variable));
+    }
+
+    public QSalesDaily(Path<? extends SalesDaily> path) {
+        super(path.getType(), path.getMetadata());
+    }
+
+    public QSalesDaily(PathMetadata metadata) {
+        super(SalesDaily.class, metadata);
+    }
+
+}
+
@@ -0,0 +1,47 @@
+package jpabook.jpashop.domain;
+
+import static com.querydsl.core.types.PathMetadataFactory.*;
+
+import com.querydsl.core.types.dsl.*;
+
+import com.querydsl.core.types.PathMetadata;
+import javax.annotation.processing.Generated;
+import com.querydsl.core.types.Path;
+
+
+/**
+ * QSalesOutbox is a Querydsl query type for SalesOutbox
+ */
+@Generated("com.querydsl.codegen.DefaultEntitySerializer")
+public class QSalesOutbox extends EntityPathBase<SalesOutbox> {
+
+    private static final long serialVersionUID = -15538106L;
+
+    public static final QSalesOutbox salesOutbox = new QSalesOutbox("salesOutbox");
+
+    public final DateTimePath<java.time.LocalDateTime> createdAt = createDateTime("createdAt", java.time.LocalDateTime.class);
+
+    public final NumberPath<Long> id = createNumber("id", Long.class);
+
+    public final NumberPath<Long> itemId = createNumber("itemId", Long.class);
+
+    public final NumberPath<Integer> qty = createNumber("qty", Integer.class);
+
+    public final NumberPath<Long> revenue = createNumber("revenue", Long.class);
+
+    public final DatePath<java.time.LocalDate> salesDay = createDate("salesDay", java.time.LocalDate.class);
+
+    public QSalesOutbox(String variable) {
+        super(SalesOutbox.class, forVariable(variable));
+    }
+
+    public QSalesOutbox(Path<? extends SalesOutbox> path) {
+        super(path.getType(), path.getMetadata());
+    }
+
+    public QSalesOutbox(PathMetadata metadata) {
+        super(SalesOutbox.class, metadata);
+    }
+
+}
+
@@ -40,6 +40,9 @@ public class QAlbum extends EntityPathBase<Album> {
     //inherited
     public final NumberPath<Integer> stockQuantity = _super.stockQuantity;
 
+    //inherited
+    public final NumberPath<Long> version = _super.version;
+
     public QAlbum(String variable) {
         super(Album.class, forVariable(variable));
     }
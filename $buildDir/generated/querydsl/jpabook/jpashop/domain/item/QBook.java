@@ -40,6 +40,9 @@ public class QBook extends EntityPathBase<Book> {
     //inherited
     public final NumberPath<Integer> stockQuantity = _super.stockQuantity;
 
+    //inherited
+    public final NumberPath<Long> version = _super.version;
+
     public QBook(String variable) {
         super(Book.class, forVariable(variable));
     }
@@ -0,0 +1,110 @@
+package jpabook.jpashop.benchmark;
+
+import jpabook.jpashop.JpashopApplication;
+import jpabook.jpashop.domain.*;
+import jpabook.jpashop.domain.item.Book;
+import org.openjdk.jmh.annotations.*;
+import org.springframework.boot.WebApplicationType;
+import org.springframework.boot.builder.SpringApplicationBuilder;
+import org.springframework.context.ConfigurableApplicationContext;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import javax.persistence.EntityManager;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+//id 생성 방식별 insert 처리량 비교 (초당 저장한 주문 수)
+// - 한번 호출에 주문(Order + OrderItem + Delivery) FLUSH_SIZE 건을 한 트랜젝션으로 저장
+// - incrementSize 1 : insert 마다 시퀀스 조회 (기존 @GeneratedValue 와 같은 동작)
+// - incrementSize 100 : pooled-lo 로 100 개씩 id 블록 할당 (insert 가 JDBC batch 로 묶임)
+// - 기본은 H2 메모리 DB : JDBC batch 를 multi-row insert 로 바꾸는 효과(MySQL rewriteBatchedStatements) 는 측정되지 않음
+//   MySQL 에서 측정하려면 jdbcUrl 에 빈 스키마를 지정 (Flyway 로 스키마 생성, 계정은 application.yml)
+//   ./gradlew jmh -Pjmh.includes=IdGenerationBenchmark
+//   ./gradlew jmh -Pjmh.includes=IdGenerationBenchmark -Pjmh.jdbcUrl='jdbc:mysql://localhost:3306/jpashop_bench?rewriteBatchedStatements=true'
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+public class IdGenerationBenchmark {
+
+    private static final int FLUSH_SIZE = 500;
+
+    @Param({"1", "100"})
+    int incrementSize;
+
+    @Param({""})
+    String jdbcUrl; //비어있으면 H2
+
+    private ConfigurableApplicationContext context;
+    private TransactionTemplate tx;
+    private EntityManager em;
+
+    private Long memberId;
+    private Long bookId;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        //application.yml 보다 우선하도록 커맨드라인 인자로 전달
+        List<String> args = new ArrayList<>(List.of(
+                "--spring.jpa.properties.jpashop.id.increment_size=" + incrementSize,
+                "--spring.jpa.properties.hibernate.jdbc.batch_size=100",
+                "--spring.jpa.properties.hibernate.order_inserts=true",
+                "--spring.jpa.properties.hibernate.show_sql=false",
+                "--decorator.datasource.p6spy.enable-logging=false",
+                "--logging.level.root=warn",
+                "--logging.level.org.hibernate=warn"));
+        if (jdbcUrl.isEmpty()) {
+            args.addAll(List.of(
+                    "--spring.datasource.url=jdbc:h2:mem:jmh-id;MODE=MySQL;DB_CLOSE_DELAY=-1",
+                    "--spring.datasource.driver-class-name=org.h2.Driver",
+                    "--spring.datasource.username=sa",
+                    "--spring.datasource.password=",
+                    "--spring.jpa.hibernate.ddl-auto=create",
+                    "--spring.flyway.enabled=false"));
+        } else {
+            args.add("--spring.datasource.url=" + jdbcUrl);
+        }
+        context = new SpringApplicationBuilder(JpashopApplication.class)
+                .web(WebApplicationType.NONE)
+                .run(args.toArray(new String[0]));
+
+        tx = new TransactionTemplate(context.getBean(PlatformTransactionManager.class));
+        em = context.getBean(EntityManager.class);
+
+        memberId = tx.execute(status -> {
+            Member member = new Member();
+            member.setName("benchmark-" + System.nanoTime()); //MySQL 스키마를 다시 사용해도 uk_member_name 에 걸리지 않도록
+            member.setAddress(new Address("서울", "강가", "123-123"));
+            em.persist(member);
+            return member.getId();
+        });
+        bookId = tx.execute(status -> {
+            Book book = new Book();
+            book.setName("benchmark");
+            book.setPrice(10000);
+            book.setStockQuantity(Integer.MAX_VALUE);
+            em.persist(book);
+            return book.getId();
+        });
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() {
+        context.close();
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(FLUSH_SIZE)
+    public void saveOrders() {
+        tx.executeWithoutResult(status -> {
+            Member member = em.find(Member.class, memberId);
+            Book book = em.find(Book.class, bookId);
+            for (int i = 0; i < FLUSH_SIZE; i++) {
+                Delivery delivery = new Delivery();
+                delivery.setAddress(member.getAddress());
+                em.persist(Order.createOrder(member, delivery, OrderItem.createOrderItem(book, book.getPrice(), 1)));
+            }
+        });
+    }
+}
@@ -0,0 +1,109 @@
+package jpabook.jpashop.benchmark;
+
+import jpabook.jpashop.JpashopApplication;
+import jpabook.jpashop.domain.Address;
+import jpabook.jpashop.domain.Member;
+import jpabook.jpashop.repository.MemberNameIndex;
+import jpabook.jpashop.repository.MemberRepository;
+import jpabook.jpashop.service.MemberService;
+import org.openjdk.jmh.annotations.*;
+import org.springframework.boot.WebApplicationType;
+import org.springframework.boot.builder.SpringApplicationBuilder;
+import org.springframework.context.ConfigurableApplicationContext;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import javax.sql.DataSource;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+//동시 회원 가입 처리량 비교 (16 스레드, 매번 새 이름)
+// - joinWithNameQuery : 기존 방식 (findByName 으로 List<Member> 조회 후 save, 커밋 시 insert)
+// - join : MemberService.join (메모리 이름 인덱스로 중복 확인, uk_member_name 으로 insert 시 검증)
+// - 기존 회원 members 명을 JDBC 로 넣어두고 측정
+//   ./gradlew jmh -Pjmh.includes=MemberJoinBenchmark
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Threads(16)
+public class MemberJoinBenchmark {
+
+    private static final long SEED_ID_OFFSET = 1_000_000_000L; //PooledIdGenerator 가 발급하는 id 와 겹치지 않도록
+    private static final int SEED_BATCH = 10_000;
+
+    @Param({"100000"})
+    int members;
+
+    private final AtomicLong sequence = new AtomicLong();
+
+    private ConfigurableApplicationContext context;
+    private TransactionTemplate tx;
+
+    private MemberService memberService;
+    private MemberRepository memberRepository;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        //application.yml 보다 우선하도록 커맨드라인 인자로 전달
+        context = new SpringApplicationBuilder(JpashopApplication.class)
+                .web(WebApplicationType.NONE)
+                .run(
+                        "--spring.datasource.url=jdbc:h2:mem:jmh-join;MODE=MySQL;DB_CLOSE_DELAY=-1",
+                        "--spring.datasource.driver-class-name=org.h2.Driver",
+                        "--spring.datasource.username=sa",
+                        "--spring.datasource.password=",
+                        "--spring.jpa.hibernate.ddl-auto=create",
+                        "--spring.flyway.enabled=false",
+                        "--spring.jpa.properties.hibernate.show_sql=false",
+                        "--decorator.datasource.p6spy.enable-logging=false",
+                        "--logging.level.root=warn",
+                        "--logging.level.org.hibernate=warn");
+
+        tx = new TransactionTemplate(context.getBean(PlatformTransactionManager.class));
+        memberService = context.getBean(MemberService.class);
+        memberRepository = context.getBean(MemberRepository.class);
+
+        JdbcTemplate jdbc = new JdbcTemplate(context.getBean(DataSource.class));
+        List<Object[]> batch = new ArrayList<>(SEED_BATCH);
+        for (long i = 1; i <= members; i++) {
+            batch.add(new Object[]{SEED_ID_OFFSET + i, "member" + i, "서울", "강가", String.valueOf(i)});
+            if (batch.size() == SEED_BATCH || i == members) {
+                jdbc.batchUpdate("insert into member (member_id, name, city, street, zipcode) values (?, ?, ?, ?, ?)", batch);
+                batch.clear();
+            }
+        }
+        context.getBean(MemberNameIndex.class).rebuild();
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() {
+        context.close();
+    }
+
+    @Benchmark
+    public Long joinWithNameQuery() {
+        Member member = newMember();
+        return tx.execute(status -> {
+            if (!memberRepository.findByName(member.getName()).isEmpty()) {
+                throw new IllegalStateException("이미 존재하는 회원입니다.");
+            }
+            memberRepository.save(member);
+            return member.getId();
+        });
+    }
+
+    @Benchmark
+    public Long join() {
+        return memberService.join(newMember());
+    }
+
+    private Member newMember() {
+        Member member = new Member();
+        member.setName("join" + sequence.incrementAndGet());
+        member.setAddress(new Address("서울", "강가", "123-123"));
+        return member;
+    }
+}
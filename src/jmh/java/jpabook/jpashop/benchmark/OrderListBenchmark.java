@@ -0,0 +1,179 @@
+package jpabook.jpashop.benchmark;
+
+import jpabook.jpashop.JpashopApplication;
+import jpabook.jpashop.domain.Order;
+import jpabook.jpashop.domain.OrderStatus;
+import jpabook.jpashop.repository.OrderRepository;
+import jpabook.jpashop.repository.OrderSearch;
+import jpabook.jpashop.service.OrderService;
+import org.openjdk.jmh.annotations.*;
+import org.openjdk.jmh.infra.Blackhole;
+import org.springframework.boot.WebApplicationType;
+import org.springframework.boot.builder.SpringApplicationBuilder;
+import org.springframework.context.ConfigurableApplicationContext;
+import org.springframework.core.io.ClassPathResource;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.datasource.init.ResourceDatabasePopulator;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import javax.sql.DataSource;
+import java.sql.Timestamp;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+//주문 목록 화면 (GET /orders) 조회 방식 비교
+// - findAll : Order 엔티티 조회 후 화면에서 member / orderItems / item 지연로딩
+// - findOrderListDtos : 화면 컬럼만 DTO 로 조회 (V2__order_list_indexes 의 인덱스 사용)
+// - 기본은 내장 H2 (rows=100000), 천만건은 MySQL 에서 측정
+//   ./gradlew jmh -Pjmh.includes=OrderListBenchmark -Pjmh.rows=10000000 -Djmh.datasource.url=jdbc:mysql://localhost:3306/jpashop_bench?rewriteBatchedStatements=true
+//   (빈 DB 로 시작하면 Flyway 로 스키마를 만들고 한번만 데이터를 넣음, 이후 실행은 기존 데이터 사용)
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+public class OrderListBenchmark {
+
+    private static final int MEMBERS = 100_000;
+    private static final int ITEMS = 1_000;
+    private static final int ITEMS_PER_ORDER = 2;
+    private static final int SEED_BATCH = 10_000;
+
+    @Param({"100000"})
+    int rows;
+
+    @Param({"ORDER"})
+    OrderStatus status;
+
+    private ConfigurableApplicationContext context;
+    private TransactionTemplate readOnlyTx;
+
+    private OrderRepository orderRepository;
+    private OrderService orderService;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        String url = System.getProperty("jmh.datasource.url");
+        boolean embedded = url == null;
+
+        //application.yml 보다 우선하도록 커맨드라인 인자로 전달
+        List<String> args = new ArrayList<>();
+        if (embedded) {
+            args.add("--spring.datasource.url=jdbc:h2:mem:jmh;MODE=MySQL;DB_CLOSE_DELAY=-1");
+            args.add("--spring.datasource.driver-class-name=org.h2.Driver");
+            args.add("--spring.datasource.username=sa");
+            args.add("--spring.datasource.password=");
+            args.add("--spring.jpa.hibernate.ddl-auto=create");
+            args.add("--spring.flyway.enabled=false");
+        } else {
+            args.add("--spring.datasource.url=" + url);
+            args.add("--spring.datasource.username=" + System.getProperty("jmh.datasource.username", "root"));
+            args.add("--spring.datasource.password=" + System.getProperty("jmh.datasource.password", ""));
+        }
+        args.add("--spring.jpa.properties.hibernate.show_sql=false");
+        args.add("--decorator.datasource.p6spy.enable-logging=false");
+        args.add("--logging.level.root=warn");
+        args.add("--logging.level.org.hibernate=warn");
+
+        context = new SpringApplicationBuilder(JpashopApplication.class)
+                .web(WebApplicationType.NONE)
+                .run(args.toArray(new String[0]));
+
+        readOnlyTx = new TransactionTemplate(context.getBean(PlatformTransactionManager.class));
+        readOnlyTx.setReadOnly(true);
+        orderRepository = context.getBean(OrderRepository.class);
+        orderService = context.getBean(OrderService.class);
+
+        DataSource dataSource = context.getBean(DataSource.class);
+        if (embedded) {
+            //ddl-auto 로 만든 스키마에 운영과 같은 인덱스를 추가
+            new ResourceDatabasePopulator(new ClassPathResource("db/migration/V2__order_list_indexes.sql")).execute(dataSource);
+        }
+        seed(new JdbcTemplate(dataSource));
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() {
+        context.close();
+    }
+
+    //JDBC batch insert 로 직접 넣음 (엔티티로 넣으면 천만건은 너무 오래 걸림)
+    // - 회원 10만, 상품 1000, 주문 rows, 주문상품 rows x 2
+    // - 주문상태는 10% 만 ORDER (나머지 CANCEL)
+    private void seed(JdbcTemplate jdbc) {
+        Long count = jdbc.queryForObject("select count(*) from orders", Long.class);
+        if (count != null && count > 0) {
+            if (count < rows) {
+                throw new IllegalStateException("orders 에 " + count + " 건이 있습니다. 빈 DB 또는 " + rows + " 건 이상인 DB 를 사용하세요.");
+            }
+            return;
+        }
+
+        List<Object[]> batch = new ArrayList<>();
+        for (long i = 1; i <= MEMBERS; i++) {
+            batch.add(new Object[]{i, "member" + i, "서울", "강가", String.valueOf(i)});
+            batch = flushIfFull(jdbc, "insert into member (member_id, name, city, street, zipcode) values (?, ?, ?, ?, ?)", batch, false);
+        }
+        flushIfFull(jdbc, "insert into member (member_id, name, city, street, zipcode) values (?, ?, ?, ?, ?)", batch, true);
+
+        batch = new ArrayList<>();
+        for (long i = 1; i <= ITEMS; i++) {
+            batch.add(new Object[]{"B", i, "book" + i, 10000, 100, 0L});
+        }
+        flushIfFull(jdbc, "insert into item (dtype, item_id, name, price, stock_quantity, version) values (?, ?, ?, ?, ?, ?)", batch, true);
+
+        LocalDateTime start = LocalDateTime.now().minusDays(365);
+        List<Object[]> deliveries = new ArrayList<>();
+        List<Object[]> orders = new ArrayList<>();
+        List<Object[]> orderItems = new ArrayList<>();
+        for (long i = 1; i <= rows; i++) {
+            String orderStatus = i % 10 == 0 ? "ORDER" : "CANCEL";
+            deliveries.add(new Object[]{i, "서울", "강가", String.valueOf(i), "READY"});
+            orders.add(new Object[]{i, Timestamp.valueOf(start.plusSeconds(i * 3)), orderStatus, i, (i % MEMBERS) + 1});
+            for (int j = 0; j < ITEMS_PER_ORDER; j++) {
+                orderItems.add(new Object[]{(i - 1) * ITEMS_PER_ORDER + j + 1, 1, 10000, ((i + j) % ITEMS) + 1, i});
+            }
+
+            //FK 순서대로 (delivery -> orders -> order_item) 같은 주문 범위를 함께 넣음
+            if (orders.size() == SEED_BATCH || i == rows) {
+                deliveries = flushIfFull(jdbc, "insert into delivery (delivery_id, city, street, zipcode, status) values (?, ?, ?, ?, ?)", deliveries, true);
+                orders = flushIfFull(jdbc, "insert into orders (order_id, order_date, status, delivery_id, member_id) values (?, ?, ?, ?, ?)", orders, true);
+                orderItems = flushIfFull(jdbc, "insert into order_item (order_item_id, count, order_price, item_id, order_id) values (?, ?, ?, ?, ?)", orderItems, true);
+            }
+        }
+    }
+
+    private static List<Object[]> flushIfFull(JdbcTemplate jdbc, String sql, List<Object[]> batch, boolean force) {
+        if (batch.isEmpty() || (!force && batch.size() < SEED_BATCH)) {
+            return batch;
+        }
+        jdbc.batchUpdate(sql, batch);
+        return new ArrayList<>();
+    }
+
+    //기존 화면 방식 (엔티티 + 지연로딩, default_batch_fetch_size 로 in 조회)
+    @Benchmark
+    public void findAll(Blackhole bh) {
+        bh.consume(readOnlyTx.execute(s -> {
+            List<Order> orders = orderRepository.findAll(search());
+            orders.forEach(o -> {
+                bh.consume(o.getMember().getName());
+                bh.consume(o.getOrderItems().get(0).getItem().getName());
+            });
+            return orders;
+        }));
+    }
+
+    //커버링 인덱스 + DTO 조회
+    @Benchmark
+    public void findOrderListDtos(Blackhole bh) {
+        bh.consume(orderService.findOrderList(search()));
+    }
+
+    private OrderSearch search() {
+        OrderSearch orderSearch = new OrderSearch();
+        orderSearch.setOrderStatus(status);
+        return orderSearch;
+    }
+}
@@ -0,0 +1,189 @@
+package jpabook.jpashop.benchmark;
+
+import jpabook.jpashop.JpashopApplication;
+import jpabook.jpashop.domain.*;
+import jpabook.jpashop.domain.item.Book;
+import jpabook.jpashop.repository.OrderRepository;
+import jpabook.jpashop.repository.OrderSearch;
+import jpabook.jpashop.repository.query.OrderQueryRepository;
+import jpabook.jpashop.repository.simplequery.OrderSimpleQueryRepository;
+import org.hibernate.SessionFactory;
+import org.hibernate.stat.Statistics;
+import org.openjdk.jmh.annotations.*;
+import org.openjdk.jmh.infra.BenchmarkParams;
+import org.openjdk.jmh.infra.Blackhole;
+import org.springframework.boot.WebApplicationType;
+import org.springframework.boot.builder.SpringApplicationBuilder;
+import org.springframework.context.ConfigurableApplicationContext;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import javax.persistence.EntityManager;
+import javax.persistence.EntityManagerFactory;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Supplier;
+
+//주문 조회 방식별 (API v1~v6, simple v1~v4 에서 사용하는 repository 메소드) 성능 측정
+// - 내장 H2 에 orders x itemsPerOrder 건을 넣고 각 조회 메소드를 실행
+// - 지연로딩 대상도 API 에서 사용하는 만큼 접근해서 실제 SQL 수를 맞춤
+// - statements/op : 한번 조회할 때 실행된 SQL 수 (Hibernate 통계, trial 종료시 출력)
+// - 메모리 할당량은 gc 프로파일러로 측정 (build.gradle 의 jmh 설정)
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+public class OrderReadBenchmark {
+
+    @Param({"100", "1000"})
+    int orders;
+
+    @Param({"2"})
+    int itemsPerOrder;
+
+    private ConfigurableApplicationContext context;
+    private TransactionTemplate readOnlyTx;
+    private Statistics statistics;
+
+    private OrderRepository orderRepository;
+    private OrderQueryRepository orderQueryRepository;
+    private OrderSimpleQueryRepository orderSimpleQueryRepository;
+
+    private long statements;
+    private long invocations;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        //application.yml 보다 우선하도록 커맨드라인 인자로 전달
+        context = new SpringApplicationBuilder(JpashopApplication.class)
+                .web(WebApplicationType.NONE)
+                .run(
+                        "--spring.datasource.url=jdbc:h2:mem:jmh;MODE=MySQL;DB_CLOSE_DELAY=-1",
+                        "--spring.datasource.driver-class-name=org.h2.Driver",
+                        "--spring.datasource.username=sa",
+                        "--spring.datasource.password=",
+                        "--spring.jpa.hibernate.ddl-auto=create",
+                        "--spring.flyway.enabled=false",
+                        "--spring.jpa.properties.hibernate.show_sql=false",
+                        "--spring.jpa.properties.hibernate.generate_statistics=true",
+                        "--logging.level.root=warn",
+                        "--logging.level.org.hibernate=warn");
+
+        PlatformTransactionManager transactionManager = context.getBean(PlatformTransactionManager.class);
+        readOnlyTx = new TransactionTemplate(transactionManager);
+        readOnlyTx.setReadOnly(true);
+        statistics = context.getBean(EntityManagerFactory.class).unwrap(SessionFactory.class).getStatistics();
+
+        orderRepository = context.getBean(OrderRepository.class);
+        orderQueryRepository = context.getBean(OrderQueryRepository.class);
+        orderSimpleQueryRepository = context.getBean(OrderSimpleQueryRepository.class);
+
+        seed(new TransactionTemplate(transactionManager), context.getBean(EntityManager.class));
+    }
+
+    //SQL 수는 조회 방식마다 고정값이므로 trial 이 끝날 때 한번 출력
+    @TearDown(Level.Trial)
+    public void tearDown(BenchmarkParams params) {
+        System.out.printf("%n[%s orders=%d] statements/op = %.1f%n",
+                params.getBenchmark(), orders, (double) statements / invocations);
+        context.close();
+    }
+
+    private void seed(TransactionTemplate tx, EntityManager em) {
+        tx.executeWithoutResult(status -> {
+            for (int i = 0; i < orders; i++) {
+                Member member = new Member();
+                member.setName("member" + i);
+                member.setAddress(new Address("서울", "강가", String.valueOf(i)));
+                em.persist(member);
+
+                OrderItem[] orderItems = new OrderItem[itemsPerOrder];
+                for (int j = 0; j < itemsPerOrder; j++) {
+                    Book book = new Book();
+                    book.setName("book" + i + "-" + j);
+                    book.setPrice(10000);
+                    book.setStockQuantity(100);
+                    em.persist(book);
+                    orderItems[j] = OrderItem.createOrderItem(book, book.getPrice(), 1);
+                }
+
+                Delivery delivery = new Delivery();
+                delivery.setAddress(member.getAddress());
+                em.persist(Order.createOrder(member, delivery, orderItems));
+
+                if (i % 500 == 0) {
+                    em.flush();
+                    em.clear();
+                }
+            }
+        });
+    }
+
+    //v1, v2 (엔티티 조회 후 지연로딩)
+    @Benchmark
+    public void findAllByString(Blackhole bh) {
+        run(bh, () -> {
+            List<Order> result = orderRepository.findAllByString(new OrderSearch());
+            result.forEach(o -> touch(o, bh));
+            return result;
+        });
+    }
+
+    //v3 (컬렉션 fetch 조인)
+    @Benchmark
+    public void findAllWithItem(Blackhole bh) {
+        run(bh, () -> {
+            List<Order> result = orderRepository.findAllWithItem();
+            result.forEach(o -> touch(o, bh));
+            return result;
+        });
+    }
+
+    //v3.1 (ToOne fetch 조인 + default_batch_fetch_size)
+    @Benchmark
+    public void findAllByWithMemberDelivery(Blackhole bh) {
+        run(bh, () -> {
+            List<Order> result = orderRepository.findAllByWithMemberDelivery(0, orders);
+            result.forEach(o -> touch(o, bh));
+            return result;
+        });
+    }
+
+    //v4 (DTO 직접 조회, 컬렉션은 배치 로더)
+    @Benchmark
+    public void findOrderQueryDtos(Blackhole bh) {
+        run(bh, () -> orderQueryRepository.findOrderQueryDtos());
+    }
+
+    //v5 (DTO 직접 조회, 컬렉션은 in 조회)
+    @Benchmark
+    public void findAllByDto_optimization(Blackhole bh) {
+        run(bh, () -> orderQueryRepository.findAllByDto_optimization());
+    }
+
+    //v6 (flat 조인 한번)
+    @Benchmark
+    public void findAllByDto_flat(Blackhole bh) {
+        run(bh, () -> orderQueryRepository.findAllByDto_flat());
+    }
+
+    //simple v4 (ToOne 만 DTO 직접 조회)
+    @Benchmark
+    public void findOrderDtos(Blackhole bh) {
+        run(bh, () -> orderSimpleQueryRepository.findOrderDtos());
+    }
+
+    //API 에서 DTO 로 변환할 때 접근하는 연관관계를 초기화
+    private static void touch(Order order, Blackhole bh) {
+        bh.consume(order.getMember().getName());
+        bh.consume(order.getDelivery().getAddress());
+        order.getOrderItems().forEach(oi -> bh.consume(oi.getItem().getName()));
+    }
+
+    //매번 새 트랜젝션(새 영속성 컨텍스트) 에서 실행해서 1차 캐시 효과를 없앰
+    private void run(Blackhole bh, Supplier<Object> query) {
+        long before = statistics.getPrepareStatementCount();
+        bh.consume(readOnlyTx.execute(status -> query.get()));
+        statements += statistics.getPrepareStatementCount() - before;
+        invocations++;
+    }
+}
@@ -0,0 +1,141 @@
+package jpabook.jpashop.benchmark;
+
+import jpabook.jpashop.JpashopApplication;
+import jpabook.jpashop.domain.*;
+import jpabook.jpashop.domain.item.Book;
+import jpabook.jpashop.repository.OrderRepository;
+import jpabook.jpashop.repository.OrderSearch;
+import org.hibernate.SessionFactory;
+import org.hibernate.stat.Statistics;
+import org.openjdk.jmh.annotations.*;
+import org.openjdk.jmh.infra.BenchmarkParams;
+import org.openjdk.jmh.infra.Blackhole;
+import org.springframework.boot.WebApplicationType;
+import org.springframework.boot.builder.SpringApplicationBuilder;
+import org.springframework.context.ConfigurableApplicationContext;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import javax.persistence.EntityManager;
+import javax.persistence.EntityManagerFactory;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Supplier;
+
+//동적 주문 검색 방식별 쿼리 생성 비용 측정
+// - findAllByString (JPQL 문자열 연결) / findAllByCriteria (Criteria) / findAll (QueryDSL) / findAllCompiled (미리 만들어 둔 JPQL)
+// - 조회 결과는 적게 두고 (orders 건) 쿼리를 만들고 SQL 로 변환하는 비용이 드러나도록 함
+// - shape : 검색 조건 조합 (none, status, name, status_name)
+// - plan cache hit ratio : trial 동안의 Hibernate 쿼리 플랜 캐시 hit 비율 (trial 종료시 출력)
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+public class OrderSearchBenchmark {
+
+    @Param({"100"})
+    int orders;
+
+    @Param({"none", "status", "name", "status_name"})
+    String shape;
+
+    private ConfigurableApplicationContext context;
+    private TransactionTemplate readOnlyTx;
+    private Statistics statistics;
+
+    private OrderRepository orderRepository;
+    private OrderSearch orderSearch;
+
+    private long planHits;
+    private long planMisses;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        //application.yml 보다 우선하도록 커맨드라인 인자로 전달
+        context = new SpringApplicationBuilder(JpashopApplication.class)
+                .web(WebApplicationType.NONE)
+                .run(
+                        "--spring.datasource.url=jdbc:h2:mem:jmh;MODE=MySQL;DB_CLOSE_DELAY=-1",
+                        "--spring.datasource.driver-class-name=org.h2.Driver",
+                        "--spring.datasource.username=sa",
+                        "--spring.datasource.password=",
+                        "--spring.jpa.hibernate.ddl-auto=create",
+                        "--spring.flyway.enabled=false",
+                        "--spring.jpa.properties.hibernate.show_sql=false",
+                        "--spring.jpa.properties.hibernate.generate_statistics=true",
+                        "--logging.level.root=warn",
+                        "--logging.level.org.hibernate=warn");
+
+        PlatformTransactionManager transactionManager = context.getBean(PlatformTransactionManager.class);
+        readOnlyTx = new TransactionTemplate(transactionManager);
+        readOnlyTx.setReadOnly(true);
+        statistics = context.getBean(EntityManagerFactory.class).unwrap(SessionFactory.class).getStatistics();
+
+        orderRepository = context.getBean(OrderRepository.class);
+
+        orderSearch = new OrderSearch();
+        if (shape.startsWith("status")) {
+            orderSearch.setOrderStatus(OrderStatus.ORDER);
+        }
+        if (shape.endsWith("name")) {
+            orderSearch.setMemberName("member1");
+        }
+
+        seed(new TransactionTemplate(transactionManager), context.getBean(EntityManager.class));
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown(BenchmarkParams params) {
+        System.out.printf("%n[%s shape=%s] plan cache hit ratio = %.3f%n",
+                params.getBenchmark(), shape, (double) planHits / (planHits + planMisses));
+        context.close();
+    }
+
+    private void seed(TransactionTemplate tx, EntityManager em) {
+        tx.executeWithoutResult(status -> {
+            for (int i = 0; i < orders; i++) {
+                Member member = new Member();
+                member.setName("member" + i);
+                member.setAddress(new Address("서울", "강가", String.valueOf(i)));
+                em.persist(member);
+
+                Book book = new Book();
+                book.setName("book" + i);
+                book.setPrice(10000);
+                book.setStockQuantity(100);
+                em.persist(book);
+
+                Delivery delivery = new Delivery();
+                delivery.setAddress(member.getAddress());
+                em.persist(Order.createOrder(member, delivery, OrderItem.createOrderItem(book, book.getPrice(), 1)));
+            }
+        });
+    }
+
+    @Benchmark
+    public void findAllByString(Blackhole bh) {
+        run(bh, () -> orderRepository.findAllByString(orderSearch));
+    }
+
+    @Benchmark
+    public void findAllByCriteria(Blackhole bh) {
+        run(bh, () -> orderRepository.findAllByCriteria(orderSearch));
+    }
+
+    @Benchmark
+    public void findAll(Blackhole bh) {
+        run(bh, () -> orderRepository.findAll(orderSearch));
+    }
+
+    @Benchmark
+    public void findAllCompiled(Blackhole bh) {
+        run(bh, () -> orderRepository.findAllCompiled(orderSearch));
+    }
+
+    private void run(Blackhole bh, Supplier<List<Order>> query) {
+        long hits = statistics.getQueryPlanCacheHitCount();
+        long misses = statistics.getQueryPlanCacheMissCount();
+        bh.consume(readOnlyTx.execute(status -> query.get()));
+        planHits += statistics.getQueryPlanCacheHitCount() - hits;
+        planMisses += statistics.getQueryPlanCacheMissCount() - misses;
+    }
+}
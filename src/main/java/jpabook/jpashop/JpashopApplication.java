@@ -2,8 +2,10 @@ package jpabook.jpashop;
 
 import org.springframework.boot.SpringApplication;
 import org.springframework.boot.autoconfigure.SpringBootApplication;
+import org.springframework.scheduling.annotation.EnableScheduling;
 
 @SpringBootApplication
+@EnableScheduling //StockReservationService write-behind flush
 public class JpashopApplication {
 
 	public static void main(String[] args) {
@@ -0,0 +1,109 @@
+package jpabook.jpashop.api;
+
+import jpabook.jpashop.repository.CategoryItemDto;
+import jpabook.jpashop.repository.CategoryTree;
+import jpabook.jpashop.service.CategoryService;
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.RequiredArgsConstructor;
+import org.springframework.http.HttpStatus;
+import org.springframework.web.bind.annotation.*;
+import org.springframework.web.server.ResponseStatusException;
+
+import javax.validation.Valid;
+import javax.validation.constraints.NotEmpty;
+import java.util.List;
+
+@RestController
+@RequiredArgsConstructor
+public class CategoryApiController {
+
+    private static final int MAX_LIMIT = 1000;
+
+    private final CategoryService categoryService;
+
+    private final CategoryTree categoryTree;
+
+    //카테고리 트리 (DB 조회 없이 메모리 스냅샷)
+    @GetMapping("/api/v1/categories")
+    public List<CategoryTree.Node> categories() {
+        return categoryTree.snapshot().getRoots();
+    }
+
+    //하위 카테고리를 포함한 상품 목록 (Keyset 페이징)
+    // - 첫 페이지는 after 없이, 다음 페이지는 응답의 next 를 after 로 전달
+    @GetMapping("/api/v1/categories/{categoryId}/items")
+    public ItemPage items(
+            @PathVariable("categoryId") Long categoryId,
+            @RequestParam(value = "after", required = false) Long after,
+            @RequestParam(value = "limit", defaultValue = "100") int limit
+    ) {
+        checkExists(categoryId);
+        int size = Math.min(Math.max(limit, 1), MAX_LIMIT);
+        List<CategoryItemDto> items = categoryService.findItems(categoryId, after, size);
+        Long next = items.size() == size ? items.get(items.size() - 1).getItemId() : null;
+        return new ItemPage(items, next);
+    }
+
+    @PostMapping("/api/v1/categories")
+    public CreateCategoryResponse createCategory(@RequestBody @Valid CreateCategoryRequest request) {
+        try {
+            return new CreateCategoryResponse(categoryService.create(request.getName(), request.getParentId()));
+        } catch (IllegalArgumentException e) {
+            throw new ResponseStatusException(HttpStatus.BAD_REQUEST, e.getMessage(), e);
+        }
+    }
+
+    //카테고리 이동 (parentId 가 null 이면 최상위로)
+    @PutMapping("/api/v1/categories/{categoryId}/parent")
+    public void moveCategory(@PathVariable("categoryId") Long categoryId, @RequestBody MoveCategoryRequest request) {
+        checkExists(categoryId);
+        try {
+            categoryService.move(categoryId, request.getParentId());
+        } catch (IllegalArgumentException e) {
+            throw new ResponseStatusException(HttpStatus.BAD_REQUEST, e.getMessage(), e);
+        }
+    }
+
+    @PostMapping("/api/v1/categories/{categoryId}/items/{itemId}")
+    public void addItem(@PathVariable("categoryId") Long categoryId, @PathVariable("itemId") Long itemId) {
+        checkExists(categoryId);
+        try {
+            categoryService.addItem(categoryId, itemId);
+        } catch (IllegalArgumentException e) {
+            throw new ResponseStatusException(HttpStatus.BAD_REQUEST, e.getMessage(), e);
+        }
+    }
+
+    //트리 스냅샷에는 다른 서버에서 만든 카테고리가 주기적으로만 반영되므로 존재 여부는 DB 에서 확인
+    private void checkExists(Long categoryId) {
+        if (!categoryService.exists(categoryId)) {
+            throw new ResponseStatusException(HttpStatus.NOT_FOUND, "존재하지 않는 카테고리 입니다.");
+        }
+    }
+
+    @Data
+    @AllArgsConstructor
+    static class ItemPage {
+        private List<CategoryItemDto> data;
+        private Long next; //다음 페이지 after 값 (마지막 페이지면 null)
+    }
+
+    @Data
+    static class CreateCategoryRequest {
+        @NotEmpty
+        private String name;
+        private Long parentId;
+    }
+
+    @Data
+    static class MoveCategoryRequest {
+        private Long parentId;
+    }
+
+    @Data
+    @AllArgsConstructor
+    static class CreateCategoryResponse {
+        private Long id;
+    }
+}
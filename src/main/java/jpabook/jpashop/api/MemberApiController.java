@@ -1,16 +1,30 @@
 package jpabook.jpashop.api;
 
+import com.fasterxml.jackson.databind.ObjectMapper;
 import jpabook.jpashop.domain.Member;
 import jpabook.jpashop.domain.Order;
+import jpabook.jpashop.repository.MemberNameDto;
+import jpabook.jpashop.repository.MemberVersion;
+import jpabook.jpashop.service.MemberImportError;
+import jpabook.jpashop.service.MemberImportFormat;
+import jpabook.jpashop.service.MemberImportProgress;
+import jpabook.jpashop.service.MemberImportService;
 import jpabook.jpashop.service.MemberService;
 import lombok.AllArgsConstructor;
 import lombok.Data;
 import lombok.RequiredArgsConstructor;
 import org.springframework.web.bind.annotation.*;
+import org.springframework.web.context.request.WebRequest;
 
+import javax.servlet.http.HttpServletRequest;
+import javax.servlet.http.HttpServletResponse;
 import javax.validation.Valid;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.OutputStream;
+import java.io.UncheckedIOException;
+import java.nio.charset.StandardCharsets;
 import java.util.List;
-import java.util.stream.Collectors;
 
 @RestController //Controller 와 ResponseBody 를 합친 어노테이션
 @RequiredArgsConstructor
@@ -18,6 +32,15 @@ public class MemberApiController {
 
     private final MemberService memberService;
 
+    private final MemberVersion memberVersion;
+
+    private final MemberImportService memberImportService;
+
+    private final ObjectMapper objectMapper;
+
+    private static final int MAX_LIMIT = 1000;
+    private static final String NDJSON = "application/x-ndjson";
+
 //    @PostMapping("/api/v1/members")
 //    public CreateMemberResponse saveMemberV1(@RequestBody @Valid Member member) {
 //        Long id = memberService.join(member);
@@ -35,6 +58,41 @@ public class MemberApiController {
         return new CreateMemberResponse(id);
     }
 
+    //회원 일괄 등록 (body : text/csv 또는 NDJSON, UTF-8)
+    // - 요청 본문을 한 줄씩 읽으면서 처리하고 결과도 NDJSON 으로 바로 내려줌
+    //   실패한 줄 : {"line":..,"name":..,"error":..} / 청크마다 진행상황 : {"processed":..,"imported":..,"failed":..,"done":false}
+    @PostMapping(value = "/api/v2/members/import", consumes = {"text/csv", NDJSON}, produces = NDJSON)
+    public void importMembers(HttpServletRequest request, HttpServletResponse response) throws IOException {
+        MemberImportFormat format = request.getContentType().startsWith(NDJSON) ? MemberImportFormat.NDJSON : MemberImportFormat.CSV;
+        response.setContentType(NDJSON);
+        OutputStream out = response.getOutputStream();
+
+        memberImportService.importMembers(new InputStreamReader(request.getInputStream(), StandardCharsets.UTF_8), format,
+                new MemberImportService.Listener() {
+                    @Override
+                    public void onError(MemberImportError error) {
+                        write(out, error, false);
+                    }
+
+                    @Override
+                    public void onProgress(MemberImportProgress progress) {
+                        write(out, progress, true);
+                    }
+                });
+    }
+
+    private void write(OutputStream out, Object value, boolean flush) {
+        try {
+            out.write(objectMapper.writeValueAsBytes(value));
+            out.write('\n');
+            if (flush) {
+                out.flush();
+            }
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
     @PutMapping("/api/v2/members/{id}")
     public UpdateMemberResponse updateMemberV2(
             @PathVariable("id") Long id,
@@ -45,12 +103,32 @@ public class MemberApiController {
         return new UpdateMemberResponse(id, memberService.findOne(id).getName());
     }
 
+//    @GetMapping("/api/v2/members")
+//    public Result memberV2() {
+//        List<Member> findMembers = memberService.findMembers();
+//        List<MemberDto> collect = findMembers.stream().map(m -> new MemberDto(m.getName())).collect(Collectors.toList());
+//
+//        return new Result(collect.size(), collect);
+//    }
+
+    //회원 목록 (Keyset 페이징, id / name 만 조회)
+    // - 첫 페이지는 after 없이, 다음 페이지는 응답의 next 를 after 로 전달
+    // - ETag 는 회원 테이블 버전 + 페이지 조건 : If-None-Match 가 같으면 회원을 조회하지 않고 304 (버전 PK 조회 한번)
     @GetMapping("/api/v2/members")
-    public Result memberV2() {
-        List<Member> findMembers = memberService.findMembers();
-        List<MemberDto> collect = findMembers.stream().map(m -> new MemberDto(m.getName())).collect(Collectors.toList());
+    public PageResult<List<MemberNameDto>> memberV2(
+            @RequestParam(value = "after", required = false) Long after,
+            @RequestParam(value = "limit", defaultValue = "100") int limit,
+            WebRequest webRequest
+    ) {
+        int size = Math.min(Math.max(limit, 1), MAX_LIMIT);
+        String etag = "\"members-" + memberVersion.current() + "-" + after + "-" + size + "\"";
+        if (webRequest.checkNotModified(etag)) {
+            return null;
+        }
 
-        return new Result(collect.size(), collect);
+        List<MemberNameDto> members = memberService.findMemberNames(after, size);
+        Long next = members.size() == size ? members.get(members.size() - 1).getId() : null;
+        return new PageResult<>(members.size(), members, next);
     }
 
     @Data
@@ -60,6 +138,14 @@ public class MemberApiController {
         private T data;
     }
 
+    @Data
+    @AllArgsConstructor
+    static class PageResult<T> {
+        private int count;
+        private T data;
+        private Long next; //다음 페이지 after 값 (마지막 페이지면 null)
+    }
+
     @Data
     @AllArgsConstructor
     static class MemberDto {
@@ -1,115 +1,199 @@
 package jpabook.jpashop.api;
 
-import jpabook.jpashop.domain.Address;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import jpabook.jpashop.async.QueryExecutor;
 import jpabook.jpashop.domain.Order;
-import jpabook.jpashop.domain.OrderItem;
-import jpabook.jpashop.domain.OrderStatus;
-import jpabook.jpashop.repository.OrderRepository;
+import jpabook.jpashop.repository.OrderCursor;
+import jpabook.jpashop.repository.NameMatch;
+import jpabook.jpashop.repository.OrderFetchPlan;
 import jpabook.jpashop.repository.OrderSearch;
 import jpabook.jpashop.repository.query.OrderFlatDto;
 import jpabook.jpashop.repository.query.OrderQueryDto;
 import jpabook.jpashop.repository.query.OrderQueryRepository;
+import jpabook.jpashop.service.OrderLine;
+import jpabook.jpashop.service.OrderLineResult;
+import jpabook.jpashop.service.OrderService;
+import jpabook.jpashop.service.query.OrderDto;
+import jpabook.jpashop.service.query.OrderQueryService;
+import lombok.AllArgsConstructor;
 import lombok.Data;
-import lombok.Getter;
 import lombok.RequiredArgsConstructor;
-import org.springframework.data.domain.jaxb.SpringDataJaxb;
-import org.springframework.web.bind.annotation.GetMapping;
-import org.springframework.web.bind.annotation.RequestParam;
-import org.springframework.web.bind.annotation.RestController;
-
+import org.springframework.http.HttpStatus;
+import org.springframework.web.bind.annotation.*;
+import org.springframework.web.server.ResponseStatusException;
+
+import javax.servlet.http.HttpServletResponse;
+import javax.validation.Valid;
+import javax.validation.constraints.NotEmpty;
+import javax.validation.constraints.NotNull;
+import javax.validation.constraints.Size;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.UncheckedIOException;
 import java.time.LocalDateTime;
 import java.util.List;
-import java.util.stream.Collectors;
+import java.util.concurrent.CompletableFuture;
 
 @RestController
 @RequiredArgsConstructor
 public class OrderApiController {
 
-    private final OrderRepository orderRepository;
-
     private final OrderQueryRepository orderQueryRepository;
 
+    private final OrderService orderService;
+
+    private final ObjectMapper objectMapper;
+
+    private final OrderQueryService orderQueryService;
+
+    private final QueryExecutor queryExecutor;
+
+    private static final String NDJSON = "application/x-ndjson";
+    private static final int STREAM_FETCH_SIZE = 1000;
+    private static final int MAX_LIMIT = 1000;
+
+    //OSIV 가 꺼져 있으므로 컨트롤러에서 지연로딩을 강제 초기화할 수 없음
+    // - 서비스 트랜젝션 안에서 fetch plan 으로 연관관계를 모두 로딩해서 받음
     @GetMapping("/api/v1/orders")
-    public List<Order> ordersV1() {
-        List<Order> all = orderRepository.findAllByString(new OrderSearch());
-        for (Order order : all) {
-            order.getMember().getName();
-            order.getDelivery().getAddress();
-            List<OrderItem> orderItems = order.getOrderItems();
-            orderItems.stream().forEach(o -> o.getItem().getName());
-        }
-        return all;
+    public CompletableFuture<List<Order>> ordersV1() {
+        return queryExecutor.submit(() -> orderQueryService.findOrders(new OrderSearch(), OrderFetchPlan.DETAIL));
     }
 
     @GetMapping("/api/v2/orders")
-    public List<OrderDto> ordersV2() {
-        List<Order> orders = orderRepository.findAllByString(new OrderSearch());
-        List<OrderDto> collect = orders.stream().map(o -> new OrderDto(o)).collect(Collectors.toList());
-        return collect;
+    public CompletableFuture<List<OrderDto>> ordersV2() {
+        return queryExecutor.submit(() -> orderQueryService.findOrderDtos(new OrderSearch()));
     }
 
     @GetMapping("/api/v3/orders")
-    public List<OrderDto> ordersV3() {
-        List<Order> orders = orderRepository.findAllWithItem();
-        List<OrderDto> collect = orders.stream().map(o -> new OrderDto(o)).collect(Collectors.toList());
-        return collect;
+    public CompletableFuture<List<OrderDto>> ordersV3() {
+        return queryExecutor.submit(() -> orderQueryService.findOrderDtosWithItem());
     }
 
     @GetMapping("/api/v3.1/orders")
-    public List<OrderDto> ordersV3_page(
+    public CompletableFuture<List<OrderDto>> ordersV3_page(
             @RequestParam(value = "offfset", defaultValue = "0") int offset,
             @RequestParam(value = "limit", defaultValue = "100") int limit
     ) {
-        List<Order> orders = orderRepository.findAllByWithMemberDelivery(offset, limit);
-        List<OrderDto> collect = orders.stream().map(o -> new OrderDto(o)).collect(Collectors.toList());
-        return collect;
+        return queryExecutor.submit(() -> orderQueryService.findOrderDtos(offset, limit));
+    }
+
+    //cursor 파라미터가 있으면 Keyset 페이징으로 동작 (첫 페이지는 cursor= 빈값)
+    // - offset 페이징과 달리 깊은 페이지도 첫 페이지와 비용이 같음
+    // - orderItems 는 해당 페이지 주문 id 들로만 in 조회
+    @GetMapping(value = "/api/v3.1/orders", params = "cursor")
+    public CompletableFuture<CursorResult<List<OrderDto>>> ordersV3_cursor(
+            @RequestParam("cursor") String cursor,
+            @RequestParam(value = "limit", defaultValue = "100") int limit
+    ) {
+        OrderCursor orderCursor;
+        try {
+            orderCursor = OrderCursor.decode(cursor);
+        } catch (IllegalArgumentException e) {
+            throw new ResponseStatusException(HttpStatus.BAD_REQUEST, e.getMessage(), e);
+        }
+        int size = Math.min(Math.max(limit, 1), MAX_LIMIT);
+        return queryExecutor.submit(() -> orderQueryService.findOrderDtos(orderCursor, size))
+                .thenApply(collect -> {
+                    //limit 만큼 채워졌을 때만 다음 페이지 토큰을 내려줌
+                    String next = null;
+                    if (collect.size() == size) {
+                        OrderDto last = collect.get(collect.size() - 1);
+                        next = new OrderCursor(last.getOrderDate(), last.getOrderId()).encode();
+                    }
+                    return new CursorResult<>(collect, next);
+                });
     }
 
     @GetMapping("/api/v4/orders")
-    public List<OrderQueryDto> ordersV4() {
-        return orderQueryRepository.findOrderQueryDtos();
+    public CompletableFuture<List<OrderQueryDto>> ordersV4() {
+        return queryExecutor.submit(() -> orderQueryRepository.findOrderQueryDtos());
     }
 
     @GetMapping("/api/v5/orders")
-    public List<OrderQueryDto> ordersV5() {
-        return orderQueryRepository.findAllByDto_optimization();
+    public CompletableFuture<List<OrderQueryDto>> ordersV5() {
+        return queryExecutor.submit(() -> orderQueryRepository.findAllByDto_optimization());
     }
 
     @GetMapping("/api/v6/orders")
-    public List<OrderFlatDto> ordersV6() {
-        return orderQueryRepository.findAllByDto_flat();
+    public CompletableFuture<List<OrderFlatDto>> ordersV6() {
+        return queryExecutor.submit(() -> orderQueryRepository.findAllByDto_flat());
     }
 
-    @Data
-    static class OrderDto {
-
-        private Long orderId;
-        private String name;
-        private LocalDateTime orderDate;
-        private OrderStatus orderStatus;
-        private Address address;
-        private List<OrderItemDto> orderItems;
-
-        public OrderDto(Order order) {
-            orderId = order.getId();
-            name = order.getMember().getName();
-            orderDate = order.getOrderDate();
-            orderStatus = order.getStatus();
-            address = order.getDelivery().getAddress();
-            orderItems = order.getOrderItems().stream().map(orderItem -> new OrderItemDto(orderItem)).collect(Collectors.toList());
-        }
+    //NDJSON 스트리밍 (한 줄에 주문 하나)
+    // - 결과 리스트를 만들지 않고 조회하는 즉시 response 에 기록
+    @GetMapping(value = "/api/v6/orders/stream", produces = NDJSON)
+    public void ordersV6_stream(HttpServletResponse response) throws IOException {
+        response.setContentType(NDJSON);
+        OutputStream out = response.getOutputStream();
+        orderQueryRepository.streamAllByDto_flat(STREAM_FETCH_SIZE, dto -> {
+            try {
+                out.write(objectMapper.writeValueAsBytes(dto));
+                out.write('\n');
+            } catch (IOException e) {
+                throw new UncheckedIOException(e);
+            }
+        });
+        out.flush();
     }
 
-    @Getter
-    static class OrderItemDto {
+    //일괄 주문 (대량 등록용, 최대 1000 건)
+    // - 라인 순서대로 결과를 돌려줌
+    @PostMapping("/api/v1/orders/batch")
+    public List<OrderLineResult> orderBatch(@RequestBody @Valid OrderBatchRequest request) {
+        try {
+            return orderService.orderBatch(request.getOrders());
+        } catch (IllegalArgumentException e) {
+            throw new ResponseStatusException(HttpStatus.BAD_REQUEST, e.getMessage(), e);
+        }
+    }
 
-        private String itemName; //상품명
-        private int orderPrice; //주문가격
-        private int count; // 주문 수량
-        public OrderItemDto(OrderItem orderItem) {
-            itemName = orderItem.getItem().getName();
-            orderPrice = orderItem.getOrderPrice();
-            count = orderItem.getCount();
+    //일괄 취소
+    // - orderIds 가 있으면 해당 주문만, 없으면 회원 이름 + 주문일시 범위(from 이상 to 미만) 로 찾은 주문을 취소
+    // - 조건으로 취소할 때는 한번에 최대 1000 건 (canceled 가 0 이 될 때까지 반복 호출)
+    // - 조건이 잘못되면 400, 배송완료된 주문이 있으면 409
+    @PostMapping("/api/v1/orders/cancel")
+    public OrderCancelResponse cancelOrders(@RequestBody OrderCancelRequest request) {
+        try {
+            if (request.getOrderIds() != null) {
+                return new OrderCancelResponse(orderService.cancelOrders(request.getOrderIds()));
+            }
+            OrderSearch orderSearch = new OrderSearch();
+            orderSearch.setMemberName(request.getMemberName());
+            orderSearch.setNameMatch(request.getNameMatch());
+            return new OrderCancelResponse(orderService.cancelOrders(orderSearch, request.getFrom(), request.getTo()));
+        } catch (IllegalArgumentException e) {
+            throw new ResponseStatusException(HttpStatus.BAD_REQUEST, e.getMessage(), e);
+        } catch (IllegalStateException e) {
+            throw new ResponseStatusException(HttpStatus.CONFLICT, e.getMessage(), e);
         }
     }
+
+    @Data
+    static class OrderCancelRequest {
+        private List<Long> orderIds;
+        private String memberName;
+        private NameMatch nameMatch;
+        private LocalDateTime from;
+        private LocalDateTime to;
+    }
+
+    @Data
+    @AllArgsConstructor
+    static class OrderCancelResponse {
+        private int canceled;
+    }
+
+    @Data
+    static class OrderBatchRequest {
+        @NotEmpty
+        @Size(max = OrderService.MAX_BATCH_ORDERS)
+        private List<@Valid @NotNull OrderLine> orders;
+    }
+
+    @Data
+    @AllArgsConstructor
+    static class CursorResult<T> {
+        private T data;
+        private String next; //다음 페이지 커서 (마지막 페이지면 null)
+    }
 }
@@ -1,73 +1,50 @@
 package jpabook.jpashop.api;
 
-import jpabook.jpashop.domain.Address;
+import jpabook.jpashop.async.QueryExecutor;
 import jpabook.jpashop.domain.Order;
-import jpabook.jpashop.domain.OrderStatus;
-import jpabook.jpashop.repository.OrderRepository;
+import jpabook.jpashop.repository.OrderFetchPlan;
 import jpabook.jpashop.repository.OrderSearch;
 import jpabook.jpashop.repository.simplequery.OrderSimpleQueryDto;
 import jpabook.jpashop.repository.simplequery.OrderSimpleQueryRepository;
-import lombok.Data;
+import jpabook.jpashop.service.query.OrderQueryService;
+import jpabook.jpashop.service.query.SimpleOrderDto;
 import lombok.RequiredArgsConstructor;
 import org.springframework.web.bind.annotation.GetMapping;
 import org.springframework.web.bind.annotation.RestController;
 
-import java.time.LocalDateTime;
 import java.util.List;
-import java.util.stream.Collectors;
+import java.util.concurrent.CompletableFuture;
 
 @RestController
 @RequiredArgsConstructor
 public class OrderSimpleApiController {
 
-    private final OrderRepository orderRepository;
+    private final OrderQueryService orderQueryService;
 
     private final OrderSimpleQueryRepository orderSimpleQueryRepository;
 
+    private final QueryExecutor queryExecutor;
+
     @GetMapping("/api/v1/simple-orders")
-    public List<Order> ordersV1() {
+    public CompletableFuture<List<Order>> ordersV1() {
         // 양방향 연관관계 이므로 무한루프가 발생
         // LAZY(지연로딩) 일 경우 JSON 으로 변환중 ByteBuddy 프록시객체와 실제 타입이 일치하지 않아 오류 발생
-        List<Order> all =orderRepository.findAllByString(new OrderSearch());
-        for(Order order : all) {
-            order.getMember().getName(); // Lazy 강제 초기화
-            order.getDelivery().getAddress(); //Lazy 강제 초기화
-        }
-        return all;
+        // OSIV 가 꺼져 있으므로 서비스 트랜젝션 안에서 member, delivery 를 로딩해서 받음
+        return queryExecutor.submit(() -> orderQueryService.findOrders(new OrderSearch(), OrderFetchPlan.SIMPLE));
     }
 
     @GetMapping("/api/v2/simple-orders")
-    public List<SimpleOrderDto> ordersV2() {
-        List<Order> orders = orderRepository.findAllByString(new OrderSearch());
-        return orders.stream().map(SimpleOrderDto::new).collect(Collectors.toList());
+    public CompletableFuture<List<SimpleOrderDto>> ordersV2() {
+        return queryExecutor.submit(() -> orderQueryService.findSimpleOrderDtos(new OrderSearch()));
     }
 
     @GetMapping("/api/v3/simple-orders")
-    public List<SimpleOrderDto> ordersV3() {
-        List<Order> orders = orderRepository.findAllByWithMemberDelivery();
-        return orders.stream().map(SimpleOrderDto::new).collect(Collectors.toList());
+    public CompletableFuture<List<SimpleOrderDto>> ordersV3() {
+        return queryExecutor.submit(() -> orderQueryService.findSimpleOrderDtosWithMemberDelivery());
     }
 
     @GetMapping("/api/v4/simple-orders")
-    public List<OrderSimpleQueryDto> ordersV4() {
-        return orderSimpleQueryRepository.findOrderDtos();
-    }
-
-    @Data
-    static class SimpleOrderDto {
-        private Long orderId;
-        private String name;
-        private LocalDateTime orderDate;
-        private OrderStatus orderStatus;
-        private Address address;
-
-        // 각 레코드마다 추가적으로 쿼리가 발생되므로 성능적인 문제가 발생
-        public SimpleOrderDto(Order order) {
-            orderId = order.getId();
-            name = order.getMember().getName(); //LAZY 가 초기화됨 (select 쿼리 발생)
-            orderDate = order.getOrderDate();
-            orderStatus = order.getStatus();
-            address = order.getDelivery().getAddress(); //LAZY 가 초기화됨 (select 쿼리 발생)
-        }
+    public CompletableFuture<List<OrderSimpleQueryDto>> ordersV4() {
+        return queryExecutor.submit(() -> orderSimpleQueryRepository.findOrderDtos());
     }
 }
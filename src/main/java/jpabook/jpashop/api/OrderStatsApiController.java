@@ -0,0 +1,49 @@
+package jpabook.jpashop.api;
+
+import jpabook.jpashop.domain.OrderStatus;
+import jpabook.jpashop.repository.query.MemberOrderTotalDto;
+import jpabook.jpashop.repository.query.OrderStatusRevenueDto;
+import jpabook.jpashop.service.query.OrderStatsService;
+import lombok.RequiredArgsConstructor;
+import org.springframework.http.HttpStatus;
+import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.RequestParam;
+import org.springframework.web.bind.annotation.RestController;
+import org.springframework.web.server.ResponseStatusException;
+
+import java.util.List;
+import java.util.Map;
+
+//주문 금액 집계 (대시보드용)
+@RestController
+@RequiredArgsConstructor
+public class OrderStatsApiController {
+
+    private final OrderStatsService orderStatsService;
+
+    private static final int MAX_ORDER_IDS = 1000; //in 절 / 구간 캐시에 한번에 넣을 최대 주문 수
+    private static final int MAX_LIMIT = 1000;
+
+    //주문별 합계 예) /api/v1/order-stats/orders?orderIds=1,2,3
+    @GetMapping("/api/v1/order-stats/orders")
+    public Map<Long, Long> orderTotals(@RequestParam("orderIds") List<Long> orderIds) {
+        if (orderIds.size() > MAX_ORDER_IDS) {
+            throw new ResponseStatusException(HttpStatus.BAD_REQUEST, "한번에 조회할 수 있는 주문은 " + MAX_ORDER_IDS + "건 입니다.");
+        }
+        return orderStatsService.findOrderTotals(orderIds);
+    }
+
+    @GetMapping("/api/v1/order-stats/members")
+    public List<MemberOrderTotalDto> memberTotals(
+            @RequestParam(value = "status", defaultValue = "ORDER") OrderStatus status,
+            @RequestParam(value = "limit", defaultValue = "100") int limit
+    ) {
+        int size = Math.min(Math.max(limit, 1), MAX_LIMIT);
+        return orderStatsService.findMemberTotals(status, size);
+    }
+
+    @GetMapping("/api/v1/order-stats/status")
+    public List<OrderStatusRevenueDto> statusRevenue() {
+        return orderStatsService.findStatusRevenue();
+    }
+}
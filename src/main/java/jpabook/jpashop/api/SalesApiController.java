@@ -0,0 +1,40 @@
+package jpabook.jpashop.api;
+
+import jpabook.jpashop.domain.SalesDaily;
+import jpabook.jpashop.repository.SalesDayTotalDto;
+import jpabook.jpashop.service.SalesRollupService;
+import lombok.RequiredArgsConstructor;
+import org.springframework.format.annotation.DateTimeFormat;
+import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.RequestParam;
+import org.springframework.web.bind.annotation.RestController;
+
+import java.time.LocalDate;
+import java.util.List;
+
+//일별 매출 (sales_daily 집계 테이블만 조회)
+@RestController
+@RequiredArgsConstructor
+public class SalesApiController {
+
+    private final SalesRollupService salesRollupService;
+
+    //상품별 일 매출 예) /api/v1/sales/daily?from=2023-01-01&to=2023-01-31&itemId=1
+    @GetMapping("/api/v1/sales/daily")
+    public List<SalesDaily> daily(
+            @RequestParam("from") @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate from,
+            @RequestParam("to") @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate to,
+            @RequestParam(value = "itemId", required = false) Long itemId
+    ) {
+        return salesRollupService.findDaily(from, to, itemId);
+    }
+
+    //일별 전체 합계
+    @GetMapping("/api/v1/sales/days")
+    public List<SalesDayTotalDto> days(
+            @RequestParam("from") @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate from,
+            @RequestParam("to") @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate to
+    ) {
+        return salesRollupService.findDayTotals(from, to);
+    }
+}
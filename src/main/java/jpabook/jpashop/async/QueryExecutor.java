@@ -0,0 +1,136 @@
+package jpabook.jpashop.async;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import jpabook.jpashop.profiler.SqlProfile;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.http.HttpStatus;
+import org.springframework.stereotype.Component;
+import org.springframework.web.context.request.RequestAttributes;
+import org.springframework.web.context.request.RequestContextHolder;
+import org.springframework.web.context.request.ServletRequestAttributes;
+import org.springframework.web.server.ResponseStatusException;
+
+import javax.annotation.PreDestroy;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Supplier;
+
+//주문 API 의 DB 작업을 Tomcat 요청 스레드 밖에서 실행 (핸들러는 CompletableFuture 반환)
+// - jpashop.async.enabled=false 이면 요청 스레드에서 바로 실행 (기존 동작)
+// - 동시에 실행되는 작업 수를 커넥션 풀 크기(spring.datasource.hikari.maximum-pool-size) 로 제한
+//   -> 작업이 Hikari 에서 커넥션을 기다리며 멈추지 않음
+// - 실행 + 대기 작업이 max-concurrency + queue-capacity 를 넘으면 바로 503 (요청 스레드는 기다리지 않음)
+// - virtual-threads=true 이고 JDK 21 이상이면 작업마다 가상 스레드 사용, 아니면 플랫폼 스레드 풀
+@Slf4j
+@Component
+public class QueryExecutor {
+
+    private final boolean enabled;
+    private final Semaphore admission; //실행중 + 대기중
+    private final Semaphore running; //실행중 (커넥션 수)
+    private final ExecutorService executor;
+    private final Counter rejected;
+
+    public QueryExecutor(MeterRegistry meterRegistry,
+                         @Value("${jpashop.async.enabled:false}") boolean enabled,
+                         @Value("${jpashop.async.virtual-threads:false}") boolean virtualThreads,
+                         @Value("${jpashop.async.max-concurrency:${spring.datasource.hikari.maximum-pool-size:10}}") int maxConcurrency,
+                         @Value("${jpashop.async.queue-capacity:100}") int queueCapacity) {
+        this.enabled = enabled;
+        this.admission = new Semaphore(maxConcurrency + queueCapacity);
+        this.running = new Semaphore(maxConcurrency);
+        this.executor = enabled ? createExecutor(virtualThreads, maxConcurrency) : null;
+
+        this.rejected = Counter.builder("query.executor.rejected").register(meterRegistry);
+        Gauge.builder("query.executor.active", running, r -> maxConcurrency - r.availablePermits()).register(meterRegistry);
+        Gauge.builder("query.executor.pending", admission, a -> maxConcurrency + queueCapacity - a.availablePermits()).register(meterRegistry);
+    }
+
+    public <T> CompletableFuture<T> submit(Supplier<T> task) {
+        if (!enabled) {
+            return CompletableFuture.completedFuture(task.get());
+        }
+
+        if (!admission.tryAcquire()) {
+            rejected.increment();
+            return rejected();
+        }
+
+        //요청 스레드의 SQL 통계, request scope 빈(OrderBatchLoaders) 을 작업 스레드로 전달
+        SqlProfile profile = SqlProfile.current();
+        RequestAttributes attributes = RequestContextHolder.getRequestAttributes();
+        try {
+            return CompletableFuture.supplyAsync(() -> {
+                running.acquireUninterruptibly();
+                SqlProfile previous = SqlProfile.bind(profile);
+                ServletRequestAttributes taskAttributes = copy(attributes);
+                RequestContextHolder.setRequestAttributes(taskAttributes);
+                try {
+                    return task.get();
+                } finally {
+                    RequestContextHolder.resetRequestAttributes();
+                    if (taskAttributes != null) {
+                        taskAttributes.requestCompleted();
+                    }
+                    SqlProfile.bind(previous);
+                    running.release();
+                    admission.release();
+                }
+            }, executor);
+        } catch (RejectedExecutionException e) {
+            admission.release();
+            rejected.increment();
+            return rejected();
+        }
+    }
+
+    //요청 스레드의 RequestAttributes 는 핸들러가 반환되면 비활성화되므로 같은 요청으로 새로 만듦
+    private static ServletRequestAttributes copy(RequestAttributes attributes) {
+        if (attributes instanceof ServletRequestAttributes) {
+            ServletRequestAttributes servlet = (ServletRequestAttributes) attributes;
+            return new ServletRequestAttributes(servlet.getRequest(), servlet.getResponse());
+        }
+        return null;
+    }
+
+    private static <T> CompletableFuture<T> rejected() {
+        CompletableFuture<T> future = new CompletableFuture<>();
+        future.completeExceptionally(new ResponseStatusException(HttpStatus.SERVICE_UNAVAILABLE, "too many pending queries"));
+        return future;
+    }
+
+    //Executors.newVirtualThreadPerTaskExecutor() 는 JDK 21 부터 있으므로 리플렉션으로 호출 (빌드는 JDK 11 기준)
+    private static ExecutorService createExecutor(boolean virtualThreads, int maxConcurrency) {
+        if (virtualThreads) {
+            try {
+                ExecutorService executor = (ExecutorService) Executors.class.getMethod("newVirtualThreadPerTaskExecutor").invoke(null);
+                log.info("query executor uses virtual threads. maxConcurrency={}", maxConcurrency);
+                return executor;
+            } catch (ReflectiveOperationException e) {
+                log.warn("virtual threads are not supported on java {}. using platform threads", System.getProperty("java.version"));
+            }
+        }
+        AtomicInteger sequence = new AtomicInteger();
+        ThreadFactory threadFactory = r -> {
+            Thread thread = new Thread(r, "query-" + sequence.incrementAndGet());
+            thread.setDaemon(true);
+            return thread;
+        };
+        return Executors.newFixedThreadPool(maxConcurrency, threadFactory);
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        if (executor != null) {
+            executor.shutdown();
+        }
+    }
+}
@@ -0,0 +1,85 @@
+package jpabook.jpashop.config;
+
+import com.zaxxer.hikari.HikariDataSource;
+import jpabook.jpashop.datasource.ReplicaProperties;
+import jpabook.jpashop.datasource.ReplicaRoutingDataSource;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.boot.autoconfigure.jdbc.DataSourceProperties;
+import org.springframework.boot.context.properties.EnableConfigurationProperties;
+import org.springframework.boot.context.properties.bind.Bindable;
+import org.springframework.boot.context.properties.bind.Binder;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.context.annotation.Primary;
+import org.springframework.core.env.Environment;
+import org.springframework.jdbc.datasource.LazyConnectionDataSourceProxy;
+import org.springframework.scheduling.annotation.Scheduled;
+
+import javax.annotation.PreDestroy;
+import javax.sql.DataSource;
+import java.util.ArrayList;
+import java.util.List;
+
+//replica 가 설정된 경우에만 읽기/쓰기 DataSource 분리 (jpashop.datasource.replicas)
+// - 설정이 없으면 기존처럼 spring.datasource 하나만 사용 (Spring Boot 자동설정)
+// - primary / replica 풀은 빈으로 등록하지 않음 (p6spy 가 빈마다 감싸서 SQL 이 중복 집계되는 것을 막음)
+@Configuration
+@EnableConfigurationProperties(ReplicaProperties.class)
+@ConditionalOnProperty(prefix = "jpashop.datasource.replicas[0]", name = "url")
+public class DataSourceConfig {
+
+    private final ReplicaProperties replicaProperties;
+
+    private HikariDataSource primary;
+    private ReplicaRoutingDataSource routingDataSource;
+
+    public DataSourceConfig(ReplicaProperties replicaProperties) {
+        this.replicaProperties = replicaProperties;
+    }
+
+    //JPA / JdbcTemplate / Flyway 가 사용하는 DataSource
+    @Bean
+    @Primary
+    public DataSource dataSource(DataSourceProperties properties, Environment environment) {
+        //쓰기 (spring.datasource.*, spring.datasource.hikari.*)
+        primary = properties.initializeDataSourceBuilder().type(HikariDataSource.class).build();
+        Binder.get(environment).bind("spring.datasource.hikari", Bindable.ofInstance(primary));
+        primary.setPoolName("primary");
+
+        List<DataSource> replicas = new ArrayList<>();
+        for (int i = 0; i < replicaProperties.getReplicas().size(); i++) {
+            ReplicaProperties.Replica replica = replicaProperties.getReplicas().get(i);
+            HikariDataSource dataSource = new HikariDataSource();
+            dataSource.setPoolName("replica-" + i);
+            dataSource.setDriverClassName(properties.determineDriverClassName());
+            dataSource.setJdbcUrl(replica.getUrl());
+            dataSource.setUsername(replica.getUsername());
+            dataSource.setPassword(replica.getPassword());
+            dataSource.setMaximumPoolSize(replica.getMaximumPoolSize());
+            dataSource.setReadOnly(true);
+            replicas.add(dataSource);
+        }
+        routingDataSource = new ReplicaRoutingDataSource(primary, replicas, replicaProperties.getBalance());
+
+        //readOnly 여부가 정해진 뒤 (첫 SQL 실행 시점) 에 커넥션을 얻도록 지연
+        return new LazyConnectionDataSourceProxy(routingDataSource);
+    }
+
+    //복제 지연 주기적 확인
+    @Scheduled(fixedDelayString = "${jpashop.datasource.lag-check-interval-ms:1000}")
+    public void checkLag() {
+        if (routingDataSource != null) {
+            routingDataSource.checkLag(replicaProperties.getLagQuery(), replicaProperties.getLagColumn(), replicaProperties.getMaxLagSeconds());
+        }
+    }
+
+    @PreDestroy
+    public void close() throws Exception {
+        if (routingDataSource != null) {
+            routingDataSource.destroy();
+        }
+        if (primary != null) {
+            primary.close();
+        }
+    }
+}
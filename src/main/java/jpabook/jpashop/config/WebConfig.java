@@ -0,0 +1,20 @@
+package jpabook.jpashop.config;
+
+import jpabook.jpashop.profiler.SqlProfileInterceptor;
+import lombok.RequiredArgsConstructor;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.web.servlet.config.annotation.InterceptorRegistry;
+import org.springframework.web.servlet.config.annotation.WebMvcConfigurer;
+
+@Configuration
+@RequiredArgsConstructor
+public class WebConfig implements WebMvcConfigurer {
+
+    private final SqlProfileInterceptor sqlProfileInterceptor;
+
+    @Override
+    public void addInterceptors(InterceptorRegistry registry) {
+        registry.addInterceptor(sqlProfileInterceptor)
+                .excludePathPatterns("/css/**", "/js/**", "/actuator/**");
+    }
+}
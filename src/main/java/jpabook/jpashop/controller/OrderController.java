@@ -1,18 +1,22 @@
 package jpabook.jpashop.controller;
 
 import jpabook.jpashop.domain.Member;
-import jpabook.jpashop.domain.Order;
 import jpabook.jpashop.domain.item.Item;
+import jpabook.jpashop.repository.OrderListDto;
 import jpabook.jpashop.repository.OrderSearch;
+import jpabook.jpashop.repository.SearchPage;
 import jpabook.jpashop.service.ItemService;
 import jpabook.jpashop.service.MemberService;
 import jpabook.jpashop.service.OrderService;
+import jpabook.jpashop.service.query.OrderStatsService;
 import lombok.RequiredArgsConstructor;
 import org.springframework.stereotype.Controller;
 import org.springframework.ui.Model;
 import org.springframework.web.bind.annotation.*;
 
 import java.util.List;
+import java.util.Map;
+import java.util.stream.Collectors;
 
 @Controller
 @RequiredArgsConstructor
@@ -21,6 +25,7 @@ public class OrderController {
     private final OrderService orderService;
     private final MemberService memberService;
     private final ItemService itemService;
+    private final OrderStatsService orderStatsService;
 
     @GetMapping("/order")
     public String createForm(Model model) {
@@ -42,10 +47,19 @@ public class OrderController {
     }
 
     @GetMapping("/orders")
-    public String orderList(@ModelAttribute("orderSearch")OrderSearch orderSearch, Model model) {
-        List<Order> orders = orderService.findOrder(orderSearch);
+    public String orderList(@ModelAttribute("orderSearch")OrderSearch orderSearch,
+                            @RequestParam(value = "page", defaultValue = "0") int page,
+                            @RequestParam(value = "size", defaultValue = "20") int size,
+                            Model model) {
+        SearchPage<OrderListDto> orderPage = orderService.findOrderList(orderSearch, page, size);
+        List<OrderListDto> orders = orderPage.getContent();
+        //주문 금액은 group by 집계로 조회 (orderItems 를 로딩하지 않음)
+        Map<Long, Long> totals = orderStatsService.findOrderTotals(
+                orders.stream().map(OrderListDto::getOrderId).collect(Collectors.toList()));
 
         model.addAttribute("orders", orders);
+        model.addAttribute("orderPage", orderPage);
+        model.addAttribute("totals", totals);
 
         return "order/orderList";
     }
@@ -0,0 +1,7 @@
+package jpabook.jpashop.datasource;
+
+//읽기 전용 트랜젝션을 보낼 replica 선택 방식
+public enum ReplicaBalance {
+    ROUND_ROBIN, //순서대로
+    LEAST_CONNECTIONS //사용중인 커넥션이 가장 적은 replica
+}
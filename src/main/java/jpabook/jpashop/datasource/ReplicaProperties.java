@@ -0,0 +1,30 @@
+package jpabook.jpashop.datasource;
+
+import lombok.Getter;
+import lombok.Setter;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+
+import java.util.ArrayList;
+import java.util.List;
+
+//jpashop.datasource.* (replica 설정)
+@Getter @Setter
+@ConfigurationProperties("jpashop.datasource")
+public class ReplicaProperties {
+
+    private List<Replica> replicas = new ArrayList<>();
+    private ReplicaBalance balance = ReplicaBalance.ROUND_ROBIN;
+
+    //복제 지연 확인
+    private long maxLagSeconds = 5;
+    private String lagQuery = "SHOW REPLICA STATUS";
+    private String lagColumn = "Seconds_Behind_Source";
+
+    @Getter @Setter
+    public static class Replica {
+        private String url;
+        private String username;
+        private String password;
+        private int maximumPoolSize = 10;
+    }
+}
@@ -0,0 +1,147 @@
+package jpabook.jpashop.datasource;
+
+import com.zaxxer.hikari.HikariDataSource;
+import com.zaxxer.hikari.HikariPoolMXBean;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.DisposableBean;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.datasource.lookup.AbstractRoutingDataSource;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import javax.sql.DataSource;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicInteger;
+
+//읽기/쓰기 DataSource 분리
+// - @Transactional(readOnly = true) 인 트랜젝션은 replica 로, 나머지는 primary 로 보냄
+// - 트랜젝션 시작 시점에는 아직 readOnly 여부가 TransactionSynchronizationManager 에 없으므로
+//   LazyConnectionDataSourceProxy 로 감싸서 첫 SQL 실행 시점에 커넥션을 얻도록 해야 함
+// - 복제 지연이 maxLagSeconds 를 넘거나 지연 조회가 실패한 replica 는 제외 (모두 제외되면 primary 사용)
+@Slf4j
+public class ReplicaRoutingDataSource extends AbstractRoutingDataSource implements DisposableBean {
+
+    static final String PRIMARY = "primary";
+
+    private final List<Replica> replicas = new ArrayList<>();
+    private final ReplicaBalance balance;
+    private final AtomicInteger counter = new AtomicInteger();
+
+    public ReplicaRoutingDataSource(DataSource primary, List<DataSource> replicaDataSources, ReplicaBalance balance) {
+        this.balance = balance;
+
+        Map<Object, Object> targets = new HashMap<>();
+        targets.put(PRIMARY, primary);
+        for (int i = 0; i < replicaDataSources.size(); i++) {
+            Replica replica = new Replica("replica-" + i, replicaDataSources.get(i));
+            replicas.add(replica);
+            targets.put(replica.key, replica.dataSource);
+        }
+        setTargetDataSources(targets);
+        setDefaultTargetDataSource(primary);
+        afterPropertiesSet();
+    }
+
+    @Override
+    protected Object determineCurrentLookupKey() {
+        if (!TransactionSynchronizationManager.isCurrentTransactionReadOnly()) {
+            return PRIMARY;
+        }
+        Replica replica = select();
+        return replica != null ? replica.key : PRIMARY;
+    }
+
+    private Replica select() {
+        List<Replica> candidates = new ArrayList<>(replicas.size());
+        for (Replica replica : replicas) {
+            if (replica.available) {
+                candidates.add(replica);
+            }
+        }
+        if (candidates.isEmpty()) {
+            return null;
+        }
+
+        if (balance == ReplicaBalance.LEAST_CONNECTIONS) {
+            Replica least = candidates.get(0);
+            for (Replica replica : candidates) {
+                if (replica.activeConnections() < least.activeConnections()) {
+                    least = replica;
+                }
+            }
+            return least;
+        }
+        return candidates.get(Math.floorMod(counter.getAndIncrement(), candidates.size()));
+    }
+
+    //replica 별 복제 지연 확인
+    // - lagQuery 결과의 lagColumn 값(초) 을 읽음, 결과가 없으면 지연 없음으로 봄 (replica 설정이 안된 DB)
+    // - 값이 null (복제 중단) 이거나 조회 실패시 제외
+    public void checkLag(String lagQuery, String lagColumn, long maxLagSeconds) {
+        for (Replica replica : replicas) {
+            boolean available;
+            try {
+                List<Long> lags = new JdbcTemplate(replica.dataSource).query(lagQuery, (rs, rowNum) -> {
+                    long lag = rs.getLong(lagColumn);
+                    return rs.wasNull() ? null : lag;
+                });
+                Long lag = lags.isEmpty() ? Long.valueOf(0) : lags.get(0);
+                available = lag != null && lag <= maxLagSeconds;
+                if (!available) {
+                    log.warn("replica {} excluded. lag={}s", replica.key, lag);
+                }
+            } catch (RuntimeException e) {
+                available = false;
+                log.warn("replica {} excluded. lag check failed", replica.key, e);
+            }
+            if (available && !replica.available) {
+                log.info("replica {} available again", replica.key);
+            }
+            replica.available = available;
+        }
+    }
+
+    //현재 사용 가능한 replica 이름
+    public List<String> availableReplicas() {
+        List<String> keys = new ArrayList<>();
+        for (Replica replica : replicas) {
+            if (replica.available) {
+                keys.add(replica.key);
+            }
+        }
+        return Collections.unmodifiableList(keys);
+    }
+
+    //replica 풀 종료
+    @Override
+    public void destroy() throws Exception {
+        for (Replica replica : replicas) {
+            if (replica.dataSource instanceof AutoCloseable) {
+                ((AutoCloseable) replica.dataSource).close();
+            }
+        }
+    }
+
+    private static class Replica {
+        private final String key;
+        private final DataSource dataSource;
+        private volatile boolean available = true;
+
+        Replica(String key, DataSource dataSource) {
+            this.key = key;
+            this.dataSource = dataSource;
+        }
+
+        //Hikari 풀이 아니면 커넥션 수를 알 수 없으므로 0 (round-robin 과 비슷하게 동작)
+        int activeConnections() {
+            if (dataSource instanceof HikariDataSource) {
+                HikariPoolMXBean pool = ((HikariDataSource) dataSource).getHikariPoolMXBean();
+                return pool != null ? pool.getActiveConnections() : 0;
+            }
+            return 0;
+        }
+    }
+}
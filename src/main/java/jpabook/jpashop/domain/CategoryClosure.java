@@ -0,0 +1,40 @@
+package jpabook.jpashop.domain;
+
+import lombok.AccessLevel;
+import lombok.EqualsAndHashCode;
+import lombok.Getter;
+import lombok.NoArgsConstructor;
+import org.hibernate.annotations.Immutable;
+
+import javax.persistence.*;
+import java.io.Serializable;
+
+//카테고리 closure table : 모든 (조상, 자손) 쌍을 저장 (자기 자신은 depth 0)
+// - 하위 카테고리 전체를 parent 를 따라 한 단계씩 조회하지 않고 ancestor_id 조건 하나로 찾음
+// - CategoryRepository 가 카테고리 생성/이동 시 SQL 로만 갱신 (엔티티는 조회용)
+@Entity
+@Immutable
+@Table(name = "category_closure", indexes = @Index(name = "idx_category_closure_descendant", columnList = "descendant_id"))
+@IdClass(CategoryClosure.Key.class)
+@Getter
+@NoArgsConstructor(access = AccessLevel.PROTECTED)
+public class CategoryClosure {
+
+    @Id
+    @Column(name = "ancestor_id")
+    private Long ancestorId;
+
+    @Id
+    @Column(name = "descendant_id")
+    private Long descendantId;
+
+    private int depth;
+
+    @Getter
+    @EqualsAndHashCode
+    @NoArgsConstructor(access = AccessLevel.PROTECTED)
+    public static class Key implements Serializable {
+        private Long ancestorId;
+        private Long descendantId;
+    }
+}
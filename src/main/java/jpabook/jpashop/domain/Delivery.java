@@ -2,6 +2,7 @@ package jpabook.jpashop.domain;
 
 import lombok.Getter;
 import lombok.Setter;
+import org.hibernate.annotations.GenericGenerator;
 
 import javax.persistence.*;
 
@@ -10,7 +11,8 @@ import javax.persistence.*;
 public class Delivery {
 
     @Id
-    @GeneratedValue
+    @GeneratedValue(generator = "pooled")
+    @GenericGenerator(name = "pooled", strategy = PooledIdGenerator.STRATEGY)
     @Column(name = "delivery_id")
     private Long id;
 
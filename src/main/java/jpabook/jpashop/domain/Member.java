@@ -2,17 +2,21 @@ package jpabook.jpashop.domain;
 
 import lombok.Getter;
 import lombok.Setter;
+import org.hibernate.annotations.GenericGenerator;
 
 import javax.persistence.*;
 import java.util.ArrayList;
 import java.util.List;
 
 @Entity
+//회원 이름 중복은 DB 에서 원자적으로 막음 (동시에 같은 이름으로 가입해도 하나만 insert 됨)
+@Table(uniqueConstraints = @UniqueConstraint(name = "uk_member_name", columnNames = "name"))
 @Getter
 @Setter
 public class Member {
 
-    @Id @GeneratedValue
+    @Id @GeneratedValue(generator = "pooled")
+    @GenericGenerator(name = "pooled", strategy = PooledIdGenerator.STRATEGY)
     @Column(name = "member_id")
     private Long id;
 
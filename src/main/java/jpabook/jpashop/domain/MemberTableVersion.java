@@ -0,0 +1,25 @@
+package jpabook.jpashop.domain;
+
+import lombok.AccessLevel;
+import lombok.Getter;
+import lombok.NoArgsConstructor;
+
+import javax.persistence.Column;
+import javax.persistence.Entity;
+import javax.persistence.Id;
+import javax.persistence.Table;
+
+//회원 테이블 버전 (row 하나, id = 1)
+// - 회원을 추가/변경하는 트랜젝션에서 1 증가 (MemberVersion 이 JDBC 로 조회/증가, 엔티티는 스키마 정의용)
+@Entity
+@Table(name = "member_version")
+@Getter
+@NoArgsConstructor(access = AccessLevel.PROTECTED)
+public class MemberTableVersion {
+
+    @Id
+    @Column(name = "member_version_id")
+    private Long id;
+
+    private long version;
+}
@@ -4,6 +4,7 @@ import lombok.AccessLevel;
 import lombok.Getter;
 import lombok.NoArgsConstructor;
 import lombok.Setter;
+import org.hibernate.annotations.GenericGenerator;
 
 import javax.persistence.*;
 import java.time.LocalDateTime;
@@ -12,11 +13,19 @@ import java.util.List;
 
 @Entity
 @Table(name = "orders")
+//ToOne 연관관계를 한번에 조인하는 엔티티 그래프 (OrderFetchPlan 에서 사용)
+@NamedEntityGraph(name = Order.GRAPH_MEMBER_DELIVERY, attributeNodes = {
+        @NamedAttributeNode("member"),
+        @NamedAttributeNode("delivery")
+})
 @Getter @Setter
 @NoArgsConstructor(access = AccessLevel.PROTECTED) //protected 접근제어자의 기본생성자를 만들어줌
 public class Order {
 
-    @Id @GeneratedValue
+    public static final String GRAPH_MEMBER_DELIVERY = "Order.withMemberDelivery";
+
+    @Id @GeneratedValue(generator = "pooled")
+    @GenericGenerator(name = "pooled", strategy = PooledIdGenerator.STRATEGY)
     @Column(name = "order_id")
     private Long id;
 
@@ -85,18 +94,24 @@ public class Order {
 
     //주문취소
     public void cancel() {
+        cancelWithoutStockRestore();
+        for (OrderItem orderItem : orderItems) {
+            orderItem.cancel();
+        }
+    }
+
+    //주문취소 (재고는 StockReservationService 에서 복구하는 경우)
+    public void cancelWithoutStockRestore() {
         if (delivery.getStatus() == DeliveryStatus.COMP) {
             throw new IllegalStateException("이미 배송완료된 상품은 취소가 불가능합니다.");
         }
 
         this.setStatus(OrderStatus.CANCEL);
-        for (OrderItem orderItem : orderItems) {
-            orderItem.cancel();
-        }
     }
 
 
     //전체 주문 가격 조회
+    // - orderItems 를 모두 로딩하므로 목록/대시보드에서는 OrderStatsService (group by 집계) 사용
     public int getTotalPrice() {
         return orderItems.stream().mapToInt(i -> i.getTotalPrice()).sum();
     }
@@ -6,6 +6,7 @@ import lombok.AccessLevel;
 import lombok.Getter;
 import lombok.NoArgsConstructor;
 import lombok.Setter;
+import org.hibernate.annotations.GenericGenerator;
 
 import javax.persistence.*;
 
@@ -14,7 +15,8 @@ import javax.persistence.*;
 @NoArgsConstructor(access = AccessLevel.PROTECTED) //protected 접근제어자의 기본생성자를 만들어줌
 public class OrderItem {
 
-    @Id @GeneratedValue
+    @Id @GeneratedValue(generator = "pooled")
+    @GenericGenerator(name = "pooled", strategy = PooledIdGenerator.STRATEGY)
     @Column(name = "order_item_id")
     private Long id;
 
@@ -43,6 +45,15 @@ public class OrderItem {
         return orderItem;
     }
 
+    //재고가 StockReservationService 에서 이미 차감된 경우 (Item 을 변경하지 않음)
+    public static OrderItem createReservedOrderItem(Item item, int orderPrice, int count) {
+        OrderItem orderItem = new OrderItem();
+        orderItem.setItem(item);
+        orderItem.setOrderPrice(orderPrice);
+        orderItem.setCount(count);
+        return orderItem;
+    }
+
     //비즈니스 로직
     public void cancel() {
         getItem().addStock(count);
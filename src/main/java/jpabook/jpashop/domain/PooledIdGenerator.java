@@ -0,0 +1,34 @@
+package jpabook.jpashop.domain;
+
+import org.hibernate.MappingException;
+import org.hibernate.engine.config.spi.ConfigurationService;
+import org.hibernate.id.enhanced.SequenceStyleGenerator;
+import org.hibernate.internal.util.config.ConfigurationHelper;
+import org.hibernate.service.ServiceRegistry;
+import org.hibernate.type.Type;
+
+import java.util.Properties;
+
+//pooled-lo 방식의 id 생성기
+// - @GeneratedValue 기본값은 insert 마다 hibernate_sequence 를 조회/증가시킴 (insert 를 batch 로 묶을 수 없음)
+// - 한번에 increment_size 만큼의 id 블록을 가져와 메모리에서 나눠줌 (서버마다 자기 블록을 사용)
+// - 시퀀스가 없는 MySQL 은 기존과 같은 hibernate_sequence 테이블을 사용하므로 스키마 변경이 필요 없음
+// - 블록 크기는 spring.jpa.properties.jpashop.id.increment_size 로 설정
+public class PooledIdGenerator extends SequenceStyleGenerator {
+
+    public static final String STRATEGY = "jpabook.jpashop.domain.PooledIdGenerator";
+    public static final String INCREMENT_SIZE_SETTING = "jpashop.id.increment_size";
+
+    private static final int DEFAULT_INCREMENT_SIZE = 100;
+
+    @Override
+    public void configure(Type type, Properties params, ServiceRegistry serviceRegistry) throws MappingException {
+        int incrementSize = ConfigurationHelper.getInt(INCREMENT_SIZE_SETTING,
+                serviceRegistry.getService(ConfigurationService.class).getSettings(), DEFAULT_INCREMENT_SIZE);
+
+        params.putIfAbsent(SEQUENCE_PARAM, DEF_SEQUENCE_NAME); //기존 hibernate_sequence 를 그대로 사용
+        params.put(INCREMENT_PARAM, String.valueOf(incrementSize));
+        params.put(OPT_PARAM, "pooled-lo");
+        super.configure(type, params, serviceRegistry);
+    }
+}
@@ -0,0 +1,39 @@
+package jpabook.jpashop.domain;
+
+import lombok.AccessLevel;
+import lombok.EqualsAndHashCode;
+import lombok.Getter;
+import lombok.NoArgsConstructor;
+import org.hibernate.annotations.Immutable;
+
+import javax.persistence.*;
+import java.io.Serializable;
+import java.time.LocalDate;
+
+//상품별 일 매출 집계 (SalesRollupService 가 JDBC batch 로만 갱신, 엔티티는 조회용)
+@Entity
+@Immutable
+@Table(name = "sales_daily")
+@IdClass(SalesDaily.Key.class)
+@Getter
+@NoArgsConstructor(access = AccessLevel.PROTECTED)
+public class SalesDaily {
+
+    @Id
+    private Long itemId;
+
+    @Id
+    private LocalDate salesDay;
+
+    private long qty;
+
+    private long revenue;
+
+    @Getter
+    @EqualsAndHashCode
+    @NoArgsConstructor(access = AccessLevel.PROTECTED)
+    public static class Key implements Serializable {
+        private Long itemId;
+        private LocalDate salesDay;
+    }
+}
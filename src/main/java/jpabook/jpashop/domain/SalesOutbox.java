@@ -0,0 +1,50 @@
+package jpabook.jpashop.domain;
+
+import lombok.AccessLevel;
+import lombok.Getter;
+import lombok.NoArgsConstructor;
+import org.hibernate.annotations.GenericGenerator;
+
+import javax.persistence.*;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+
+//일별 매출 집계(sales_daily) 에 반영할 변경분 (transactional outbox)
+// - 주문/취소와 같은 트랜젝션에 저장되므로 주문이 롤백되면 함께 사라짐
+// - SalesRollupService 가 주기적으로 모아서 sales_daily 에 반영한 뒤 삭제
+@Entity
+@Getter
+@NoArgsConstructor(access = AccessLevel.PROTECTED)
+public class SalesOutbox {
+
+    @Id @GeneratedValue(generator = "pooled")
+    @GenericGenerator(name = "pooled", strategy = PooledIdGenerator.STRATEGY)
+    @Column(name = "sales_outbox_id")
+    private Long id;
+
+    private Long itemId;
+
+    private LocalDate salesDay; //주문일 (취소도 주문일의 매출에서 뺌)
+
+    private int qty; //취소는 음수
+
+    private long revenue; //취소는 음수
+
+    private LocalDateTime createdAt;
+
+    //주문상품 하나의 변경분 (sign : 주문 1, 취소 -1)
+    public static SalesOutbox of(Order order, OrderItem orderItem, int sign) {
+        return of(orderItem.getItem().getId(), order.getOrderDate().toLocalDate(),
+                sign * orderItem.getCount(), (long) sign * orderItem.getTotalPrice());
+    }
+
+    public static SalesOutbox of(Long itemId, LocalDate salesDay, int qty, long revenue) {
+        SalesOutbox outbox = new SalesOutbox();
+        outbox.itemId = itemId;
+        outbox.salesDay = salesDay;
+        outbox.qty = qty;
+        outbox.revenue = revenue;
+        outbox.createdAt = LocalDateTime.now();
+        return outbox;
+    }
+}
@@ -1,9 +1,14 @@
 package jpabook.jpashop.domain.item;
 
 import jpabook.jpashop.domain.Category;
+import jpabook.jpashop.domain.PooledIdGenerator;
 import jpabook.jpashop.exception.NotEnoughStockException;
+import lombok.AccessLevel;
 import lombok.Getter;
 import lombok.Setter;
+import org.hibernate.annotations.Cache;
+import org.hibernate.annotations.CacheConcurrencyStrategy;
+import org.hibernate.annotations.GenericGenerator;
 
 import javax.persistence.*;
 import java.util.ArrayList;
@@ -12,11 +17,15 @@ import java.util.List;
 @Entity
 @Inheritance(strategy = InheritanceType.SINGLE_TABLE)
 @DiscriminatorColumn(name = "dtype")
+//2차 캐시 : SINGLE_TABLE 상속이므로 루트에만 지정하면 Book, Album, Movie 가 같은 영역을 사용
+// - READ_WRITE : 변경감지로 재고가 바뀌면 커밋 시점에 캐시도 함께 갱신됨
+@Cache(usage = CacheConcurrencyStrategy.READ_WRITE)
 @Getter @Setter
 public abstract class Item {
 
     @Id
-    @GeneratedValue
+    @GeneratedValue(generator = "pooled")
+    @GenericGenerator(name = "pooled", strategy = PooledIdGenerator.STRATEGY)
     @Column(name = "item_id")
     private Long id;
 
@@ -26,6 +35,12 @@ public abstract class Item {
 
     private int stockQuantity;
 
+    //낙관적 락 : 재고 변경이 동시에 커밋되면 나중 트랜젝션은 update 건수 0 -> ObjectOptimisticLockingFailureException
+    // - OrderService 는 RetryingTransactionTemplate 으로 새 트랜젝션에서 다시 시도
+    @Version
+    @Setter(AccessLevel.NONE)
+    private long version;
+
     @ManyToMany(mappedBy = "items")
     private List<Category> categories = new ArrayList<>();
 
@@ -0,0 +1,50 @@
+package jpabook.jpashop.profiler;
+
+import lombok.RequiredArgsConstructor;
+import org.hibernate.HibernateException;
+import org.hibernate.engine.spi.SessionFactoryImplementor;
+import org.hibernate.event.service.spi.EventListenerRegistry;
+import org.hibernate.event.spi.EventType;
+import org.hibernate.event.spi.InitializeCollectionEvent;
+import org.hibernate.event.spi.InitializeCollectionEventListener;
+import org.hibernate.event.spi.LoadEvent;
+import org.hibernate.event.spi.LoadEventListener;
+import org.springframework.stereotype.Component;
+
+import javax.annotation.PostConstruct;
+import javax.persistence.EntityManagerFactory;
+
+//지연로딩 초기화 횟수를 현재 요청의 SqlProfile 에 누적
+// - 프록시 초기화 : LoadEvent (IMMEDIATE_LOAD)
+// - 컬렉션 초기화 : InitializeCollectionEvent
+@Component
+@RequiredArgsConstructor
+public class LazyLoadEventListener implements LoadEventListener, InitializeCollectionEventListener {
+
+    private final EntityManagerFactory emf;
+
+    @PostConstruct
+    public void register() {
+        EventListenerRegistry registry = emf.unwrap(SessionFactoryImplementor.class)
+                .getServiceRegistry()
+                .getService(EventListenerRegistry.class);
+        registry.appendListeners(EventType.LOAD, this);
+        registry.appendListeners(EventType.INIT_COLLECTION, this);
+    }
+
+    @Override
+    public void onLoad(LoadEvent event, LoadType loadType) throws HibernateException {
+        SqlProfile profile = SqlProfile.current();
+        if (profile != null && loadType == IMMEDIATE_LOAD) {
+            profile.addLazyLoad();
+        }
+    }
+
+    @Override
+    public void onInitializeCollection(InitializeCollectionEvent event) throws HibernateException {
+        SqlProfile profile = SqlProfile.current();
+        if (profile != null) {
+            profile.addLazyLoad();
+        }
+    }
+}
@@ -0,0 +1,86 @@
+package jpabook.jpashop.profiler;
+
+import lombok.Getter;
+
+import java.util.concurrent.atomic.LongAdder;
+
+//요청 한건 동안 실행된 SQL 통계
+// - 요청을 처리하는 스레드의 ThreadLocal 에 보관 (SqlProfileInterceptor 에서 시작/종료)
+// - 요청 밖(스케줄러 등) 에서 실행된 SQL 은 집계하지 않음
+// - 비동기 요청은 QueryExecutor 가, 병렬 청크 조회는 OrderItemChunkLoader 가 작업 스레드에 같은 SqlProfile 을 bind
+// - 여러 스레드가 동시에 집계하므로 카운터는 LongAdder (응답 시점에 한번 합산)
+public class SqlProfile {
+
+    private static final ThreadLocal<SqlProfile> CURRENT = new ThreadLocal<>();
+
+    @Getter
+    private final String handler; //예) OrderApiController.ordersV2
+
+    private final LongAdder queries = new LongAdder();
+    private final LongAdder dbTimeNanos = new LongAdder();
+    private final LongAdder rows = new LongAdder();
+    private final LongAdder lazyLoads = new LongAdder(); //지연로딩으로 초기화된 프록시/컬렉션 수 (N+1 탐지)
+
+    private SqlProfile(String handler) {
+        this.handler = handler;
+    }
+
+    public static SqlProfile start(String handler) {
+        SqlProfile profile = new SqlProfile(handler);
+        CURRENT.set(profile);
+        return profile;
+    }
+
+    public static SqlProfile current() {
+        return CURRENT.get();
+    }
+
+    public static void end() {
+        CURRENT.remove();
+    }
+
+    //다른 스레드에서 같은 요청의 SQL 을 집계할 때 (비동기 처리)
+    // - 이전에 있던 값을 반환하므로 작업이 끝나면 다시 bind 해서 되돌림
+    public static SqlProfile bind(SqlProfile profile) {
+        SqlProfile previous = CURRENT.get();
+        if (profile == null) {
+            CURRENT.remove();
+        } else {
+            CURRENT.set(profile);
+        }
+        return previous;
+    }
+
+    public int getQueries() {
+        return queries.intValue();
+    }
+
+    public long getDbTimeNanos() {
+        return dbTimeNanos.sum();
+    }
+
+    public long getDbTimeMillis() {
+        return getDbTimeNanos() / 1_000_000;
+    }
+
+    public long getRows() {
+        return rows.sum();
+    }
+
+    public int getLazyLoads() {
+        return lazyLoads.intValue();
+    }
+
+    void addQuery(long elapsedNanos) {
+        queries.increment();
+        dbTimeNanos.add(elapsedNanos);
+    }
+
+    void addRow() {
+        rows.increment();
+    }
+
+    void addLazyLoad() {
+        lazyLoads.increment();
+    }
+}
@@ -0,0 +1,104 @@
+package jpabook.jpashop.profiler;
+
+import io.micrometer.core.instrument.DistributionSummary;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+import org.springframework.web.method.HandlerMethod;
+import org.springframework.web.servlet.AsyncHandlerInterceptor;
+import org.springframework.web.servlet.ModelAndView;
+
+import javax.servlet.http.HttpServletRequest;
+import javax.servlet.http.HttpServletResponse;
+import java.util.concurrent.TimeUnit;
+
+//요청마다 SqlProfile 을 시작하고 끝날 때 결과를 기록
+// - 응답 헤더 : X-Sql-Count, X-Sql-Time-Ms, X-Sql-Rows, X-Sql-Lazy-Loads (응답이 커밋되기 전까지의 값)
+// - Micrometer : sql.request.queries / time / rows / lazy.loads (handler 태그 = 컨트롤러.메소드)
+// - 쿼리 수가 jpashop.sql-profile.query-budget 을 넘으면 경고 로그
+@Slf4j
+@Component
+public class SqlProfileInterceptor implements AsyncHandlerInterceptor {
+
+    private static final String PROFILE_ATTRIBUTE = SqlProfile.class.getName();
+
+    private final MeterRegistry meterRegistry;
+    private final int queryBudget;
+
+    public SqlProfileInterceptor(MeterRegistry meterRegistry,
+                                 @Value("${jpashop.sql-profile.query-budget:50}") int queryBudget) {
+        this.meterRegistry = meterRegistry;
+        this.queryBudget = queryBudget;
+    }
+
+    @Override
+    public boolean preHandle(HttpServletRequest request, HttpServletResponse response, Object handler) {
+        //비동기 처리 후 다시 dispatch 된 경우 처음 시작한 통계를 이어서 사용
+        Object started = request.getAttribute(PROFILE_ATTRIBUTE);
+        if (started instanceof SqlProfile) {
+            request.removeAttribute(PROFILE_ATTRIBUTE);
+            SqlProfile.bind((SqlProfile) started);
+            return true;
+        }
+        if (handler instanceof HandlerMethod) {
+            HandlerMethod method = (HandlerMethod) handler;
+            SqlProfile.start(method.getBeanType().getSimpleName() + "." + method.getMethod().getName());
+        }
+        return true;
+    }
+
+    //CompletableFuture 를 반환하면 postHandle / afterCompletion 대신 호출됨
+    // - 요청 스레드에서는 통계를 떼어내고 async dispatch 때 다시 이어 붙임
+    @Override
+    public void afterConcurrentHandlingStarted(HttpServletRequest request, HttpServletResponse response, Object handler) {
+        SqlProfile profile = SqlProfile.current();
+        if (profile != null) {
+            request.setAttribute(PROFILE_ATTRIBUTE, profile);
+            SqlProfile.end();
+        }
+    }
+
+    //뷰 렌더링 전에 헤더를 기록 (@ResponseBody 는 SqlProfileResponseAdvice 에서 기록)
+    @Override
+    public void postHandle(HttpServletRequest request, HttpServletResponse response, Object handler, ModelAndView modelAndView) {
+        writeHeaders(response, SqlProfile.current());
+    }
+
+    @Override
+    public void afterCompletion(HttpServletRequest request, HttpServletResponse response, Object handler, Exception ex) {
+        SqlProfile profile = SqlProfile.current();
+        if (profile == null) {
+            return;
+        }
+        try {
+            record(profile);
+        } finally {
+            SqlProfile.end();
+        }
+    }
+
+    static void writeHeaders(HttpServletResponse response, SqlProfile profile) {
+        if (profile == null || response.isCommitted()) {
+            return;
+        }
+        response.setHeader("X-Sql-Count", String.valueOf(profile.getQueries()));
+        response.setHeader("X-Sql-Time-Ms", String.valueOf(profile.getDbTimeMillis()));
+        response.setHeader("X-Sql-Rows", String.valueOf(profile.getRows()));
+        response.setHeader("X-Sql-Lazy-Loads", String.valueOf(profile.getLazyLoads()));
+    }
+
+    private void record(SqlProfile profile) {
+        String handler = profile.getHandler();
+        DistributionSummary.builder("sql.request.queries").tag("handler", handler).register(meterRegistry).record(profile.getQueries());
+        Timer.builder("sql.request.time").tag("handler", handler).register(meterRegistry).record(profile.getDbTimeNanos(), TimeUnit.NANOSECONDS);
+        DistributionSummary.builder("sql.request.rows").tag("handler", handler).register(meterRegistry).record(profile.getRows());
+        DistributionSummary.builder("sql.request.lazy.loads").tag("handler", handler).register(meterRegistry).record(profile.getLazyLoads());
+
+        if (profile.getQueries() > queryBudget) {
+            log.warn("query budget exceeded. handler={}, queries={}, budget={}, lazyLoads={}, dbTime={}ms",
+                    handler, profile.getQueries(), queryBudget, profile.getLazyLoads(), profile.getDbTimeMillis());
+        }
+    }
+}
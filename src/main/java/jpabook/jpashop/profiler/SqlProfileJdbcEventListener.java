@@ -0,0 +1,31 @@
+package jpabook.jpashop.profiler;
+
+import com.p6spy.engine.common.ResultSetInformation;
+import com.p6spy.engine.common.StatementInformation;
+import com.p6spy.engine.event.SimpleJdbcEventListener;
+import org.springframework.stereotype.Component;
+
+import java.sql.SQLException;
+
+//p6spy 이벤트로 SQL 실행 수, 실행 시간, 조회 row 수를 현재 요청의 SqlProfile 에 누적
+// - p6spy-spring-boot-starter 가 JdbcEventListener 빈을 자동으로 등록
+// - SimpleJdbcEventListener 는 execute/executeQuery/executeUpdate/executeBatch 를 onAfterAnyExecute 로 모아줌
+@Component
+public class SqlProfileJdbcEventListener extends SimpleJdbcEventListener {
+
+    @Override
+    public void onAfterAnyExecute(StatementInformation statementInformation, long timeElapsedNanos, SQLException e) {
+        SqlProfile profile = SqlProfile.current();
+        if (profile != null) {
+            profile.addQuery(timeElapsedNanos);
+        }
+    }
+
+    @Override
+    public void onAfterResultSetNext(ResultSetInformation resultSetInformation, long timeElapsedNanos, boolean hasNext, SQLException e) {
+        SqlProfile profile = SqlProfile.current();
+        if (profile != null && hasNext) {
+            profile.addRow();
+        }
+    }
+}
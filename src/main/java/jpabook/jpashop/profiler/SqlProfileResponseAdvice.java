@@ -0,0 +1,29 @@
+package jpabook.jpashop.profiler;
+
+import org.springframework.core.MethodParameter;
+import org.springframework.http.MediaType;
+import org.springframework.http.converter.HttpMessageConverter;
+import org.springframework.http.server.ServerHttpRequest;
+import org.springframework.http.server.ServerHttpResponse;
+import org.springframework.http.server.ServletServerHttpResponse;
+import org.springframework.web.bind.annotation.ControllerAdvice;
+import org.springframework.web.servlet.mvc.method.annotation.ResponseBodyAdvice;
+
+//@ResponseBody 응답은 body 를 쓰기 직전에 SQL 통계 헤더를 기록
+@ControllerAdvice
+public class SqlProfileResponseAdvice implements ResponseBodyAdvice<Object> {
+
+    @Override
+    public boolean supports(MethodParameter returnType, Class<? extends HttpMessageConverter<?>> converterType) {
+        return true;
+    }
+
+    @Override
+    public Object beforeBodyWrite(Object body, MethodParameter returnType, MediaType selectedContentType,
+                                  Class<? extends HttpMessageConverter<?>> selectedConverterType, ServerHttpRequest request, ServerHttpResponse response) {
+        if (response instanceof ServletServerHttpResponse) {
+            SqlProfileInterceptor.writeHeaders(((ServletServerHttpResponse) response).getServletResponse(), SqlProfile.current());
+        }
+        return body;
+    }
+}
@@ -0,0 +1,126 @@
+package jpabook.jpashop.repository;
+
+import jpabook.jpashop.domain.Category;
+import jpabook.jpashop.domain.CategoryClosure;
+import lombok.RequiredArgsConstructor;
+import org.hibernate.query.NativeQuery;
+import org.springframework.stereotype.Repository;
+
+import javax.persistence.EntityManager;
+import javax.persistence.LockModeType;
+import javax.persistence.Query;
+import javax.persistence.TypedQuery;
+import java.util.List;
+
+@Repository
+@RequiredArgsConstructor
+public class CategoryRepository {
+
+    private final EntityManager em;
+
+    public void save(Category category) {
+        em.persist(category);
+    }
+
+    public Category findOne(Long id) {
+        return em.find(Category.class, id);
+    }
+
+    //카테고리 row 를 잠그고 조회 (같은 카테고리의 상품 추가를 순서대로 처리)
+    public Category findOneForUpdate(Long id) {
+        return em.find(Category.class, id, LockModeType.PESSIMISTIC_WRITE);
+    }
+
+    //카테고리에 이미 연결된 상품인지 (category_item (category_id, item_id) 인덱스로 확인)
+    public boolean hasItem(Long categoryId, Long itemId) {
+        return !em.createQuery("select i.id from Category c join c.items i where c.id = :categoryId and i.id = :itemId", Long.class)
+                .setParameter("categoryId", categoryId)
+                .setParameter("itemId", itemId)
+                .setMaxResults(1)
+                .getResultList()
+                .isEmpty();
+    }
+
+    //새 카테고리의 경로 추가 : 부모의 모든 조상 + 자기 자신
+    public void insertPaths(Long categoryId, Long parentId) {
+        em.flush(); //category row 가 먼저 insert 되어야 함
+        closureUpdate("insert into category_closure (ancestor_id, descendant_id, depth) values (?, ?, 0)")
+                .setParameter(1, categoryId)
+                .setParameter(2, categoryId)
+                .executeUpdate();
+        if (parentId != null) {
+            attach(categoryId, parentId);
+        }
+    }
+
+    //카테고리 이동 : 서브트리와 기존 조상 사이의 경로를 지우고 새 부모의 조상들과 다시 연결
+    // - MySQL 은 delete 대상 테이블을 서브쿼리에서 읽을 수 없으므로 서브트리 id 를 먼저 조회
+    public void movePaths(Long categoryId, Long newParentId) {
+        em.flush();
+        List<Long> subtree = findDescendantIds(categoryId);
+        closureUpdate("delete from category_closure where descendant_id in (:subtree) and ancestor_id not in (:subtree)")
+                .setParameter("subtree", subtree)
+                .executeUpdate();
+        if (newParentId != null) {
+            attach(categoryId, newParentId);
+        }
+    }
+
+    //자기 자신을 포함한 하위 카테고리 id
+    public List<Long> findDescendantIds(Long categoryId) {
+        return em.createQuery("select cc.descendantId from CategoryClosure cc where cc.ancestorId = :categoryId", Long.class)
+                .setParameter("categoryId", categoryId)
+                .getResultList();
+    }
+
+    //카테고리 존재 여부 (closure 의 자기 자신 경로를 PK 로 조회)
+    // - 트리 스냅샷은 다른 서버에서 만든 카테고리나 커밋 직후 갱신 전에는 없을 수 있으므로 DB 에서 확인
+    public boolean exists(Long categoryId) {
+        return !em.createQuery("select cc.depth from CategoryClosure cc where cc.ancestorId = :categoryId and cc.descendantId = :categoryId", Integer.class)
+                .setParameter("categoryId", categoryId)
+                .getResultList()
+                .isEmpty();
+    }
+
+    //하위 카테고리를 포함한 카테고리의 상품 (Keyset 페이징, item_id 순)
+    // - closure (ancestor_id, descendant_id) PK -> category_item (category_id, item_id) 인덱스 -> item PK 순으로 조인
+    // - 여러 하위 카테고리에 속한 상품도 한번만 나오도록 in 서브쿼리로 조회
+    public List<CategoryItemDto> findItems(Long categoryId, Long afterItemId, int limit) {
+        String jpql = "select new jpabook.jpashop.repository.CategoryItemDto(i.id, i.name, i.price, i.stockQuantity)" +
+                " from Item i" +
+                " where i.id in (" +
+                "   select ci.id from CategoryClosure cc, Category c join c.items ci" +
+                "   where c.id = cc.descendantId and cc.ancestorId = :categoryId)";
+        if (afterItemId != null) {
+            jpql += " and i.id > :afterItemId";
+        }
+        jpql += " order by i.id";
+
+        TypedQuery<CategoryItemDto> query = em.createQuery(jpql, CategoryItemDto.class)
+                .setParameter("categoryId", categoryId)
+                .setMaxResults(limit);
+        if (afterItemId != null) {
+            query.setParameter("afterItemId", afterItemId);
+        }
+        return query.getResultList();
+    }
+
+    //서브트리(categoryId 의 모든 자손) 를 parentId 의 모든 조상 아래에 연결
+    private void attach(Long categoryId, Long parentId) {
+        closureUpdate(
+                "insert into category_closure (ancestor_id, descendant_id, depth)" +
+                        " select p.ancestor_id, s.descendant_id, p.depth + s.depth + 1" +
+                        " from category_closure p, category_closure s" +
+                        " where p.descendant_id = ? and s.ancestor_id = ?")
+                .setParameter(1, parentId)
+                .setParameter(2, categoryId)
+                .executeUpdate();
+    }
+
+    //native update 는 기본적으로 2차 캐시 전체를 무효화하므로 category_closure 만 변경한다고 알려줌
+    private Query closureUpdate(String sql) {
+        return em.createNativeQuery(sql)
+                .unwrap(NativeQuery.class)
+                .addSynchronizedEntityClass(CategoryClosure.class);
+    }
+}
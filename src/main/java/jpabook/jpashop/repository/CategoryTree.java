@@ -0,0 +1,145 @@
+package jpabook.jpashop.repository;
+
+import lombok.Getter;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import javax.persistence.EntityManager;
+import javax.persistence.EntityManagerFactory;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicLong;
+
+//카테고리 트리 메모리 스냅샷
+// - Category 의 parent/child 를 지연로딩으로 따라가면 단계마다 쿼리가 나가므로 전체를 한번에 읽어 트리로 만듦
+// - 스냅샷은 변경하지 않는 객체(Node) 로만 구성되고 통째로 교체되므로 읽을 때 락이 필요 없음
+// - CategoryService 에서 카테고리가 변경되면 커밋 후 다시 만들고, 다른 서버의 변경은 주기적으로 반영
+// - 재구성은 한번에 하나씩 (synchronized), 요청마다 세대(generation) 를 붙여서
+//   요청 이후에 시작한 재구성이 이미 있으면 건너뜀 (커밋이 몰려도 조회 한번으로 합쳐지고, 먼저 읽은 결과가 나중 결과를 덮어쓰지 않음)
+@Slf4j
+@Component
+public class CategoryTree {
+
+    private final EntityManagerFactory emf;
+
+    private volatile Snapshot snapshot = Snapshot.of(Collections.emptyList());
+
+    private final AtomicLong requested = new AtomicLong(); //마지막으로 요청된 재구성 세대
+    private long built; //현재 스냅샷이 반영한 세대 (이 세대까지 요청된 변경은 스냅샷에 포함, synchronized 안에서만 사용)
+
+    public CategoryTree(EntityManagerFactory emf) {
+        this.emf = emf;
+    }
+
+    public Snapshot snapshot() {
+        return snapshot;
+    }
+
+    //카테고리 변경 (트랜젝션이 커밋된 후 다시 만듦)
+    public void refresh() {
+        if (TransactionSynchronizationManager.isSynchronizationActive()) {
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+                @Override
+                public void afterCommit() {
+                    rebuild(requested.incrementAndGet());
+                }
+            });
+        } else {
+            rebuild(requested.incrementAndGet());
+        }
+    }
+
+    @EventListener(ApplicationReadyEvent.class)
+    @Scheduled(fixedDelayString = "${jpashop.category-tree.refresh-interval-ms:600000}", initialDelayString = "${jpashop.category-tree.refresh-interval-ms:600000}")
+    public void rebuild() {
+        rebuild(requested.incrementAndGet());
+    }
+
+    private synchronized void rebuild(long generation) {
+        if (built >= generation) {
+            return; //이 요청 이후에 시작한 재구성이 이미 변경을 읽음
+        }
+        long reading = requested.get(); //읽기 전에 요청된 세대는 모두 커밋된 상태이므로 이번 조회에 포함됨
+        EntityManager em = emf.createEntityManager();
+        List<Object[]> rows;
+        try {
+            //parent 는 FK 값만 읽으므로 조인 없음
+            rows = em.createQuery("select c.id, c.name, c.parent.id from Category c", Object[].class).getResultList();
+        } finally {
+            em.close();
+        }
+        snapshot = Snapshot.of(rows);
+        built = reading;
+        log.info("category tree rebuilt. categories={}", snapshot.size());
+    }
+
+    public static class Snapshot {
+
+        private final Map<Long, Node> nodes;
+        private final List<Node> roots;
+
+        private Snapshot(Map<Long, Node> nodes, List<Node> roots) {
+            this.nodes = nodes;
+            this.roots = roots;
+        }
+
+        //(id, name, parent_id) 목록으로 생성
+        static Snapshot of(List<Object[]> rows) {
+            Map<Long, List<Object[]>> byParent = new HashMap<>();
+            for (Object[] row : rows) {
+                byParent.computeIfAbsent((Long) row[2], k -> new ArrayList<>()).add(row);
+            }
+            Map<Long, Node> nodes = new HashMap<>();
+            List<Node> roots = build(null, byParent, nodes);
+            return new Snapshot(Collections.unmodifiableMap(nodes), roots);
+        }
+
+        //부모가 없는(또는 부모가 사라진) 카테고리는 만들어지지 않음
+        private static List<Node> build(Long parentId, Map<Long, List<Object[]>> byParent, Map<Long, Node> nodes) {
+            List<Node> children = new ArrayList<>();
+            for (Object[] row : byParent.getOrDefault(parentId, Collections.emptyList())) {
+                Long id = (Long) row[0];
+                Node node = new Node(id, (String) row[1], parentId, build(id, byParent, nodes));
+                nodes.put(id, node);
+                children.add(node);
+            }
+            children.sort((a, b) -> a.getId().compareTo(b.getId()));
+            return Collections.unmodifiableList(children);
+        }
+
+        public Node find(Long id) {
+            return nodes.get(id);
+        }
+
+        public List<Node> getRoots() {
+            return roots;
+        }
+
+        public int size() {
+            return nodes.size();
+        }
+    }
+
+    @Getter
+    public static class Node {
+        private final Long id;
+        private final String name;
+        private final Long parentId;
+        private final List<Node> children;
+
+        Node(Long id, String name, Long parentId, List<Node> children) {
+            this.id = id;
+            this.name = name;
+            this.parentId = parentId;
+            this.children = children;
+        }
+    }
+}
@@ -2,10 +2,17 @@ package jpabook.jpashop.repository;
 
 import jpabook.jpashop.domain.item.Item;
 import lombok.RequiredArgsConstructor;
+import org.hibernate.annotations.QueryHints;
+import org.springframework.jdbc.core.JdbcTemplate;
 import org.springframework.stereotype.Repository;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
 
 import javax.persistence.EntityManager;
+import java.util.ArrayList;
+import java.util.Collection;
 import java.util.List;
+import java.util.Map;
 
 @Repository
 @RequiredArgsConstructor
@@ -13,6 +20,8 @@ public class ItemRepository {
 
     private final EntityManager em;
 
+    private final JdbcTemplate jdbcTemplate;
+
     public void save(Item item) {
         if(item.getId() == null) {
             em.persist(item);
@@ -25,8 +34,44 @@ public class ItemRepository {
         return em.find(Item.class, id);
     }
 
+    public List<Item> findAllById(Collection<Long> ids) {
+        return em.createQuery("select i from Item i where i.id in :ids", Item.class)
+                .setParameter("ids", ids)
+                .getResultList();
+    }
+
+    //쿼리 캐시 : 결과 id 목록을 캐시하고 엔티티는 2차 캐시에서 꺼냄
+    // - item 테이블이 변경되면 Hibernate 가 자동으로 무효화
     public List<Item> findAll() {
         return em.createQuery("select i from Item i", Item.class)
+                .setHint(QueryHints.CACHEABLE, true)
                 .getResultList();
     }
+
+    //상품별 재고 증가 (상품 하나당 update 한번, JDBC batch 로 전송)
+    // - version 도 올려서 같은 상품을 엔티티로 수정중인 트랜젝션은 낙관적 락 충돌로 다시 시도하게 함
+    // - JDBC 로 직접 수정했으므로 커밋 후 2차 캐시의 Item 을 비워줌
+    public void addStocks(Map<Long, Integer> quantities) {
+        if (quantities.isEmpty()) {
+            return;
+        }
+        List<Object[]> batchArgs = new ArrayList<>(quantities.size());
+        quantities.forEach((itemId, quantity) -> batchArgs.add(new Object[]{quantity, itemId}));
+        jdbcTemplate.batchUpdate("update item set stock_quantity = stock_quantity + ?, version = version + 1 where item_id = ?", batchArgs);
+
+        if (TransactionSynchronizationManager.isSynchronizationActive()) {
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+                @Override
+                public void afterCommit() {
+                    evict(quantities.keySet());
+                }
+            });
+        } else {
+            evict(quantities.keySet());
+        }
+    }
+
+    private void evict(Collection<Long> itemIds) {
+        itemIds.forEach(itemId -> em.getEntityManagerFactory().getCache().evict(Item.class, itemId));
+    }
 }
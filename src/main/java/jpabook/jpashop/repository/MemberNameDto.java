@@ -0,0 +1,12 @@
+package jpabook.jpashop.repository;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+
+//회원 목록 API 용 (id, name 만 조회)
+@Data
+@AllArgsConstructor
+public class MemberNameDto {
+    private Long id;
+    private String name;
+}
@@ -0,0 +1,331 @@
+package jpabook.jpashop.repository;
+
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import javax.persistence.EntityManager;
+import javax.persistence.EntityManagerFactory;
+import java.util.*;
+import java.util.concurrent.locks.ReadWriteLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+
+//회원 이름 검색용 메모리 인덱스
+// - like '%name%' 은 member 테이블 전체를 읽어야 하므로 이름 -> 회원 id 를 메모리에서 찾음
+// - EXACT / PREFIX : 이름 정렬 TreeMap (subMap 으로 범위 탐색)
+// - CONTAINS : 1~3 글자 n-gram -> 회원 id (검색어의 n-gram 들의 교집합을 구한 후 실제 포함 여부 확인)
+// - MemberService.join / update 커밋 후 갱신, 다른 서버에서 변경된 내용은 주기적으로 전체 재구성
+// - 인덱스에 반영된 회원 테이블 버전(MemberVersion) 을 추적해서 DB 버전과 같을 때만 완전한 인덱스로 사용 (isComplete)
+//   다른 서버에서 가입/변경한 회원이 있으면 버전이 달라지므로 재구성 전까지는 DB 검색
+//   (MemberVersion 을 증가시키지 않는 직접 SQL 변경은 알 수 없으므로 재구성 전까지 빠질 수 있음)
+// - MySQL 기본 collation 처럼 대소문자를 구분하지 않음 (소문자로 저장/검색)
+// - 메모리 : 회원마다 이름 + 이름 길이 L 에 대해 최대 3L-3 개의 n-gram posting (HashSet 항목 하나에 약 40 byte)
+//   한글 3글자 이름은 회원당 약 0.4KB, 영문 10글자 이름은 약 1.2KB -> 회원 10만명이면 40~120MB
+//   회원 수가 max-members 를 넘으면 인덱스를 비우고 사용하지 않음 (isComplete = false 이므로 항상 DB 검색)
+@Slf4j
+@Component
+public class MemberNameIndex {
+
+    private static final int GRAM = 3;
+
+    private final EntityManagerFactory emf;
+    private final MemberVersion memberVersion;
+    private final int maxMembers;
+    private final ReadWriteLock lock = new ReentrantReadWriteLock();
+
+    //인덱스에 반영된 회원 테이블 버전 (-1 : 아직 재구성 전)
+    private long version = -1;
+    //회원 수가 maxMembers 를 넘어서 인덱스를 사용하지 않음 (다음 재구성에서 다시 확인)
+    private boolean disabled;
+    //순서가 바뀌어 커밋된 버전 (version 다음 버전이 들어오면 이어서 반영)
+    private final Set<Long> committed = new HashSet<>();
+
+    private Map<Long, String> names = new HashMap<>();
+    private NavigableMap<String, Set<Long>> sorted = new TreeMap<>();
+    private Map<String, Set<Long>> grams = new HashMap<>();
+
+    //재구성 중에 들어온 변경 (DB 조회 이후 커밋된 변경이 재구성 결과에 덮어써지지 않도록 교체 전에 다시 반영)
+    private Map<Long, String> rebuildPending;
+
+    public MemberNameIndex(EntityManagerFactory emf, MemberVersion memberVersion,
+                           @Value("${jpashop.member-name-index.max-members:100000}") int maxMembers) {
+        this.emf = emf;
+        this.memberVersion = memberVersion;
+        this.maxMembers = maxMembers;
+        if (memberVersion != null) {
+            memberVersion.addListener(this::advance);
+        }
+    }
+
+    //인덱스가 모든 회원을 반영하고 있는지 (회원 테이블 버전 PK 조회 한번)
+    // - false 면 find 결과에 빠진 회원이 있을 수 있으므로 DB 에서 검색해야 함
+    public boolean isComplete() {
+        long indexed;
+        lock.readLock().lock();
+        try {
+            indexed = version;
+        } finally {
+            lock.readLock().unlock();
+        }
+        return indexed >= 0 && memberVersion != null && indexed == memberVersion.value();
+    }
+
+    //name 과 match 방식으로 회원 id 를 찾음
+    public Set<Long> find(String name, NameMatch match) {
+        name = normalize(name);
+        lock.readLock().lock();
+        try {
+            switch (match) {
+                case EXACT:
+                    return copy(sorted.get(name));
+                case PREFIX:
+                    return union(sorted.subMap(name, true, name + Character.MAX_VALUE, false).values());
+                default:
+                    return contains(name);
+            }
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    //같은 이름의 회원이 있는지 (이 서버에서 커밋된 회원 + 마지막 재구성 시점의 회원 기준)
+    public boolean hasName(String name) {
+        lock.readLock().lock();
+        try {
+            return sorted.containsKey(normalize(name));
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    //회원 가입 / 이름 변경 (트랜젝션이 커밋된 후 반영)
+    public void put(Long memberId, String name) {
+        afterCommit(() -> {
+            lock.writeLock().lock();
+            try {
+                apply(memberId, name);
+            } finally {
+                lock.writeLock().unlock();
+            }
+        });
+    }
+
+    //일괄 등록 (MemberImportService, 트랜젝션이 커밋된 후 반영)
+    public void putAll(Map<Long, String> members) {
+        afterCommit(() -> {
+            lock.writeLock().lock();
+            try {
+                members.forEach(this::apply);
+            } finally {
+                lock.writeLock().unlock();
+            }
+        });
+    }
+
+    @EventListener(ApplicationReadyEvent.class)
+    @Scheduled(fixedDelayString = "${jpashop.member-name-index.rebuild-interval-ms:600000}", initialDelayString = "${jpashop.member-name-index.rebuild-interval-ms:600000}")
+    public synchronized void rebuild() {
+        lock.writeLock().lock();
+        try {
+            rebuildPending = new LinkedHashMap<>();
+        } finally {
+            lock.writeLock().unlock();
+        }
+
+        //회원을 읽기 전의 버전 (읽는 중에 다른 서버에서 변경되면 DB 버전이 더 커서 완전하지 않은 것으로 판단)
+        long rebuiltVersion;
+        List<Object[]> rows;
+        EntityManager em = emf.createEntityManager();
+        try {
+            rebuiltVersion = memberVersion == null ? -1 : memberVersion.value();
+            long count = em.createQuery("select count(m) from Member m", Long.class).getSingleResult();
+            if (count > maxMembers) {
+                disable(count);
+                return;
+            }
+            rows = em.createQuery("select m.id, m.name from Member m", Object[].class).getResultList();
+        } catch (RuntimeException e) {
+            lock.writeLock().lock();
+            try {
+                rebuildPending = null;
+            } finally {
+                lock.writeLock().unlock();
+            }
+            throw e;
+        } finally {
+            em.close();
+        }
+
+        lock.writeLock().lock();
+        try {
+            Map<Long, String> pending = rebuildPending;
+            rebuildPending = null;
+            disabled = false;
+            names = new HashMap<>();
+            sorted = new TreeMap<>();
+            grams = new HashMap<>();
+            rows.forEach(row -> add((Long) row[0], (String) row[1]));
+            pending.forEach(this::apply);
+            version = rebuiltVersion;
+            committed.removeIf(v -> v <= rebuiltVersion);
+            drainCommitted();
+        } finally {
+            lock.writeLock().unlock();
+        }
+        log.info("member name index rebuilt. members={}", rows.size());
+    }
+
+    //인덱스를 비우고 재구성 전까지 변경도 반영하지 않음
+    private void disable(long count) {
+        lock.writeLock().lock();
+        try {
+            disabled = true;
+            rebuildPending = null;
+            names = new HashMap<>();
+            sorted = new TreeMap<>();
+            grams = new HashMap<>();
+            version = -1;
+            committed.clear();
+        } finally {
+            lock.writeLock().unlock();
+        }
+        log.warn("member name index disabled. members={}, max-members={}", count, maxMembers);
+    }
+
+    //이 서버에서 회원 변경이 커밋된 버전 (인덱스 갱신이 먼저 등록되므로 이미 반영된 상태)
+    private void advance(long committedVersion) {
+        lock.writeLock().lock();
+        try {
+            if (!disabled && committedVersion > version) {
+                committed.add(committedVersion);
+                drainCommitted();
+            }
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    //write lock 안에서 호출
+    private void drainCommitted() {
+        if (version < 0) {
+            return;
+        }
+        while (committed.remove(version + 1)) {
+            version++;
+        }
+    }
+
+    private Set<Long> contains(String term) {
+        List<Set<Long>> postings = new ArrayList<>();
+        for (String gram : grams(term)) {
+            Set<Long> ids = grams.get(gram);
+            if (ids == null) {
+                return new HashSet<>();
+            }
+            postings.add(ids);
+        }
+        postings.sort(Comparator.comparingInt(Set::size)); //작은 집합부터 교집합
+
+        Set<Long> result = new HashSet<>();
+        for (Long id : postings.get(0)) {
+            if (names.get(id).contains(term)) {
+                result.add(id);
+            }
+        }
+        return result;
+    }
+
+    //write lock 안에서 호출
+    private void apply(Long memberId, String name) {
+        if (disabled) {
+            return;
+        }
+        remove(memberId);
+        add(memberId, name);
+        if (rebuildPending != null) {
+            rebuildPending.put(memberId, name);
+        }
+    }
+
+    private void add(Long memberId, String name) {
+        if (name == null) {
+            return;
+        }
+        name = normalize(name);
+        names.put(memberId, name);
+        sorted.computeIfAbsent(name, k -> new HashSet<>()).add(memberId);
+        for (int n = 1; n <= GRAM; n++) {
+            for (int i = 0; i + n <= name.length(); i++) {
+                grams.computeIfAbsent(name.substring(i, i + n), k -> new HashSet<>()).add(memberId);
+            }
+        }
+    }
+
+    private void remove(Long memberId) {
+        String name = names.remove(memberId);
+        if (name == null) {
+            return;
+        }
+        removeFrom(sorted, name, memberId);
+        for (int n = 1; n <= GRAM; n++) {
+            for (int i = 0; i + n <= name.length(); i++) {
+                removeFrom(grams, name.substring(i, i + n), memberId);
+            }
+        }
+    }
+
+    //검색어가 GRAM 보다 짧으면 검색어 자체가 n-gram
+    private static Set<String> grams(String term) {
+        Set<String> result = new HashSet<>();
+        if (term.length() <= GRAM) {
+            result.add(term);
+            return result;
+        }
+        for (int i = 0; i + GRAM <= term.length(); i++) {
+            result.add(term.substring(i, i + GRAM));
+        }
+        return result;
+    }
+
+    private static void removeFrom(Map<String, Set<Long>> map, String key, Long memberId) {
+        Set<Long> ids = map.get(key);
+        if (ids != null) {
+            ids.remove(memberId);
+            if (ids.isEmpty()) {
+                map.remove(key);
+            }
+        }
+    }
+
+    private static String normalize(String name) {
+        return name.toLowerCase(Locale.ROOT);
+    }
+
+    private static Set<Long> copy(Set<Long> ids) {
+        return ids == null ? new HashSet<>() : new HashSet<>(ids);
+    }
+
+    private static Set<Long> union(Collection<Set<Long>> sets) {
+        Set<Long> result = new HashSet<>();
+        sets.forEach(result::addAll);
+        return result;
+    }
+
+    private static void afterCommit(Runnable action) {
+        if (TransactionSynchronizationManager.isSynchronizationActive()) {
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+                @Override
+                public void afterCommit() {
+                    action.run();
+                }
+            });
+        } else {
+            action.run();
+        }
+    }
+}
@@ -1,13 +1,29 @@
 package jpabook.jpashop.repository;
 
 import jpabook.jpashop.domain.Member;
+import org.springframework.data.domain.Pageable;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
 
+import java.util.Collection;
 import java.util.List;
 
 @Repository
 public interface MemberRepository extends JpaRepository<Member, Long> {
 
     List<Member> findByName(String name);
+
+    //uk_member_name 인덱스만 확인 (회원 엔티티를 만들지 않음)
+    boolean existsByName(String name);
+
+    //names 중 이미 가입된 이름 (일괄 등록 청크 중복 검사)
+    @Query("select m.name from Member m where m.name in :names")
+    List<String> findExistingNames(@Param("names") Collection<String> names);
+
+    //Keyset 페이징 : afterId 다음 회원부터 (id, name) 만 조회 (엔티티/연관관계를 로딩하지 않음)
+    // - List 반환이므로 count 쿼리는 실행되지 않음
+    @Query("select new jpabook.jpashop.repository.MemberNameDto(m.id, m.name) from Member m where m.id > :afterId order by m.id")
+    List<MemberNameDto> findNames(@Param("afterId") Long afterId, Pageable pageable);
 }
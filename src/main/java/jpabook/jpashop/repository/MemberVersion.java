@@ -0,0 +1,71 @@
+package jpabook.jpashop.repository;
+
+import lombok.RequiredArgsConstructor;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.function.LongConsumer;
+
+//회원 테이블 버전 (회원 목록 API 의 ETag)
+// - 회원이 추가/변경될 때마다 같은 트랜젝션에서 1 증가, 회원 row 를 읽지 않고도 변경 여부를 알 수 있음
+// - member_version 테이블의 row 하나에 저장하므로 모든 서버가 같은 값을 봄 (PK 조회 한번)
+// - 증가는 커밋 직전(beforeCommit) 에 실행해서 모든 회원 변경이 같은 row lock 을 잡는 시간을 커밋 구간으로 줄임
+@Component
+@RequiredArgsConstructor
+public class MemberVersion {
+
+    private static final long ID = 1L;
+
+    private final JdbcTemplate jdbcTemplate;
+
+    //커밋된 버전을 받을 listener (MemberNameIndex 가 자신에게 반영된 버전을 추적)
+    private final List<LongConsumer> listeners = new CopyOnWriteArrayList<>();
+
+    public String current() {
+        return String.valueOf(value());
+    }
+
+    public long value() {
+        List<Long> versions = jdbcTemplate.queryForList("select version from member_version where member_version_id = ?", Long.class, ID);
+        return versions.isEmpty() ? 0L : versions.get(0);
+    }
+
+    public void addListener(LongConsumer listener) {
+        listeners.add(listener);
+    }
+
+    //회원 추가/변경 (트랜젝션 안이면 커밋 직전에 같은 트랜젝션으로 증가하고, 커밋된 후 증가한 버전을 알려줌)
+    public void increment() {
+        if (TransactionSynchronizationManager.isSynchronizationActive()) {
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+                private long version;
+
+                @Override
+                public void beforeCommit(boolean readOnly) {
+                    version = bump();
+                }
+
+                @Override
+                public void afterCommit() {
+                    listeners.forEach(listener -> listener.accept(version));
+                }
+            });
+        } else {
+            long version = bump();
+            listeners.forEach(listener -> listener.accept(version));
+        }
+    }
+
+    //증가한 버전 (row lock 을 잡은 상태에서 읽으므로 이 트랜젝션이 만든 값)
+    // - row 가 없으면 (ddl-auto 로 만든 스키마) 처음 증가할 때 만듦
+    private long bump() {
+        if (jdbcTemplate.update("update member_version set version = version + 1 where member_version_id = ?", ID) == 0) {
+            jdbcTemplate.update("insert into member_version (member_version_id, version) values (?, 1)", ID);
+        }
+        return value();
+    }
+}
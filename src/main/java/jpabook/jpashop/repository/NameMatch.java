@@ -0,0 +1,6 @@
+package jpabook.jpashop.repository;
+
+//회원 이름 검색 방식
+public enum NameMatch {
+    EXACT, PREFIX, CONTAINS
+}
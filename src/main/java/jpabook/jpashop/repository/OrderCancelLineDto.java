@@ -0,0 +1,16 @@
+package jpabook.jpashop.repository;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+
+import java.time.LocalDateTime;
+
+//일괄 취소할 주문상품 (재고 복구, 매출 집계 변경분 계산용)
+@Data
+@AllArgsConstructor
+public class OrderCancelLineDto {
+    private Long itemId;
+    private LocalDateTime orderDate;
+    private int count;
+    private int orderPrice;
+}
@@ -0,0 +1,107 @@
+package jpabook.jpashop.repository;
+
+import lombok.Getter;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.dao.DataAccessException;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.core.ResultSetExtractor;
+import org.springframework.stereotype.Component;
+import org.springframework.util.StringUtils;
+
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+//주문 검색 전체 건수 (페이징 화면용)
+// - 주문이 수백만건이면 요청마다 count(*) 를 하는 것만으로 목록 조회보다 느려지므로 결과를 ttl 동안 캐시
+// - 회원 이름 조건이 없는 검색(전체 / 주문상태만) 은 MySQL EXPLAIN 의 rows 추정값을 사용 (인덱스 통계만 읽음)
+//   추정값이 exact-below 보다 작으면 count 쿼리도 싸므로 정확한 값을 조회
+// - 회원 이름 조건은 대상 회원이 적으므로 count 쿼리로 정확한 값을 조회
+// - 캐시에서 꺼낸 값은 그 사이 주문이 생겼을 수 있으므로 추정값으로 취급
+@Slf4j
+@Component
+public class OrderCountEstimator {
+
+    private static final int MAX_ENTRIES = 10000; //캐시할 최대 검색 조건 수
+
+    private final OrderRepository orderRepository;
+    private final JdbcTemplate jdbcTemplate;
+    private final long ttlMillis;
+    private final boolean explain;
+    private final long exactBelow;
+
+    private final Map<String, Entry> entries = new ConcurrentHashMap<>();
+
+    public OrderCountEstimator(OrderRepository orderRepository,
+                               JdbcTemplate jdbcTemplate,
+                               @Value("${jpashop.order-search.count.ttl-ms:60000}") long ttlMillis,
+                               @Value("${jpashop.order-search.count.explain:false}") boolean explain,
+                               @Value("${jpashop.order-search.count.exact-below:100000}") long exactBelow) {
+        this.orderRepository = orderRepository;
+        this.jdbcTemplate = jdbcTemplate;
+        this.ttlMillis = ttlMillis;
+        this.explain = explain;
+        this.exactBelow = exactBelow;
+    }
+
+    public Count count(OrderSearch orderSearch) {
+        String key = orderSearch.getOrderStatus() + ":" + orderSearch.getNameMatch() + ":" + orderSearch.getMemberName();
+        long now = System.currentTimeMillis();
+        Entry entry = entries.get(key);
+        if (entry != null && entry.expiresAt > now) {
+            return new Count(entry.value, false);
+        }
+
+        Count count = null;
+        if (explain && !StringUtils.hasText(orderSearch.getMemberName())) {
+            count = explain(orderSearch);
+        }
+        if (count == null || count.getValue() < exactBelow) {
+            count = new Count(orderRepository.countOrders(orderSearch), true);
+        }
+
+        if (entries.size() >= MAX_ENTRIES) {
+            entries.clear();
+        }
+        entries.put(key, new Entry(count.getValue(), now + ttlMillis));
+        return count;
+    }
+
+    //EXPLAIN 의 rows (옵티마이저가 읽을 것으로 추정한 row 수)
+    // - idx_orders_status_date_id 인덱스 범위의 추정치이므로 실제 건수와 차이가 있을 수 있음
+    // - count(*) 를 EXPLAIN 하면 rows 가 비어있는 경우가 있어 (Select tables optimized away) order_id 조회로 추정
+    private Count explain(OrderSearch orderSearch) {
+        ResultSetExtractor<Long> rows = rs -> rs.next() ? rs.getObject("rows", Long.class) : null;
+        try {
+            Long estimate = orderSearch.getOrderStatus() == null
+                    ? jdbcTemplate.query("explain select order_id from orders", rows)
+                    : jdbcTemplate.query("explain select order_id from orders where status = ?", rows, orderSearch.getOrderStatus().name());
+            return estimate == null ? null : new Count(estimate, false);
+        } catch (DataAccessException e) {
+            //EXPLAIN 형식이 다른 DB (H2 등) 는 count 쿼리로 조회
+            log.debug("order count explain failed", e);
+            return null;
+        }
+    }
+
+    @Getter
+    public static class Count {
+        private final long value;
+        private final boolean exact;
+
+        Count(long value, boolean exact) {
+            this.value = value;
+            this.exact = exact;
+        }
+    }
+
+    private static class Entry {
+        private final long value;
+        private final long expiresAt;
+
+        Entry(long value, long expiresAt) {
+            this.value = value;
+            this.expiresAt = expiresAt;
+        }
+    }
+}
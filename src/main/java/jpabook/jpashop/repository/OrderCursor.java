@@ -0,0 +1,45 @@
+package jpabook.jpashop.repository;
+
+import lombok.Getter;
+
+import java.nio.charset.StandardCharsets;
+import java.time.LocalDateTime;
+import java.time.format.DateTimeParseException;
+import java.util.Base64;
+
+//Keyset(seek) 페이징용 커서
+// - 마지막으로 조회한 (orderDate, order_id) 를 기억해두고 그 다음 row 부터 조회
+// - offset 과 달리 앞쪽 row 를 읽고 버리지 않으므로 페이지 깊이와 관계없이 비용이 같음
+// - 클라이언트에게는 내부 구조를 숨긴 토큰(Base64) 으로 전달
+@Getter
+public class OrderCursor {
+
+    private static final String SEPARATOR = "|";
+
+    private final LocalDateTime orderDate;
+    private final Long orderId;
+
+    public OrderCursor(LocalDateTime orderDate, Long orderId) {
+        this.orderDate = orderDate;
+        this.orderId = orderId;
+    }
+
+    public String encode() {
+        String raw = orderDate + SEPARATOR + orderId;
+        return Base64.getUrlEncoder().withoutPadding().encodeToString(raw.getBytes(StandardCharsets.UTF_8));
+    }
+
+    //빈 토큰은 첫 페이지를 의미 (null 반환)
+    public static OrderCursor decode(String token) {
+        if (token == null || token.isEmpty()) {
+            return null;
+        }
+        try {
+            String raw = new String(Base64.getUrlDecoder().decode(token), StandardCharsets.UTF_8);
+            int idx = raw.lastIndexOf(SEPARATOR);
+            return new OrderCursor(LocalDateTime.parse(raw.substring(0, idx)), Long.valueOf(raw.substring(idx + 1)));
+        } catch (IllegalArgumentException | IndexOutOfBoundsException | DateTimeParseException e) {
+            throw new IllegalArgumentException("잘못된 커서 입니다.", e);
+        }
+    }
+}
@@ -0,0 +1,19 @@
+package jpabook.jpashop.repository;
+
+import jpabook.jpashop.domain.Order;
+import lombok.Getter;
+import lombok.RequiredArgsConstructor;
+
+//API DTO 별로 미리 로딩할 연관관계 (fetch plan)
+// - OSIV 를 끄면 트랜젝션 밖(JSON 변환 중)에서는 지연로딩을 할 수 없으므로 DTO 에 필요한 만큼 조회할 때 함께 로딩
+// - ToOne 은 엔티티 그래프로 조인, 컬렉션은 페이징이 깨지지 않도록 주문 id in 조회로 따로 초기화
+@Getter
+@RequiredArgsConstructor
+public enum OrderFetchPlan {
+
+    SIMPLE(Order.GRAPH_MEMBER_DELIVERY, false), //SimpleOrderDto : member, delivery
+    DETAIL(Order.GRAPH_MEMBER_DELIVERY, true); //OrderDto : member, delivery, orderItems, orderItems.item
+
+    private final String graph;
+    private final boolean orderItems;
+}
@@ -0,0 +1,29 @@
+package jpabook.jpashop.repository;
+
+import jpabook.jpashop.domain.OrderStatus;
+import lombok.Data;
+
+import java.time.LocalDateTime;
+
+//주문 목록 화면 (GET /orders) 한 줄
+// - 화면에 필요한 컬럼만 조회 (Order / OrderItem 엔티티를 만들지 않음)
+@Data
+public class OrderListDto {
+    private Long orderId;
+    private String memberName;
+    private String itemName; //대표상품 (첫번째 주문상품)
+    private int orderPrice;
+    private int count;
+    private OrderStatus status;
+    private LocalDateTime orderDate;
+
+    public OrderListDto(Long orderId, String memberName, String itemName, int orderPrice, int count, OrderStatus status, LocalDateTime orderDate) {
+        this.orderId = orderId;
+        this.memberName = memberName;
+        this.itemName = itemName;
+        this.orderPrice = orderPrice;
+        this.count = count;
+        this.status = status;
+        this.orderDate = orderDate;
+    }
+}
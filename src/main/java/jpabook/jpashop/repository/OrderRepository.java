@@ -1,27 +1,56 @@
 package jpabook.jpashop.repository;
 
+import com.querydsl.core.types.Projections;
 import com.querydsl.core.types.dsl.BooleanExpression;
+import com.querydsl.jpa.JPAExpressions;
 import com.querydsl.jpa.impl.JPAQueryFactory;
+import jpabook.jpashop.domain.DeliveryStatus;
 import jpabook.jpashop.domain.Order;
 import jpabook.jpashop.domain.OrderStatus;
+import jpabook.jpashop.domain.QDelivery;
 import jpabook.jpashop.domain.QMember;
 import jpabook.jpashop.domain.QOrder;
-import lombok.RequiredArgsConstructor;
+import jpabook.jpashop.domain.QOrderItem;
+import jpabook.jpashop.domain.item.QItem;
+import org.hibernate.jpa.QueryHints;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.stereotype.Repository;
 import org.springframework.util.StringUtils;
 
 import javax.persistence.EntityManager;
+import javax.persistence.LockModeType;
 import javax.persistence.TypedQuery;
 import javax.persistence.criteria.*;
+import java.time.LocalDateTime;
 import java.util.ArrayList;
+import java.util.Collection;
 import java.util.List;
+import java.util.Set;
+import java.util.stream.Collectors;
 
 @Repository
-@RequiredArgsConstructor
 public class OrderRepository {
 
     private final EntityManager em;
 
+    private final MemberNameIndex memberNameIndex;
+
+    private final OrderSearchQueries orderSearchQueries;
+
+    private final int maxResults; //페이징 없는 검색의 최대 조회 건수
+
+    static final int MAX_MEMBER_IDS = 1000; //in 절로 넘길 최대 회원 수
+
+    public OrderRepository(EntityManager em,
+                           MemberNameIndex memberNameIndex,
+                           OrderSearchQueries orderSearchQueries,
+                           @Value("${jpashop.order-search.max-results:1000}") int maxResults) {
+        this.em = em;
+        this.memberNameIndex = memberNameIndex;
+        this.orderSearchQueries = orderSearchQueries;
+        this.maxResults = maxResults;
+    }
+
     public void save(Order order) {
         em.persist(order);
     }
@@ -30,6 +59,15 @@ public class OrderRepository {
         return em.find(Order.class, id);
     }
 
+    //취소할 주문 (select ... for update, 동시에 같은 주문을 취소하는 트랜젝션은 커밋될 때까지 대기)
+    // - em.find 는 아직 flush 되지 않은(같은 트랜젝션에서 저장한) 주문을 잠그지 못하므로 JPQL 로 조회 (조회 전에 flush 됨)
+    public Order findOneForUpdate(Long id) {
+        return em.createQuery("select o from Order o where o.id = :id", Order.class)
+                .setParameter("id", id)
+                .setLockMode(LockModeType.PESSIMISTIC_WRITE)
+                .getSingleResult();
+    }
+
 //    public List<Order> findAll(OrderSearch orderSearch) {
 //        return em.createQuery("select o from Order o join o.member m where o.status = :status and m.name like :name", Order.class)
 //                .setParameter("status", orderSearch.getOrderStatus())
@@ -68,7 +106,7 @@ public class OrderRepository {
         }
 
         TypedQuery<Order> query = em.createQuery(jpql, Order.class)
-                .setMaxResults(1000);
+                .setMaxResults(maxResults);
 
         if(orderSearch.getOrderStatus() != null) {
             query = query.setParameter("status", orderSearch.getOrderStatus());
@@ -105,7 +143,7 @@ public class OrderRepository {
         }
 
         cq.where(cb.and(criteria.toArray(new Predicate[criteria.size()])));
-        TypedQuery<Order> query = em.createQuery(cq).setMaxResults(1000);
+        TypedQuery<Order> query = em.createQuery(cq).setMaxResults(maxResults);
         return query.getResultList();
     }
 
@@ -119,11 +157,188 @@ public class OrderRepository {
                 .select(order)
                 .from(order)
                 .join(order.member, member)
-                .where(statusEq(orderSearch.getOrderStatus()), nameLike(orderSearch.getMemberName()))
-                .limit(1000)
+                .where(statusEq(orderSearch.getOrderStatus()), memberNameCond(orderSearch))
+                .limit(maxResults)
                 .fetch();
     }
 
+    //미리 만들어 둔 JPQL 로 검색 (OrderSearchQueries, 쿼리 플랜 캐시 사용)
+    public List<Order> findAllCompiled(OrderSearch orderSearch) {
+        return orderSearchQueries.create(em, orderSearch)
+                .setMaxResults(maxResults)
+                .getResultList();
+    }
+
+    //검색 조건에 맞는 주문 수 (count 쿼리)
+    public long countOrders(OrderSearch orderSearch) {
+        return orderSearchQueries.createCount(em, orderSearch).getSingleResult();
+    }
+
+    //fetch plan 을 적용한 검색 (조회 결과를 트랜젝션 밖에서 사용해도 지연로딩이 필요 없음)
+    public List<Order> findAll(OrderSearch orderSearch, OrderFetchPlan plan) {
+        List<Order> orders = orderSearchQueries.create(em, orderSearch)
+                .setMaxResults(maxResults)
+                .setHint(QueryHints.HINT_LOADGRAPH, em.getEntityGraph(plan.getGraph()))
+                .getResultList();
+
+        if (plan.isOrderItems()) {
+            fetchOrderItems(orders);
+        }
+        return orders;
+    }
+
+    //주문 목록 화면용 조회 (엔티티를 만들지 않고 화면 컬럼만 DTO 로 조회)
+    // - 주문상태 조건이 있으면 (status, order_date, order_id) 인덱스를 역순으로 읽으므로 order by order_date desc, order_id desc 에 정렬(filesort) 이 없음
+    //   (member_id 는 인덱스에 없으므로 읽은 주문 row 만 PK 로 조회해서 조인)
+    //   주문상태 조건이 없거나 회원 이름 조건으로 member 부터 읽는 실행계획에서는 정렬이 필요함 (실행계획은 EXPLAIN 으로 확인)
+    // - 대표상품은 주문별 첫번째 order_item 하나만 조인 ((order_id, item_id) 인덱스에서 min(order_item_id) 를 찾음)
+    // - 최신 주문부터 offset 다음 limit 건
+    public List<OrderListDto> findOrderListDtos(OrderSearch orderSearch) {
+        return findOrderListDtos(orderSearch, 0, maxResults);
+    }
+
+    public List<OrderListDto> findOrderListDtos(OrderSearch orderSearch, long offset, int limit) {
+        QOrder order = QOrder.order;
+        QMember member = QMember.member;
+        QOrderItem orderItem = QOrderItem.orderItem;
+        QOrderItem firstItem = new QOrderItem("firstItem");
+        QItem item = QItem.item;
+
+        JPAQueryFactory query = new JPAQueryFactory(em);
+
+        return query
+                .select(Projections.constructor(OrderListDto.class,
+                        order.id, member.name, item.name, orderItem.orderPrice, orderItem.count, order.status, order.orderDate))
+                .from(order)
+                .join(order.member, member)
+                .join(order.orderItems, orderItem)
+                .join(orderItem.item, item)
+                .where(statusEq(orderSearch.getOrderStatus()),
+                        memberNameCond(orderSearch),
+                        orderItem.id.eq(JPAExpressions
+                                .select(firstItem.id.min())
+                                .from(firstItem)
+                                .where(firstItem.order.eq(order))))
+                .orderBy(order.orderDate.desc(), order.id.desc())
+                .offset(offset)
+                .limit(limit)
+                .fetch();
+    }
+
+    //일괄 취소 대상 주문 id (주문 상태인 것만, 주문일시 from 이상 to 미만, 최대 limit 건)
+    // - 대상 row 를 select ... for update 로 잠궈서 동시에 같은 주문을 취소하는 트랜젝션이 재고를 두번 복구하지 않도록 함
+    // - 배송완료된 주문은 제외 (포함하면 일괄 취소가 실패하고 다음 호출도 같은 주문을 다시 찾음)
+    public List<Long> findCancelableIds(OrderSearch orderSearch, LocalDateTime from, LocalDateTime to, int limit) {
+        QOrder order = QOrder.order;
+        QMember member = QMember.member;
+        QDelivery delivery = QDelivery.delivery;
+
+        JPAQueryFactory query = new JPAQueryFactory(em);
+
+        return query
+                .select(order.id)
+                .from(order)
+                .join(order.member, member)
+                .join(order.delivery, delivery)
+                .where(order.status.eq(OrderStatus.ORDER),
+                        delivery.status.isNull().or(delivery.status.ne(DeliveryStatus.COMP)),
+                        memberNameCond(orderSearch),
+                        from == null ? null : order.orderDate.goe(from),
+                        to == null ? null : order.orderDate.lt(to))
+                .orderBy(order.id.asc())
+                .limit(limit)
+                .setLockMode(LockModeType.PESSIMISTIC_WRITE)
+                .fetch();
+    }
+
+    //넘겨받은 id 중 주문 상태인 것만 (이미 취소된 주문은 재고를 다시 복구하지 않도록 제외)
+    // - 대상 row 를 select ... for update 로 잠금
+    public List<Long> findCancelableIds(Collection<Long> orderIds) {
+        QOrder order = QOrder.order;
+        return new JPAQueryFactory(em)
+                .select(order.id)
+                .from(order)
+                .where(order.id.in(orderIds), order.status.eq(OrderStatus.ORDER))
+                .orderBy(order.id.asc())
+                .setLockMode(LockModeType.PESSIMISTIC_WRITE)
+                .fetch();
+    }
+
+    //배송완료된 주문 수 (하나라도 있으면 일괄 취소 불가)
+    public long countDelivered(Collection<Long> orderIds) {
+        QOrder order = QOrder.order;
+        QDelivery delivery = QDelivery.delivery;
+        Long count = new JPAQueryFactory(em)
+                .select(order.count())
+                .from(order)
+                .join(order.delivery, delivery)
+                .where(order.id.in(orderIds), delivery.status.eq(DeliveryStatus.COMP))
+                .fetchOne();
+        return count == null ? 0 : count;
+    }
+
+    //취소할 주문상품 (엔티티를 로딩하지 않음)
+    public List<OrderCancelLineDto> findCancelLines(Collection<Long> orderIds) {
+        QOrder order = QOrder.order;
+        QOrderItem orderItem = QOrderItem.orderItem;
+        return new JPAQueryFactory(em)
+                .select(Projections.constructor(OrderCancelLineDto.class,
+                        orderItem.item.id, order.orderDate, orderItem.count, orderItem.orderPrice))
+                .from(orderItem)
+                .join(orderItem.order, order)
+                .where(order.id.in(orderIds))
+                .fetch();
+    }
+
+    //주문 상태를 update 한번으로 CANCEL 로 변경
+    // - 벌크 연산은 영속성 컨텍스트를 거치지 않으므로 먼저 flush 하고, 끝나면 clear 해서
+    //   이미 로딩된 Order / Item 이 변경 전 값으로 남지 않도록 함
+    // - 배송완료 여부도 update 조건에 넣어서 countDelivered 이후에 배송완료된 주문은 변경하지 않음
+    public long cancelAll(Collection<Long> orderIds) {
+        QOrder order = QOrder.order;
+        QDelivery delivery = QDelivery.delivery;
+        em.flush();
+        long updated = new JPAQueryFactory(em)
+                .update(order)
+                .set(order.status, OrderStatus.CANCEL)
+                .where(order.id.in(orderIds),
+                        order.status.eq(OrderStatus.ORDER),
+                        order.delivery.id.notIn(JPAExpressions
+                                .select(delivery.id)
+                                .from(delivery)
+                                .where(delivery.status.eq(DeliveryStatus.COMP))))
+                .execute();
+        em.clear();
+        return updated;
+    }
+
+    //회원 이름 조건
+    private BooleanExpression memberNameCond(OrderSearch orderSearch) {
+        if (orderSearch.getNameMatch() != null && StringUtils.hasText(orderSearch.getMemberName())) {
+            //이름 인덱스에서 회원 id 를 먼저 찾고 member_id in 으로 조회 (member 테이블 전체 검색 없음)
+            // - 인덱스가 모든 회원을 반영하고 있을 때만 사용 : 다른 서버에서 변경된 회원이 있거나(재구성 전), 결과가 없거나 너무 많으면 DB 검색
+            if (memberNameIndex.isComplete()) {
+                Set<Long> memberIds = memberNameIndex.find(orderSearch.getMemberName(), orderSearch.getNameMatch());
+                if (!memberIds.isEmpty() && memberIds.size() <= MAX_MEMBER_IDS) {
+                    return QOrder.order.member.id.in(memberIds);
+                }
+            }
+            return nameMatch(orderSearch.getMemberName(), orderSearch.getNameMatch());
+        }
+        return nameLike(orderSearch.getMemberName());
+    }
+
+    private BooleanExpression nameMatch(String memberName, NameMatch match) {
+        switch (match) {
+            case EXACT:
+                return QMember.member.name.eq(memberName);
+            case PREFIX:
+                return QMember.member.name.startsWith(memberName);
+            default:
+                return QMember.member.name.contains(memberName);
+        }
+    }
+
     private BooleanExpression nameLike(String memberName) {
         if(!StringUtils.hasText(memberName)) {
             return null;
@@ -175,6 +390,45 @@ public class OrderRepository {
                 .getResultList();
     }
 
+    //Keyset(seek) 페이징
+    // - (orderDate, order_id) 기준으로 커서 다음 row 부터 limit 건만 조회
+    // - offset 이 없으므로 몇번째 페이지든 인덱스 범위 탐색 한번으로 끝남
+    // - 커서가 null 이면 첫 페이지
+    public List<Order> findAllByWithMemberDelivery(OrderCursor cursor, int limit) {
+        String jpql = "select o from Order o" +
+                " join fetch o.member m" +
+                " join fetch o.delivery d";
+        if (cursor != null) {
+            jpql += " where o.orderDate > :orderDate" +
+                    " or (o.orderDate = :orderDate and o.id > :orderId)";
+        }
+        jpql += " order by o.orderDate, o.id";
+
+        TypedQuery<Order> query = em.createQuery(jpql, Order.class)
+                .setMaxResults(limit);
+        if (cursor != null) {
+            query.setParameter("orderDate", cursor.getOrderDate())
+                    .setParameter("orderId", cursor.getOrderId());
+        }
+        return query.getResultList();
+    }
+
+    //해당 페이지 주문들의 orderItems 만 in 조건 한번으로 초기화
+    // - 이미 영속성 컨텍스트에 있는 Order 의 컬렉션이 채워짐
+    public void fetchOrderItems(List<Order> orders) {
+        if (orders.isEmpty()) {
+            return;
+        }
+        List<Long> orderIds = orders.stream().map(Order::getId).collect(Collectors.toList());
+        em.createQuery(
+                "select distinct o from Order o" +
+                        " join fetch o.orderItems oi" +
+                        " join fetch oi.item i" +
+                        " where o.id in :orderIds", Order.class)
+                .setParameter("orderIds", orderIds)
+                .getResultList();
+    }
+
     // 1:N 을 fetch 조인시 firstResult/maxResults (페이징쿼리) 가 실제 쿼리에 반영이 되지 않음
     // - 데이터를 모두 가져온 후 메모리상에서 페이징을 수행함 (메모리 이슈가 발생될 수 있음)
     // - 데이터 Row 수가 변하지 않는 쿼리의 경우 fetch 조인 시 페이징이 가능
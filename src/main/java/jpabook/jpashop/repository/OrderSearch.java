@@ -9,4 +9,5 @@ import lombok.Setter;
 public class OrderSearch {
     private String memberName; //회원 이름
     private OrderStatus orderStatus; //주문 상태 [ORDER, CANCEL]
+    private NameMatch nameMatch; //회원 이름 검색 방식 [EXACT, PREFIX, CONTAINS] (null 이면 기존 like 검색)
 }
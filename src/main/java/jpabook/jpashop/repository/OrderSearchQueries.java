@@ -0,0 +1,167 @@
+package jpabook.jpashop.repository;
+
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import jpabook.jpashop.domain.Order;
+import lombok.extern.slf4j.Slf4j;
+import org.hibernate.SessionFactory;
+import org.hibernate.stat.Statistics;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.stereotype.Component;
+import org.springframework.util.StringUtils;
+
+import javax.persistence.EntityManager;
+import javax.persistence.EntityManagerFactory;
+import javax.persistence.TypedQuery;
+import java.util.ArrayList;
+import java.util.EnumMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+//주문 검색 JPQL (조건 조합별로 미리 만들어 둔 쿼리를 재사용)
+// - OrderSearch 의 조건 조합은 주문상태 유무 x 회원이름 조건 종류로 개수가 정해져 있으므로 조합(shape) 별 JPQL 을 미리 만들어 둠
+// - 요청마다 JPQL 문자열 연결 / Criteria / QueryDSL 로 쿼리를 새로 만들지 않고, 항상 같은 문자열이므로 Hibernate 쿼리 플랜 캐시(HQL -> SQL 변환 결과) 를 사용
+// - 목록 조회와 건수 조회(count) 를 shape 별로 같이 만들어 둠
+// - 서버 시작시 모든 shape 를 한번씩 컴파일해서 첫 요청부터 플랜 캐시 hit
+// - 만들어지는 SQL 도 shape 수만큼이므로 JDBC 드라이버의 prepared statement 캐시(cachePrepStmts) 도 hit
+// - member_id in 목록은 in_clause_parameter_padding 으로 2의 제곱수 크기로 맞춰서 플랜 수가 늘어나지 않도록 함
+@Slf4j
+@Component
+public class OrderSearchQueries {
+
+    //회원 이름 조건 종류
+    enum NameCond {
+        NONE(null),
+        LIKE("m.name like :name"), //기존 like 검색 (nameMatch 가 null)
+        EXACT("m.name = :name"),
+        PREFIX("m.name like :name escape '!'"),
+        CONTAINS("m.name like :name escape '!'"),
+        MEMBER_IDS("o.member.id in :memberIds"); //이름 인덱스에서 찾은 회원 id
+
+        private final String jpql;
+
+        NameCond(String jpql) {
+            this.jpql = jpql;
+        }
+    }
+
+    private final EntityManagerFactory emf;
+    private final MemberNameIndex memberNameIndex;
+
+    //[주문상태 없음, 있음] x NameCond
+    private final List<Map<NameCond, String>> queries = new ArrayList<>();
+    private final List<Map<NameCond, String>> countQueries = new ArrayList<>();
+
+    public OrderSearchQueries(EntityManagerFactory emf, MemberNameIndex memberNameIndex, MeterRegistry meterRegistry) {
+        this.emf = emf;
+        this.memberNameIndex = memberNameIndex;
+
+        for (boolean status : new boolean[]{false, true}) {
+            Map<NameCond, String> byName = new EnumMap<>(NameCond.class);
+            Map<NameCond, String> countByName = new EnumMap<>(NameCond.class);
+            for (NameCond nameCond : NameCond.values()) {
+                byName.put(nameCond, jpql("select o", status, nameCond));
+                countByName.put(nameCond, jpql("select count(o)", status, nameCond));
+            }
+            queries.add(byName);
+            countQueries.add(countByName);
+        }
+
+        //플랜 캐시 hit 비율 (hit / miss 건수는 hibernate.cache.query.plan 으로 노출됨)
+        Statistics statistics = emf.unwrap(SessionFactory.class).getStatistics();
+        Gauge.builder("hibernate.cache.query.plan.hit.ratio", statistics, OrderSearchQueries::hitRatio)
+                .description("query plan cache hit / (hit + miss), generate_statistics 가 켜져 있을때만 집계")
+                .register(meterRegistry);
+    }
+
+    //서버 시작시 모든 shape 의 JPQL 을 컴파일해서 플랜 캐시에 올려둠
+    @EventListener(ApplicationReadyEvent.class)
+    public void warmUp() {
+        EntityManager em = emf.createEntityManager();
+        try {
+            queries.forEach(byName -> byName.values().forEach(jpql -> em.createQuery(jpql, Order.class)));
+            countQueries.forEach(byName -> byName.values().forEach(jpql -> em.createQuery(jpql, Long.class)));
+            log.info("order search queries compiled. shapes={}", queries.size() * NameCond.values().length);
+        } finally {
+            em.close();
+        }
+    }
+
+    //검색 조건에 맞는 shape 의 쿼리를 만들고 파라미터를 바인딩
+    public TypedQuery<Order> create(EntityManager em, OrderSearch orderSearch) {
+        return create(em, orderSearch, queries, Order.class);
+    }
+
+    //검색 조건에 맞는 주문 수
+    public TypedQuery<Long> createCount(EntityManager em, OrderSearch orderSearch) {
+        return create(em, orderSearch, countQueries, Long.class);
+    }
+
+    private <T> TypedQuery<T> create(EntityManager em, OrderSearch orderSearch, List<Map<NameCond, String>> shapes, Class<T> resultClass) {
+        String memberName = orderSearch.getMemberName();
+        NameCond nameCond = nameCond(orderSearch);
+        Set<Long> memberIds = null;
+        if (nameCond == NameCond.MEMBER_IDS) {
+            //인덱스가 모든 회원을 반영하지 않았거나(다른 서버에서 변경, 재구성 전), 결과가 없거나 너무 많으면 DB 검색
+            memberIds = memberNameIndex.isComplete() ? memberNameIndex.find(memberName, orderSearch.getNameMatch()) : Set.of();
+            if (memberIds.isEmpty() || memberIds.size() > OrderRepository.MAX_MEMBER_IDS) {
+                nameCond = NameCond.valueOf(orderSearch.getNameMatch().name());
+            }
+        }
+
+        boolean status = orderSearch.getOrderStatus() != null;
+        TypedQuery<T> query = em.createQuery(shapes.get(status ? 1 : 0).get(nameCond), resultClass);
+        if (status) {
+            query.setParameter("status", orderSearch.getOrderStatus());
+        }
+        switch (nameCond) {
+            case LIKE:
+            case EXACT:
+                query.setParameter("name", memberName);
+                break;
+            case PREFIX:
+                query.setParameter("name", escape(memberName) + "%");
+                break;
+            case CONTAINS:
+                query.setParameter("name", "%" + escape(memberName) + "%");
+                break;
+            case MEMBER_IDS:
+                query.setParameter("memberIds", memberIds);
+                break;
+            default:
+        }
+        return query;
+    }
+
+    private NameCond nameCond(OrderSearch orderSearch) {
+        if (!StringUtils.hasText(orderSearch.getMemberName())) {
+            return NameCond.NONE;
+        }
+        return orderSearch.getNameMatch() == null ? NameCond.LIKE : NameCond.MEMBER_IDS;
+    }
+
+    private static String jpql(String select, boolean status, NameCond nameCond) {
+        List<String> where = new ArrayList<>();
+        if (status) {
+            where.add("o.status = :status");
+        }
+        if (nameCond.jpql != null) {
+            where.add(nameCond.jpql);
+        }
+        String jpql = select + " from Order o join o.member m";
+        return where.isEmpty() ? jpql : jpql + " where " + String.join(" and ", where);
+    }
+
+    //like 특수문자 escape (QueryDSL startsWith / contains 와 같은 방식)
+    private static String escape(String value) {
+        return value.replace("!", "!!").replace("%", "!%").replace("_", "!_");
+    }
+
+    private static double hitRatio(Statistics statistics) {
+        long hit = statistics.getQueryPlanCacheHitCount();
+        long total = hit + statistics.getQueryPlanCacheMissCount();
+        return total == 0 ? Double.NaN : (double) hit / total;
+    }
+}
@@ -0,0 +1,20 @@
+package jpabook.jpashop.repository;
+
+import lombok.Data;
+
+import java.time.LocalDate;
+
+//일별 매출 합계
+@Data
+public class SalesDayTotalDto {
+
+    private LocalDate salesDay;
+    private long qty;
+    private long revenue;
+
+    public SalesDayTotalDto(LocalDate salesDay, Long qty, Long revenue) {
+        this.salesDay = salesDay;
+        this.qty = qty;
+        this.revenue = revenue;
+    }
+}
@@ -0,0 +1,53 @@
+package jpabook.jpashop.repository;
+
+import jpabook.jpashop.domain.SalesDaily;
+import jpabook.jpashop.domain.SalesOutbox;
+import lombok.RequiredArgsConstructor;
+import org.springframework.stereotype.Repository;
+
+import javax.persistence.EntityManager;
+import javax.persistence.TypedQuery;
+import java.time.LocalDate;
+import java.util.List;
+
+//일별 매출 집계 조회 (sales_daily 만 조회, orders / order_item 은 사용하지 않음)
+@Repository
+@RequiredArgsConstructor
+public class SalesRepository {
+
+    private final EntityManager em;
+
+    public void saveOutbox(SalesOutbox outbox) {
+        em.persist(outbox);
+    }
+
+    //기간 내 상품별 일 매출 (itemId 가 null 이면 전체 상품)
+    public List<SalesDaily> findDaily(LocalDate from, LocalDate to, Long itemId) {
+        String jpql = "select s from SalesDaily s where s.salesDay between :from and :to";
+        if (itemId != null) {
+            jpql += " and s.itemId = :itemId";
+        }
+        jpql += " order by s.salesDay, s.itemId";
+
+        TypedQuery<SalesDaily> query = em.createQuery(jpql, SalesDaily.class)
+                .setParameter("from", from)
+                .setParameter("to", to);
+        if (itemId != null) {
+            query.setParameter("itemId", itemId);
+        }
+        return query.getResultList();
+    }
+
+    //기간 내 일별 합계 (전체 상품)
+    public List<SalesDayTotalDto> findDayTotals(LocalDate from, LocalDate to) {
+        return em.createQuery(
+                "select new jpabook.jpashop.repository.SalesDayTotalDto(s.salesDay, sum(s.qty), sum(s.revenue))" +
+                        " from SalesDaily s" +
+                        " where s.salesDay between :from and :to" +
+                        " group by s.salesDay" +
+                        " order by s.salesDay", SalesDayTotalDto.class)
+                .setParameter("from", from)
+                .setParameter("to", to)
+                .getResultList();
+    }
+}
@@ -0,0 +1,36 @@
+package jpabook.jpashop.repository;
+
+import lombok.Getter;
+
+import java.util.List;
+
+//검색 결과 한 페이지
+// - total 은 totalExact 가 false 이면 추정값 (캐시된 count 또는 EXPLAIN row 추정)
+// - 다음 페이지가 있는지는 size + 1 건을 조회해서 판단하므로 total 이 추정값이어도 정확함
+@Getter
+public class SearchPage<T> {
+
+    private final List<T> content;
+    private final int page; //0 부터 시작
+    private final int size;
+    private final long total;
+    private final boolean totalExact;
+    private final boolean hasNext;
+
+    public SearchPage(List<T> content, int page, int size, long total, boolean totalExact, boolean hasNext) {
+        this.content = content;
+        this.page = page;
+        this.size = size;
+        this.total = total;
+        this.totalExact = totalExact;
+        this.hasNext = hasNext;
+    }
+
+    public int getTotalPages() {
+        return (int) Math.max(1, (total + size - 1) / size);
+    }
+
+    public boolean isHasPrevious() {
+        return page > 0;
+    }
+}
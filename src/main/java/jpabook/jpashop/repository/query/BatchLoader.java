@@ -0,0 +1,69 @@
+package jpabook.jpashop.repository.query;
+
+import javax.persistence.EntityNotFoundException;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.function.Function;
+
+//DataLoader 방식의 배치 로더
+// - load(key) 로 키를 등록하면 바로 조회하지 않고 CompletableFuture 를 돌려줌
+// - dispatch() 시점(한 tick)에 모인 키들을 batchFunction 한번(in 쿼리 한번)으로 조회해서 future 를 완료시킴
+// - 같은 키는 한번만 조회 (로더 안에서 캐시)
+// - 건마다 쿼리가 나가던 N+1 이 요청당 O(1) 쿼리가 됨
+// - 결과에 없는 키는 defaultValue 로 완료, defaultValue 가 없으면 (null) 예외로 완료하고 dispatch() 도 예외
+//   -> 콜백에 null 이 넘어가서 thenAccept 안의 NPE 가 future 에 묻혀 필드가 조용히 비는 일이 없도록
+// - 한 요청(한 스레드) 안에서만 사용 (thread-safe 하지 않음)
+public class BatchLoader<K, V> {
+
+    private final Function<List<K>, Map<K, V>> batchFunction;
+    private final V defaultValue; //조회 결과에 없는 키에 채울 값
+
+    private final Map<K, CompletableFuture<V>> futures = new HashMap<>();
+    private final List<K> pending = new ArrayList<>();
+
+    public BatchLoader(Function<List<K>, Map<K, V>> batchFunction, V defaultValue) {
+        this.batchFunction = batchFunction;
+        this.defaultValue = defaultValue;
+    }
+
+    public CompletableFuture<V> load(K key) {
+        return futures.computeIfAbsent(key, k -> {
+            pending.add(k);
+            return new CompletableFuture<>();
+        });
+    }
+
+    //future 콜백 안에서 다시 load 한 키가 있으면 그것까지 이어서 조회
+    public void dispatch() {
+        while (!pending.isEmpty()) {
+            List<K> keys = new ArrayList<>(pending);
+            pending.clear();
+
+            Map<K, V> result;
+            try {
+                result = batchFunction.apply(keys);
+            } catch (RuntimeException e) {
+                keys.forEach(key -> futures.get(key).completeExceptionally(e));
+                throw e;
+            }
+
+            List<K> missing = new ArrayList<>();
+            for (K key : keys) {
+                V value = result.getOrDefault(key, defaultValue);
+                if (value == null) {
+                    missing.add(key);
+                } else {
+                    futures.get(key).complete(value);
+                }
+            }
+            if (!missing.isEmpty()) {
+                EntityNotFoundException e = new EntityNotFoundException("batch load missing keys: " + missing);
+                missing.forEach(key -> futures.get(key).completeExceptionally(e));
+                throw e;
+            }
+        }
+    }
+}
@@ -0,0 +1,20 @@
+package jpabook.jpashop.repository.query;
+
+import lombok.Data;
+
+//회원별 주문 합계
+@Data
+public class MemberOrderTotalDto {
+
+    private Long memberId;
+    private String name;
+    private long orderCount;
+    private long totalPrice;
+
+    public MemberOrderTotalDto(Long memberId, String name, Long orderCount, Long totalPrice) {
+        this.memberId = memberId;
+        this.name = name;
+        this.orderCount = orderCount;
+        this.totalPrice = totalPrice;
+    }
+}
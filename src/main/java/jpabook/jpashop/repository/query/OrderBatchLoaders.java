@@ -0,0 +1,99 @@
+package jpabook.jpashop.repository.query;
+
+import jpabook.jpashop.domain.Delivery;
+import jpabook.jpashop.domain.Member;
+import jpabook.jpashop.domain.Order;
+import jpabook.jpashop.domain.OrderItem;
+import org.hibernate.Hibernate;
+import org.springframework.stereotype.Component;
+import org.springframework.web.context.annotation.RequestScope;
+
+import javax.persistence.EntityManager;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.function.Function;
+import java.util.stream.Collectors;
+
+//요청 단위로 생성되는 주문 관련 배치 로더 모음
+// - API DTO 가 지연로딩 대신 여기서 member / delivery / orderItems 를 요청
+// - DTO 를 모두 만든 뒤 dispatch() 한번으로 종류별 in 쿼리 한번씩만 실행 (키가 1000 개 이하일 때)
+// - 이미 초기화된(fetch 조인된) 연관관계는 쿼리 없이 바로 완료
+// - in 절은 OrderItemChunkLoader 와 같은 크기(16/64/256/1000) 로 나눠서 조회 (패킷 크기 제한, 쿼리 모양 고정)
+// - member / delivery 는 주문이 FK 로 참조하므로 결과에 없으면 dispatch() 에서 예외 (BatchLoader)
+@Component
+@RequestScope
+public class OrderBatchLoaders {
+
+    private final BatchLoader<Long, Member> members;
+    private final BatchLoader<Long, Delivery> deliveries;
+    private final BatchLoader<Long, List<OrderItem>> orderItems;
+
+    public OrderBatchLoaders(EntityManager em) {
+        this.members = new BatchLoader<>(chunked(ids -> em.createQuery(
+                "select m from Member m where m.id in :ids", Member.class)
+                .setParameter("ids", ids)
+                .getResultList().stream()
+                .collect(Collectors.toMap(Member::getId, Function.identity()))), null);
+
+        this.deliveries = new BatchLoader<>(chunked(ids -> em.createQuery(
+                "select d from Delivery d where d.id in :ids", Delivery.class)
+                .setParameter("ids", ids)
+                .getResultList().stream()
+                .collect(Collectors.toMap(Delivery::getId, Function.identity()))), null);
+
+        this.orderItems = new BatchLoader<>(chunked(orderIds -> {
+            Map<Long, List<OrderItem>> result = new HashMap<>();
+            em.createQuery(
+                    "select oi from OrderItem oi" +
+                            " join fetch oi.item i" +
+                            " where oi.order.id in :orderIds", OrderItem.class)
+                    .setParameter("orderIds", orderIds)
+                    .getResultList()
+                    .forEach(oi -> result.computeIfAbsent(oi.getOrder().getId(), k -> new ArrayList<>()).add(oi));
+            return result;
+        }), Collections.emptyList());
+    }
+
+    //id 목록을 청크로 나눠서 청크마다 in 쿼리 한번 (청크 사이에 같은 키가 없으므로 결과는 그대로 합침)
+    private static <V> Function<List<Long>, Map<Long, V>> chunked(Function<List<Long>, Map<Long, V>> query) {
+        return ids -> {
+            Map<Long, V> result = new HashMap<>();
+            for (List<Long> chunk : OrderItemChunkLoader.chunk(ids)) {
+                result.putAll(query.apply(chunk));
+            }
+            return result;
+        };
+    }
+
+    //프록시의 getId() 는 초기화를 일으키지 않음
+    public CompletableFuture<Member> member(Order order) {
+        if (Hibernate.isInitialized(order.getMember())) {
+            return CompletableFuture.completedFuture(order.getMember());
+        }
+        return members.load(order.getMember().getId());
+    }
+
+    public CompletableFuture<Delivery> delivery(Order order) {
+        if (Hibernate.isInitialized(order.getDelivery())) {
+            return CompletableFuture.completedFuture(order.getDelivery());
+        }
+        return deliveries.load(order.getDelivery().getId());
+    }
+
+    public CompletableFuture<List<OrderItem>> orderItems(Order order) {
+        if (Hibernate.isInitialized(order.getOrderItems())) {
+            return CompletableFuture.completedFuture(order.getOrderItems());
+        }
+        return orderItems.load(order.getId());
+    }
+
+    public void dispatch() {
+        members.dispatch();
+        deliveries.dispatch();
+        orderItems.dispatch();
+    }
+}
@@ -0,0 +1,163 @@
+package jpabook.jpashop.repository.query;
+
+import jpabook.jpashop.profiler.SqlProfile;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import javax.annotation.PreDestroy;
+import javax.persistence.EntityManager;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.Semaphore;
+
+//orderId 목록으로 OrderItemQueryDto 를 in 조건으로 나눠서 조회
+// - in 절 하나에 id 를 전부 넣으면 MySQL max_allowed_packet 에 걸릴 수 있음
+// - in 절 길이가 매번 다르면 길이마다 쿼리 플랜이 캐시되어 plan cache 가 오염됨
+// - 정해진 크기(16/64/256/1000) 로 나누고 모자란 자리는 마지막 id 로 채워서 쿼리 모양을 4가지로 고정
+// - parallel 옵션이 켜져 있으면 첫 청크는 호출한 스레드에서, 나머지 청크는 작업 스레드에서 동시에 조회
+//   - 작업 스레드는 청크마다 읽기 전용 트랜젝션으로 조회 (replica 로 라우팅, 요청의 SqlProfile 로 집계)
+//   - 청크마다 트랜젝션이 다르므로 호출한 쪽과 같은 시점의 데이터가 아닐 수 있음
+//     호출한 쪽이 쓰기 트랜젝션 안이면 (아직 커밋하지 않은 변경을 봐야 하므로) 나누어 조회하지 않음
+//   - 작업 스레드가 추가로 쓰는 커넥션은 전체 요청을 합쳐 커넥션 풀의 1/4 이하로 제한 (호출한 스레드도 커넥션을 쥐고 있으므로)
+//     여유가 없으면 기다리지 않고 호출한 스레드에서 조회
+@Component
+public class OrderItemChunkLoader {
+
+    static final int[] CHUNK_SIZES = {16, 64, 256, 1000};
+
+    private final EntityManager em;
+    private final TransactionTemplate readOnlyTx;
+    private final boolean parallel;
+    private final ExecutorService executor;
+    private final Semaphore connections; //작업 스레드가 동시에 쓰는 커넥션 수
+
+    public OrderItemChunkLoader(EntityManager em,
+                                PlatformTransactionManager transactionManager,
+                                @Value("${jpashop.query.chunk.parallel:false}") boolean parallel,
+                                @Value("${jpashop.query.chunk.threads:4}") int threads,
+                                @Value("${spring.datasource.hikari.maximum-pool-size:10}") int poolSize) {
+        this.em = em;
+        this.readOnlyTx = new TransactionTemplate(transactionManager);
+        this.readOnlyTx.setReadOnly(true);
+        this.parallel = parallel;
+        this.executor = parallel ? Executors.newFixedThreadPool(threads) : null;
+        this.connections = new Semaphore(Math.max(1, Math.min(threads, poolSize / 4)));
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        if (executor != null) {
+            executor.shutdown();
+        }
+    }
+
+    public Map<Long, List<OrderItemQueryDto>> findOrderItemMap(List<Long> orderIds) {
+        List<List<Long>> chunks = chunk(orderIds);
+
+        boolean writeTx = TransactionSynchronizationManager.isActualTransactionActive()
+                && !TransactionSynchronizationManager.isCurrentTransactionReadOnly();
+        if (!parallel || chunks.size() < 2 || writeTx) {
+            List<OrderItemQueryDto> orderItems = new ArrayList<>();
+            for (List<Long> chunk : chunks) {
+                orderItems.addAll(findOrderItems(em, chunk));
+            }
+            return groupByOrderId(orderItems);
+        }
+
+        SqlProfile profile = SqlProfile.current();
+        List<CompletableFuture<List<OrderItemQueryDto>>> futures = new ArrayList<>();
+        List<List<Long>> local = new ArrayList<>();
+        local.add(chunks.get(0));
+        for (List<Long> chunk : chunks.subList(1, chunks.size())) {
+            if (connections.tryAcquire()) {
+                futures.add(submit(chunk, profile));
+            } else {
+                local.add(chunk);
+            }
+        }
+
+        List<OrderItemQueryDto> orderItems = new ArrayList<>();
+        for (List<Long> chunk : local) {
+            orderItems.addAll(findOrderItems(em, chunk));
+        }
+        for (CompletableFuture<List<OrderItemQueryDto>> future : futures) {
+            orderItems.addAll(future.join());
+        }
+        return groupByOrderId(orderItems);
+    }
+
+    //작업 스레드에서 읽기 전용 트랜젝션으로 조회 (connections 를 얻은 후 호출)
+    private CompletableFuture<List<OrderItemQueryDto>> submit(List<Long> chunk, SqlProfile profile) {
+        try {
+            return CompletableFuture.supplyAsync(() -> {
+                SqlProfile previous = SqlProfile.bind(profile);
+                try {
+                    return readOnlyTx.execute(status -> findOrderItems(em, chunk));
+                } finally {
+                    SqlProfile.bind(previous);
+                    connections.release();
+                }
+            }, executor);
+        } catch (RejectedExecutionException e) {
+            connections.release();
+            throw e;
+        }
+    }
+
+    //정해진 크기로 나누고 남는 자리는 마지막 id 로 채움 (in 절에서 중복 id 는 결과에 영향 없음)
+    static List<List<Long>> chunk(List<Long> ids) {
+        List<List<Long>> chunks = new ArrayList<>();
+        int from = 0;
+        while (from < ids.size()) {
+            int remaining = ids.size() - from;
+            int size = chunkSize(remaining);
+            int to = from + Math.min(size, remaining);
+
+            List<Long> chunk = new ArrayList<>(size);
+            chunk.addAll(ids.subList(from, to));
+            Long last = chunk.get(chunk.size() - 1);
+            while (chunk.size() < size) {
+                chunk.add(last);
+            }
+            chunks.add(chunk);
+            from = to;
+        }
+        return chunks;
+    }
+
+    private static int chunkSize(int remaining) {
+        for (int size : CHUNK_SIZES) {
+            if (remaining <= size) {
+                return size;
+            }
+        }
+        return CHUNK_SIZES[CHUNK_SIZES.length - 1];
+    }
+
+    private static List<OrderItemQueryDto> findOrderItems(EntityManager em, List<Long> orderIds) {
+        return em.createQuery(
+                "select new jpabook.jpashop.repository.query.OrderItemQueryDto(oi.order.id, i.name, oi.orderPrice, oi.count)" +
+                        " from OrderItem oi" +
+                        " join oi.item i" +
+                        " where oi.order.id in :orderIds", OrderItemQueryDto.class)
+                .setParameter("orderIds", orderIds)
+                .getResultList();
+    }
+
+    private static Map<Long, List<OrderItemQueryDto>> groupByOrderId(List<OrderItemQueryDto> orderItems) {
+        Map<Long, List<OrderItemQueryDto>> orderItemMap = new HashMap<>();
+        for (OrderItemQueryDto orderItem : orderItems) {
+            orderItemMap.computeIfAbsent(orderItem.getOrderId(), k -> new ArrayList<>()).add(orderItem);
+        }
+        return orderItemMap;
+    }
+}
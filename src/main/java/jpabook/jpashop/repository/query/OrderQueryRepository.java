@@ -1,11 +1,18 @@
 package jpabook.jpashop.repository.query;
 
 import lombok.RequiredArgsConstructor;
+import org.hibernate.ScrollMode;
+import org.hibernate.ScrollableResults;
+import org.hibernate.query.Query;
 import org.springframework.stereotype.Repository;
+import org.springframework.transaction.annotation.Transactional;
 
 import javax.persistence.EntityManager;
+import java.util.ArrayList;
+import java.util.Collections;
 import java.util.List;
 import java.util.Map;
+import java.util.function.Consumer;
 import java.util.stream.Collectors;
 
 @Repository
@@ -14,23 +21,19 @@ public class OrderQueryRepository {
 
     private final EntityManager em;
 
+    private final OrderItemChunkLoader orderItemChunkLoader;
 
+
+    //주문마다 orderItems 를 조회하던 N+1 을 BatchLoader 로 변경
+    // - 주문마다 키만 등록해두고 dispatch 시점에 in 쿼리로 한번에 조회
     public List<OrderQueryDto> findOrderQueryDtos() {
         List<OrderQueryDto> result = findOrders();
-        result.stream().forEach(o -> {
-            List<OrderItemQueryDto> orderItems = findOrderItems(o.getOrderId());
-            o.setOrderItems(orderItems);
-        });
-        return result;
-    }
+        BatchLoader<Long, List<OrderItemQueryDto>> orderItemLoader =
+                new BatchLoader<>(orderItemChunkLoader::findOrderItemMap, Collections.emptyList());
 
-    private List<OrderItemQueryDto> findOrderItems(Long orderId) {
-        return em.createQuery(
-                "select new jpabook.jpashop.repository.query.OrderItemQueryDto(oi.order.id, i.name, oi.orderPrice, oi.count)" +
-                        " from OrderItem oi" +
-                        " join oi.item i" +
-                        " where oi.order.id = :orderId", OrderItemQueryDto.class
-        ).setParameter("orderId", orderId).getResultList();
+        result.forEach(o -> orderItemLoader.load(o.getOrderId()).thenAccept(o::setOrderItems));
+        orderItemLoader.dispatch();
+        return result;
     }
 
     private List<OrderQueryDto> findOrders() {
@@ -46,17 +49,8 @@ public class OrderQueryRepository {
         List<OrderQueryDto> result = findOrders();
         List<Long> orderIds = result.stream().map(o -> o.getOrderId()).collect(Collectors.toList());
 
-        List<OrderItemQueryDto> orderItems = em.createQuery(
-                "select new jpabook.jpashop.repository.query.OrderItemQueryDto(oi.order.id, i.name, oi.orderPrice, oi.count)" +
-                        " from OrderItem oi" +
-                        " join oi.item i" +
-                        " where oi.order.id in :orderIds", OrderItemQueryDto.class
-        )
-                .setParameter("orderIds", orderIds)
-                .getResultList();
-
-        Map<Long, List<OrderItemQueryDto>> orderItemMap = orderItems.stream()
-                .collect(Collectors.groupingBy(orderItemQueryDto -> orderItemQueryDto.getOrderId()));
+        //in 절을 고정 크기 청크로 나눠서 조회 후 하나의 Map 으로 합침
+        Map<Long, List<OrderItemQueryDto>> orderItemMap = orderItemChunkLoader.findOrderItemMap(orderIds);
 
         result.forEach(o -> o.setOrderItems(orderItemMap.get(o.getOrderId())));
         return result;
@@ -72,4 +66,44 @@ public class OrderQueryRepository {
                         " join oi.item i", OrderFlatDto.class)
                 .getResultList();
     }
+
+    //전체 주문을 메모리에 올리지 않고 스트리밍으로 조회
+    // - FORWARD_ONLY scroll + fetchSize 로 DB 에서 일정량씩 가져옴 (MySQL 은 useCursorFetch=true 필요)
+    // - order_id 순으로 정렬된 flat row 를 OrderQueryDto 단위로 다시 묶어서 consumer 로 전달
+    // - 한번에 하나의 주문만 메모리에 유지되므로 주문 수와 관계없이 메모리 사용량이 일정
+    @Transactional(readOnly = true)
+    public void streamAllByDto_flat(int fetchSize, Consumer<OrderQueryDto> consumer) {
+        //scroll 결과는 results.get(0) 을 캐스팅해서 사용하므로 결과 타입 없이 unwrap (unchecked 변환 없음)
+        Query<?> query = em.createQuery(
+                "select new jpabook.jpashop.repository.query.OrderFlatDto(o.id, m.name, o.orderDate, o.status, d.address, i.name, oi.orderPrice, oi.count)" +
+                        " from Order o" +
+                        " join o.member m" +
+                        " join o.delivery d" +
+                        " join o.orderItems oi" +
+                        " join oi.item i" +
+                        " order by o.id", OrderFlatDto.class)
+                .unwrap(Query.class);
+
+        try (ScrollableResults results = query
+                .setFetchSize(fetchSize)
+                .setReadOnly(true)
+                .scroll(ScrollMode.FORWARD_ONLY)) {
+
+            OrderQueryDto current = null;
+            while (results.next()) {
+                OrderFlatDto row = (OrderFlatDto) results.get(0);
+                if (current == null || !current.getOrderId().equals(row.getOrderId())) {
+                    if (current != null) {
+                        consumer.accept(current);
+                    }
+                    current = new OrderQueryDto(row.getOrderId(), row.getName(), row.getOrderDate(), row.getOrderStatus(), row.getAddress());
+                    current.setOrderItems(new ArrayList<>());
+                }
+                current.getOrderItems().add(new OrderItemQueryDto(row.getOrderId(), row.getItemName(), row.getOrderPrice(), row.getCount()));
+            }
+            if (current != null) {
+                consumer.accept(current);
+            }
+        }
+    }
 }
@@ -0,0 +1,62 @@
+package jpabook.jpashop.repository.query;
+
+import jpabook.jpashop.domain.OrderStatus;
+import lombok.RequiredArgsConstructor;
+import org.springframework.stereotype.Repository;
+
+import javax.persistence.EntityManager;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+//주문 금액 집계 (group by)
+// - Order.getTotalPrice() 처럼 orderItems 컬렉션을 로딩해서 더하지 않고 DB 에서 합계만 조회
+@Repository
+@RequiredArgsConstructor
+public class OrderStatsQueryRepository {
+
+    private final EntityManager em;
+
+    //주문별 합계 (주문상품이 없는 주문은 결과에 없음)
+    public Map<Long, Long> findOrderTotals(Collection<Long> orderIds) {
+        Map<Long, Long> totals = new HashMap<>();
+        if (orderIds.isEmpty()) {
+            return totals;
+        }
+        em.createQuery(
+                "select oi.order.id, sum(oi.orderPrice * oi.count)" +
+                        " from OrderItem oi" +
+                        " where oi.order.id in :orderIds" +
+                        " group by oi.order.id", Object[].class)
+                .setParameter("orderIds", orderIds)
+                .getResultList()
+                .forEach(row -> totals.put((Long) row[0], ((Number) row[1]).longValue()));
+        return totals;
+    }
+
+    //회원별 합계 (금액 순)
+    public List<MemberOrderTotalDto> findMemberTotals(OrderStatus status, int limit) {
+        return em.createQuery(
+                "select new jpabook.jpashop.repository.query.MemberOrderTotalDto(m.id, m.name, count(distinct o.id), sum(oi.orderPrice * oi.count))" +
+                        " from OrderItem oi" +
+                        " join oi.order o" +
+                        " join o.member m" +
+                        " where o.status = :status" +
+                        " group by m.id, m.name" +
+                        " order by sum(oi.orderPrice * oi.count) desc", MemberOrderTotalDto.class)
+                .setParameter("status", status)
+                .setMaxResults(limit)
+                .getResultList();
+    }
+
+    //주문상태별 매출
+    public List<OrderStatusRevenueDto> findStatusRevenue() {
+        return em.createQuery(
+                "select new jpabook.jpashop.repository.query.OrderStatusRevenueDto(o.status, count(distinct o.id), sum(oi.orderPrice * oi.count))" +
+                        " from OrderItem oi" +
+                        " join oi.order o" +
+                        " group by o.status", OrderStatusRevenueDto.class)
+                .getResultList();
+    }
+}
@@ -0,0 +1,19 @@
+package jpabook.jpashop.repository.query;
+
+import jpabook.jpashop.domain.OrderStatus;
+import lombok.Data;
+
+//주문상태별 매출
+@Data
+public class OrderStatusRevenueDto {
+
+    private OrderStatus status;
+    private long orderCount;
+    private long revenue;
+
+    public OrderStatusRevenueDto(OrderStatus status, Long orderCount, Long revenue) {
+        this.status = status;
+        this.orderCount = orderCount;
+        this.revenue = revenue;
+    }
+}
@@ -0,0 +1,95 @@
+package jpabook.jpashop.service;
+
+import jpabook.jpashop.domain.Category;
+import jpabook.jpashop.domain.item.Item;
+import jpabook.jpashop.repository.CategoryItemDto;
+import jpabook.jpashop.repository.CategoryRepository;
+import jpabook.jpashop.repository.CategoryTree;
+import jpabook.jpashop.repository.ItemRepository;
+import lombok.RequiredArgsConstructor;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.util.List;
+
+//카테고리 변경 시 closure table 을 같은 트랜젝션에서 갱신하고, 커밋 후 트리 스냅샷을 다시 만듦
+@Service
+@Transactional(readOnly = true)
+@RequiredArgsConstructor
+public class CategoryService {
+
+    private final CategoryRepository categoryRepository;
+
+    private final ItemRepository itemRepository;
+
+    private final CategoryTree categoryTree;
+
+    //카테고리 생성 (parentId 가 null 이면 최상위)
+    @Transactional
+    public Long create(String name, Long parentId) {
+        Category category = new Category();
+        category.setName(name);
+        if (parentId != null) {
+            find(parentId, "존재하지 않는 상위 카테고리 입니다.").addChildCategory(category);
+        }
+        categoryRepository.save(category);
+        categoryRepository.insertPaths(category.getId(), parentId);
+        categoryTree.refresh();
+        return category.getId();
+    }
+
+    //카테고리 이동 (하위 카테고리도 함께 이동)
+    @Transactional
+    public void move(Long categoryId, Long newParentId) {
+        Category category = find(categoryId, "존재하지 않는 카테고리 입니다.");
+        Category newParent = newParentId == null ? null : find(newParentId, "존재하지 않는 상위 카테고리 입니다.");
+        if (newParentId != null && categoryRepository.findDescendantIds(categoryId).contains(newParentId)) {
+            throw new IllegalArgumentException("자신의 하위 카테고리로 이동할 수 없습니다.");
+        }
+
+        if (category.getParent() != null) {
+            category.getParent().getChild().remove(category);
+            category.setParent(null);
+        }
+        if (newParent != null) {
+            newParent.addChildCategory(category);
+        }
+        categoryRepository.movePaths(categoryId, newParentId);
+        categoryTree.refresh();
+    }
+
+    //카테고리에 상품 추가 (이미 있는 상품이면 그대로 둠)
+    // - category_item 에는 unique 제약조건이 없으므로 카테고리 row 를 잠가서 동시 추가로 중복 row 가 생기지 않게 함
+    @Transactional
+    public void addItem(Long categoryId, Long itemId) {
+        Category category = categoryRepository.findOneForUpdate(categoryId);
+        if (category == null) {
+            throw new IllegalArgumentException("존재하지 않는 카테고리 입니다.");
+        }
+        Item item = itemRepository.findOne(itemId);
+        if (item == null) {
+            throw new IllegalArgumentException("존재하지 않는 상품입니다.");
+        }
+        if (categoryRepository.hasItem(categoryId, itemId)) {
+            return;
+        }
+        category.getItems().add(item);
+    }
+
+    public boolean exists(Long categoryId) {
+        return categoryRepository.exists(categoryId);
+    }
+
+    //하위 카테고리를 포함한 상품 목록 (afterItemId 다음부터 limit 건)
+    public List<CategoryItemDto> findItems(Long categoryId, Long afterItemId, int limit) {
+        return categoryRepository.findItems(categoryId, afterItemId, limit);
+    }
+
+    private Category find(Long categoryId, String message) {
+        Category category = categoryRepository.findOne(categoryId);
+        if (category == null) {
+            throw new IllegalArgumentException(message);
+        }
+        return category;
+    }
+}
@@ -18,6 +18,8 @@ public class ItemService {
 
     private final ItemRepository itemRepository;
 
+    private final StockReservationService stockReservationService;
+
     // Merge (데이터 수정의 경우)
     // 1. 파라미터로 들어온 아이디값을 가지고 영속성컨텍스트와 DB 에서 데이터를 가져옴
     // 2. 기존 데이터에 파라미터로 들어온 모든 필드들을 변경 (값이 없을 경우 null 로 업데이트)
@@ -42,6 +44,11 @@ public class ItemService {
         findItem.setPrice(price);
         findItem.setName(name);
         findItem.setStockQuantity(stockQuantity);
+
+        //메모리 재고 카운터는 버리고 수정된 DB 값을 다시 읽도록 함
+        if (stockReservationService.isEnabled()) {
+            stockReservationService.reset(itemId);
+        }
     }
 
 }
@@ -0,0 +1,13 @@
+package jpabook.jpashop.service;
+
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+
+//회원 일괄 등록에서 실패한 줄 (line 은 1 부터, CSV 헤더 포함)
+@Getter
+@AllArgsConstructor
+public class MemberImportError {
+    private long line;
+    private String name;
+    private String error;
+}
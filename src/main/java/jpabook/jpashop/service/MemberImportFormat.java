@@ -0,0 +1,6 @@
+package jpabook.jpashop.service;
+
+//회원 일괄 등록 입력 형식
+public enum MemberImportFormat {
+    CSV, NDJSON
+}
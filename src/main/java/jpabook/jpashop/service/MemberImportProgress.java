@@ -0,0 +1,14 @@
+package jpabook.jpashop.service;
+
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+
+//회원 일괄 등록 진행 상황 (청크마다, 마지막에 done=true)
+@Getter
+@AllArgsConstructor
+public class MemberImportProgress {
+    private long processed;
+    private long imported;
+    private long failed;
+    private boolean done;
+}
@@ -0,0 +1,16 @@
+package jpabook.jpashop.service;
+
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+import lombok.NoArgsConstructor;
+
+//회원 일괄 등록의 한 줄 (CSV : name,city,street,zipcode / NDJSON : 같은 이름의 필드)
+@Getter
+@NoArgsConstructor
+@AllArgsConstructor
+public class MemberImportRow {
+    private String name;
+    private String city;
+    private String street;
+    private String zipcode;
+}
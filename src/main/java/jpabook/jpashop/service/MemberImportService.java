@@ -0,0 +1,287 @@
+package jpabook.jpashop.service;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import jpabook.jpashop.domain.Address;
+import jpabook.jpashop.domain.Member;
+import jpabook.jpashop.repository.MemberNameIndex;
+import jpabook.jpashop.repository.MemberRepository;
+import jpabook.jpashop.repository.MemberVersion;
+import lombok.extern.slf4j.Slf4j;
+import org.hibernate.exception.ConstraintViolationException;
+import org.hibernate.exception.DataException;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.dao.DataIntegrityViolationException;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+import org.springframework.util.StringUtils;
+
+import javax.persistence.EntityManager;
+import javax.persistence.PersistenceException;
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.Reader;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.function.Consumer;
+
+//회원 일괄 등록 (파트너사 회원 이관)
+// - 입력을 한 줄씩 읽어 chunk-size 건씩 처리 (전체를 메모리에 올리지 않음)
+// - 청크마다 한 트랜젝션 : 이미 있는 이름은 in 쿼리 한번으로 걸러내고 나머지를 insert
+// - insert 는 hibernate.jdbc.batch_size 단위 JDBC batch (PooledIdGenerator 로 id 를 미리 할당)
+// - flush-size 건마다 flush + clear 해서 영속성 컨텍스트가 커지지 않도록 함
+// - 실패한 줄은 onError, 청크가 끝날 때마다 onProgress 로 알려줌
+// - 일부 줄 때문에 청크 저장이 실패하면 청크를 반으로 나눠 다시 저장 (실패한 줄만 onError 로 알려주고 계속 진행)
+// - 청크 단위로 커밋되므로 트랜젝션 밖에서 호출 (중간에 실패해도 앞선 청크는 남음)
+@Slf4j
+@Service
+public class MemberImportService {
+
+    private static final String DUPLICATE = "이미 존재하는 회원입니다.";
+    private static final int MAX_LENGTH = 255; //member 컬럼 길이 (varchar(255))
+
+    private final EntityManager em;
+    private final MemberRepository memberRepository;
+    private final MemberNameIndex memberNameIndex;
+    private final MemberVersion memberVersion;
+    private final ObjectMapper objectMapper;
+    private final TransactionTemplate transactionTemplate;
+    private final int chunkSize;
+    private final int flushSize;
+
+    public MemberImportService(EntityManager em,
+                               MemberRepository memberRepository,
+                               MemberNameIndex memberNameIndex,
+                               MemberVersion memberVersion,
+                               ObjectMapper objectMapper,
+                               PlatformTransactionManager transactionManager,
+                               @Value("${jpashop.member-import.chunk-size:1000}") int chunkSize,
+                               @Value("${jpashop.member-import.flush-size:100}") int flushSize) {
+        this.em = em;
+        this.memberRepository = memberRepository;
+        this.memberNameIndex = memberNameIndex;
+        this.memberVersion = memberVersion;
+        this.objectMapper = objectMapper;
+        this.transactionTemplate = new TransactionTemplate(transactionManager);
+        this.chunkSize = chunkSize;
+        this.flushSize = flushSize;
+    }
+
+    public interface Listener {
+        void onError(MemberImportError error);
+
+        void onProgress(MemberImportProgress progress);
+    }
+
+    public MemberImportProgress importMembers(Reader input, MemberImportFormat format, Listener listener) throws IOException {
+        BufferedReader reader = new BufferedReader(input);
+        Map<Long, MemberImportRow> chunk = new LinkedHashMap<>(); //줄 번호 -> 행
+        long line = 0;
+        long processed = 0;
+        long imported = 0;
+        long failed = 0;
+
+        String text;
+        while ((text = reader.readLine()) != null) {
+            line++;
+            if (!StringUtils.hasText(text) || (format == MemberImportFormat.CSV && line == 1 && text.startsWith("name,"))) {
+                continue; //빈 줄, CSV 헤더
+            }
+            processed++;
+            try {
+                MemberImportRow row = parse(text, format);
+                validate(row);
+                chunk.put(line, row);
+            } catch (IllegalArgumentException e) {
+                failed++;
+                listener.onError(new MemberImportError(line, null, e.getMessage()));
+            }
+
+            if (chunk.size() == chunkSize) {
+                int saved = saveChunk(chunk, listener);
+                imported += saved;
+                failed += chunk.size() - saved;
+                chunk.clear();
+                listener.onProgress(new MemberImportProgress(processed, imported, failed, false));
+            }
+        }
+        if (!chunk.isEmpty()) {
+            int saved = saveChunk(chunk, listener);
+            imported += saved;
+            failed += chunk.size() - saved;
+        }
+
+        MemberImportProgress result = new MemberImportProgress(processed, imported, failed, true);
+        listener.onProgress(result);
+        log.info("member import finished. processed={}, imported={}, failed={}", processed, imported, failed);
+        return result;
+    }
+
+    //청크 저장 (저장한 건수 반환)
+    // - 확인과 insert 사이에 다른 요청이 같은 이름으로 가입하면 unique 제약조건으로 청크 전체가 롤백됨
+    //   -> 이미 있는 이름을 다시 조회해서 한번 더 시도
+    // - 그래도 실패하거나 제약조건 외의 데이터 오류면 청크를 반으로 나눠 저장 (한 줄만 남으면 그 줄을 실패로 알려줌)
+    // - 커넥션 오류 등 행과 관계없는 오류는 나눠도 실패하므로 그대로 던짐
+    private int saveChunk(Map<Long, MemberImportRow> chunk, Listener listener) {
+        RuntimeException failure;
+        try {
+            return saveChunkOnce(chunk, listener);
+        } catch (DataIntegrityViolationException | PersistenceException e) {
+            failure = rowFailure(e);
+        }
+        if (failure instanceof DataIntegrityViolationException || failure.getCause() instanceof ConstraintViolationException) {
+            log.info("member import chunk conflicted with concurrent join. retrying. lines={}~", chunk.keySet().iterator().next());
+            try {
+                return saveChunkOnce(chunk, listener);
+            } catch (DataIntegrityViolationException | PersistenceException e) {
+                failure = rowFailure(e);
+            }
+        }
+
+        List<Map.Entry<Long, MemberImportRow>> entries = new ArrayList<>(chunk.entrySet());
+        if (entries.size() == 1) {
+            Map.Entry<Long, MemberImportRow> entry = entries.get(0);
+            log.warn("member import line failed. line={}", entry.getKey(), failure);
+            listener.onError(new MemberImportError(entry.getKey(), entry.getValue().getName(), "저장하지 못했습니다."));
+            return 0;
+        }
+        log.info("member import chunk failed. splitting. lines={}~, size={}", entries.get(0).getKey(), entries.size());
+        int half = entries.size() / 2;
+        return saveChunk(toChunk(entries.subList(0, half)), listener)
+                + saveChunk(toChunk(entries.subList(half, entries.size())), listener);
+    }
+
+    //행 데이터 때문에 실패한 경우만 (제약조건 위반, 값이 너무 김 등) 반환하고 나머지는 다시 던짐
+    private static RuntimeException rowFailure(RuntimeException e) {
+        if (e instanceof PersistenceException
+                && !(e.getCause() instanceof ConstraintViolationException || e.getCause() instanceof DataException)) {
+            throw e;
+        }
+        return e;
+    }
+
+    private static Map<Long, MemberImportRow> toChunk(List<Map.Entry<Long, MemberImportRow>> entries) {
+        Map<Long, MemberImportRow> chunk = new LinkedHashMap<>();
+        entries.forEach(entry -> chunk.put(entry.getKey(), entry.getValue()));
+        return chunk;
+    }
+
+    private int saveChunkOnce(Map<Long, MemberImportRow> chunk, Listener listener) {
+        List<MemberImportError> errors = new ArrayList<>();
+        Map<Long, String> saved = new HashMap<>();
+
+        transactionTemplate.executeWithoutResult(status -> {
+            Set<String> names = new HashSet<>();
+            chunk.values().forEach(row -> names.add(row.getName()));
+            Set<String> existing = new HashSet<>(memberRepository.findExistingNames(names));
+
+            Set<String> seen = new HashSet<>();
+            int pending = 0;
+            for (Map.Entry<Long, MemberImportRow> entry : chunk.entrySet()) {
+                MemberImportRow row = entry.getValue();
+                if (existing.contains(row.getName()) || !seen.add(row.getName())) {
+                    errors.add(new MemberImportError(entry.getKey(), row.getName(), DUPLICATE));
+                    continue;
+                }
+
+                Member member = new Member();
+                member.setName(row.getName());
+                member.setAddress(new Address(row.getCity(), row.getStreet(), row.getZipcode()));
+                em.persist(member);
+                saved.put(member.getId(), member.getName());
+
+                if (++pending == flushSize) {
+                    em.flush();
+                    em.clear();
+                    pending = 0;
+                }
+            }
+            em.flush();
+            em.clear();
+            if (!saved.isEmpty()) {
+                //이름 인덱스는 커밋된 후 반영 (버전보다 먼저 등록해서 인덱스가 반영된 후 버전이 올라가도록 함)
+                memberNameIndex.putAll(saved);
+                memberVersion.increment();
+            }
+        });
+
+        //커밋된 후에만 결과를 알려줌 (재시도하면 처음부터 다시 판단)
+        errors.forEach(listener::onError);
+        return saved.size();
+    }
+
+    //DB 에서 실패하기 전에 걸러냄 (청크 전체가 롤백되지 않도록)
+    private static void validate(MemberImportRow row) {
+        if (!StringUtils.hasText(row.getName())) {
+            throw new IllegalArgumentException("회원 이름은 필수 입니다.");
+        }
+        checkLength("회원 이름", row.getName());
+        checkLength("도시", row.getCity());
+        checkLength("거리", row.getStreet());
+        checkLength("우편번호", row.getZipcode());
+    }
+
+    private static void checkLength(String field, String value) {
+        if (value != null && value.length() > MAX_LENGTH) {
+            throw new IllegalArgumentException(field + "은(는) " + MAX_LENGTH + "자 이하여야 합니다.");
+        }
+    }
+
+    private MemberImportRow parse(String text, MemberImportFormat format) {
+        if (format == MemberImportFormat.NDJSON) {
+            try {
+                return objectMapper.readValue(text, MemberImportRow.class);
+            } catch (JsonProcessingException e) {
+                throw new IllegalArgumentException("잘못된 JSON 입니다.");
+            }
+        }
+        List<String> fields = splitCsv(text);
+        return new MemberImportRow(field(fields, 0), field(fields, 1), field(fields, 2), field(fields, 3));
+    }
+
+    //RFC 4180 의 "..." 필드 ("" 는 " 하나) 지원, 한 줄 안의 필드만 처리
+    static List<String> splitCsv(String text) {
+        List<String> fields = new ArrayList<>();
+        StringBuilder field = new StringBuilder();
+        boolean quoted = false;
+        for (int i = 0; i < text.length(); i++) {
+            char c = text.charAt(i);
+            if (quoted) {
+                if (c == '"' && i + 1 < text.length() && text.charAt(i + 1) == '"') {
+                    field.append('"');
+                    i++;
+                } else if (c == '"') {
+                    quoted = false;
+                } else {
+                    field.append(c);
+                }
+            } else if (c == '"') {
+                quoted = true;
+            } else if (c == ',') {
+                fields.add(field.toString());
+                field.setLength(0);
+            } else {
+                field.append(c);
+            }
+        }
+        if (quoted) {
+            throw new IllegalArgumentException("따옴표가 닫히지 않았습니다.");
+        }
+        fields.add(field.toString());
+        return fields;
+    }
+
+    private static String field(List<String> fields, int index) {
+        if (index >= fields.size()) {
+            return null;
+        }
+        String value = fields.get(index).trim();
+        return value.isEmpty() ? null : value;
+    }
+}
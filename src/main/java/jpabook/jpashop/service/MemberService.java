@@ -1,13 +1,22 @@
 package jpabook.jpashop.service;
 
 import jpabook.jpashop.domain.Member;
+import jpabook.jpashop.repository.MemberNameDto;
+import jpabook.jpashop.repository.MemberNameIndex;
 import jpabook.jpashop.repository.MemberRepository;
+import jpabook.jpashop.repository.MemberVersion;
 import lombok.RequiredArgsConstructor;
+import org.hibernate.exception.ConstraintViolationException;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.dao.DataIntegrityViolationException;
+import org.springframework.data.domain.PageRequest;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
 
+import java.sql.SQLException;
 import java.util.List;
+import java.util.Locale;
+import java.util.Objects;
 
 @Service
 @Transactional(readOnly = true)
@@ -19,19 +28,37 @@ public class MemberService {
 
     private final MemberRepository memberRepository;
 
+    private final MemberNameIndex memberNameIndex;
+
+    private final MemberVersion memberVersion;
+
+    private static final String NAME_CONSTRAINT = "uk_member_name";
+
     //회원 가입
+    // - 중복 검사는 uk_member_name 으로 insert 시점에 DB 가 원자적으로 처리 (동시 가입도 하나만 성공)
+    // - 바로 flush 해서 uk_member_name 위반을 이 메서드 안에서 IllegalStateException 으로 바꿈 (다른 데이터 오류는 그대로 던짐)
     @Transactional
     public Long join(Member member) {
-        validateDuplicateMember(member);
-        memberRepository.save(member);
+        validateDuplicateMember(member.getName());
+        try {
+            memberRepository.saveAndFlush(member);
+        } catch (DataIntegrityViolationException e) {
+            throw duplicateName(e);
+        }
+        memberNameIndex.put(member.getId(), member.getName());
+        memberVersion.increment();
         return member.getId();
     }
 
-    //중복회원 검증
-    private void validateDuplicateMember(Member member) {
+    //중복회원 검증 (빠른 실패용, 최종 판단은 unique 제약조건)
+    // - 메모리 이름 인덱스에 없으면 DB 를 조회하지 않음 (다른 서버에서 막 가입한 이름은 insert 시 제약조건으로 걸러짐)
+    // - 인덱스에 있으면 다른 서버에서 이름이 바뀌었을 수 있으므로 exists 쿼리로 한번 더 확인
+    private void validateDuplicateMember(String name) {
         //EXCEPTION
-        List<Member> findMembers = memberRepository.findByName(member.getName());
-        if(!findMembers.isEmpty()) {
+        if (name == null) {
+            return;
+        }
+        if (memberNameIndex.hasName(name) && memberRepository.existsByName(name)) {
             throw new IllegalStateException("이미 존재하는 회원입니다.");
         }
     }
@@ -41,6 +68,11 @@ public class MemberService {
         return memberRepository.findAll();
     }
 
+    //회원 목록 (afterId 다음부터 limit 건, 첫 페이지는 afterId 가 null)
+    public List<MemberNameDto> findMemberNames(Long afterId, int limit) {
+        return memberRepository.findNames(afterId == null ? 0L : afterId, PageRequest.of(0, limit));
+    }
+
     public Member findOne(Long id) {
         return memberRepository.findById(id).get();
     }
@@ -48,6 +80,29 @@ public class MemberService {
     @Transactional
     public void update(Long id, String name) {
         Member member = memberRepository.findById(id).get();
+        if (!Objects.equals(name, member.getName())) {
+            validateDuplicateMember(name);
+        }
         member.setName(name);
+        try {
+            memberRepository.flush();
+        } catch (DataIntegrityViolationException e) {
+            throw duplicateName(e);
+        }
+        memberNameIndex.put(id, name);
+        memberVersion.increment();
+    }
+
+    //uk_member_name 위반이면 중복 회원 예외로 바꾸고, 다른 제약조건/데이터 오류는 그대로 던짐
+    private static RuntimeException duplicateName(DataIntegrityViolationException e) {
+        for (Throwable cause = e; cause != null; cause = cause.getCause()) {
+            String constraintName = cause instanceof ConstraintViolationException
+                    ? ((ConstraintViolationException) cause).getConstraintName()
+                    : cause instanceof SQLException ? cause.getMessage() : null;
+            if (constraintName != null && constraintName.toLowerCase(Locale.ROOT).contains(NAME_CONSTRAINT)) {
+                return new IllegalStateException("이미 존재하는 회원입니다.", e);
+            }
+        }
+        return e;
     }
 }
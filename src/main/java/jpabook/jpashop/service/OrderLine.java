@@ -0,0 +1,21 @@
+package jpabook.jpashop.service;
+
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+import lombok.NoArgsConstructor;
+
+import javax.validation.constraints.NotNull;
+import javax.validation.constraints.Positive;
+
+//일괄 주문의 주문 한건 (회원, 상품, 수량)
+@Getter
+@NoArgsConstructor
+@AllArgsConstructor
+public class OrderLine {
+    @NotNull
+    private Long memberId;
+    @NotNull
+    private Long itemId;
+    @Positive
+    private int count;
+}
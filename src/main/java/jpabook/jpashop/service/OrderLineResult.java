@@ -0,0 +1,21 @@
+package jpabook.jpashop.service;
+
+import lombok.AccessLevel;
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+
+//일괄 주문의 라인별 결과 (성공이면 orderId, 실패면 error)
+@Getter
+@AllArgsConstructor(access = AccessLevel.PRIVATE)
+public class OrderLineResult {
+    private Long orderId;
+    private String error;
+
+    public static OrderLineResult success(Long orderId) {
+        return new OrderLineResult(orderId, null);
+    }
+
+    public static OrderLineResult fail(String error) {
+        return new OrderLineResult(null, error);
+    }
+}
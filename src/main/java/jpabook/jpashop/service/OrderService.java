@@ -4,20 +4,39 @@ import jpabook.jpashop.domain.Delivery;
 import jpabook.jpashop.domain.Member;
 import jpabook.jpashop.domain.Order;
 import jpabook.jpashop.domain.OrderItem;
+import jpabook.jpashop.domain.OrderStatus;
 import jpabook.jpashop.domain.item.Item;
+import jpabook.jpashop.exception.NotEnoughStockException;
 import jpabook.jpashop.repository.ItemRepository;
 import jpabook.jpashop.repository.MemberRepository;
+import jpabook.jpashop.repository.OrderCancelLineDto;
+import jpabook.jpashop.repository.OrderCountEstimator;
+import jpabook.jpashop.repository.OrderListDto;
 import jpabook.jpashop.repository.OrderRepository;
 import jpabook.jpashop.repository.OrderSearch;
+import jpabook.jpashop.repository.SearchPage;
 import lombok.RequiredArgsConstructor;
+import org.springframework.dao.ConcurrencyFailureException;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+import org.springframework.util.StringUtils;
 
+import javax.persistence.OptimisticLockException;
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
 import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.function.Function;
+import java.util.stream.Collectors;
 
+//주문/취소는 RetryingTransactionTemplate 으로 트랜젝션을 직접 시작 (재고 동시 수정 충돌시 재시도)
+// - 클래스에 @Transactional 을 두면 프록시 트랜젝션 안에서 실행되어 재시도할 수 없으므로 조회 메서드에만 지정
 @Service
 @RequiredArgsConstructor
-@Transactional(readOnly = true)
 public class OrderService {
 
     private final OrderRepository orderRepository;
@@ -26,9 +45,30 @@ public class OrderService {
 
     private final ItemRepository itemRepository;
 
+    private final StockReservationService stockReservationService;
+
+    private final SalesRollupService salesRollupService;
+
+    private final RetryingTransactionTemplate retryingTransactionTemplate;
+
+    private final OrderCountEstimator orderCountEstimator;
+
+    public static final int MAX_BATCH_ORDERS = 1000; //일괄 주문 한번에 받을 최대 라인 수
+
+    private static final int BATCH_CHUNK_SIZE = 100; //일괄 주문 트랜젝션 하나에 처리할 라인 수 (hibernate.jdbc.batch_size 와 같게)
+
+    private static final int MAX_BULK_CANCEL = 1000; //일괄 취소 한번에 처리할 최대 주문 수
+
+    private static final int MAX_PAGE_SIZE = 100; //주문 목록 한 페이지 최대 건수
+
+    private static final Duration MAX_CANCEL_RANGE = Duration.ofDays(31); //주문일시로만 일괄 취소할 때 최대 기간
+
     //주문
-    @Transactional
     public Long order(Long memberId, Long itemId, int count) {
+        return retryingTransactionTemplate.execute("order", () -> doOrder(memberId, itemId, count));
+    }
+
+    private Long doOrder(Long memberId, Long itemId, int count) {
         //엔티티 조회
         Member member = memberRepository.findById(memberId).get();
         Item item = itemRepository.findOne(itemId);
@@ -38,7 +78,7 @@ public class OrderService {
         delivery.setAddress(member.getAddress());
 
         //주문상품 생성
-        OrderItem orderItem = OrderItem.createOrderItem(item, item.getPrice(), count);
+        OrderItem orderItem = createOrderItem(item, count);
 
         //주문 생성
         Order order = Order.createOrder(member, delivery, orderItem);
@@ -46,19 +86,209 @@ public class OrderService {
         //주문 저장 (Cascade 옵션이 있으므로 Order 만 save)
         orderRepository.save(order);
 
+        //일별 매출 집계 변경분 (같은 트랜젝션)
+        salesRollupService.recordOrder(order);
+
         return order.getId();
     }
 
+    //여러 주문을 BATCH_CHUNK_SIZE 건씩 나눠서 청크마다 트랜젝션 하나로 처리 (최대 MAX_BATCH_ORDERS 건)
+    // - 청크마다 커밋하므로 영속성 컨텍스트가 청크 크기 이상으로 커지지 않음 (커밋 = flush, 트랜젝션 종료 = clear)
+    // - 청크 안에서 회원, 상품은 in 쿼리 한번씩으로 조회
+    // - insert 는 hibernate.jdbc.batch_size 에 따라 JDBC batch 로 묶여서 커밋 시점에 실행
+    // - 동시 수정 충돌이면 RetryingTransactionTemplate 이 그 청크만 다시 실행하고, 재시도를 넘기면 그 청크의 라인만 실패 처리
+    //   (앞 청크에서 커밋된 주문은 그대로 유지)
+    // - 라인별로 성공(주문 id) / 실패(사유) 를 돌려줌 (실패한 라인은 재고를 변경하지 않음)
+    public List<OrderLineResult> orderBatch(List<OrderLine> lines) {
+        if (lines.size() > MAX_BATCH_ORDERS) {
+            throw new IllegalArgumentException("한번에 주문할 수 있는 건수는 " + MAX_BATCH_ORDERS + "건 입니다.");
+        }
+        List<OrderLineResult> results = new ArrayList<>(lines.size());
+        for (int from = 0; from < lines.size(); from += BATCH_CHUNK_SIZE) {
+            List<OrderLine> chunk = lines.subList(from, Math.min(from + BATCH_CHUNK_SIZE, lines.size()));
+            try {
+                results.addAll(retryingTransactionTemplate.execute("orderBatch", () -> doOrderBatch(chunk)));
+            } catch (ConcurrencyFailureException | OptimisticLockException e) {
+                if (TransactionSynchronizationManager.isActualTransactionActive()) {
+                    throw e; //바깥 트랜젝션이 롤백되므로 라인별 결과를 돌려줄 수 없음
+                }
+                chunk.forEach(line -> results.add(OrderLineResult.fail("동시에 주문이 몰려 처리하지 못했습니다. 다시 시도해 주세요.")));
+            }
+        }
+        return results;
+    }
+
+    private List<OrderLineResult> doOrderBatch(List<OrderLine> lines) {
+        Map<Long, Member> members = memberRepository.findAllById(
+                lines.stream().filter(Objects::nonNull).map(OrderLine::getMemberId).filter(Objects::nonNull).collect(Collectors.toSet())).stream()
+                .collect(Collectors.toMap(Member::getId, Function.identity()));
+        Map<Long, Item> items = itemRepository.findAllById(
+                lines.stream().filter(Objects::nonNull).map(OrderLine::getItemId).filter(Objects::nonNull).collect(Collectors.toSet())).stream()
+                .collect(Collectors.toMap(Item::getId, Function.identity()));
+
+        List<OrderLineResult> results = new ArrayList<>();
+        for (OrderLine line : lines) {
+            //수량이 0 이하면 removeStock 이 재고를 늘리게 되므로 실패 처리
+            if (line == null || line.getCount() <= 0) {
+                results.add(OrderLineResult.fail("주문 수량은 1개 이상이어야 합니다."));
+                continue;
+            }
+            Member member = members.get(line.getMemberId());
+            Item item = items.get(line.getItemId());
+            if (member == null) {
+                results.add(OrderLineResult.fail("존재하지 않는 회원입니다."));
+                continue;
+            }
+            if (item == null) {
+                results.add(OrderLineResult.fail("존재하지 않는 상품입니다."));
+                continue;
+            }
+
+            try {
+                Delivery delivery = new Delivery();
+                delivery.setAddress(member.getAddress());
+
+                Order order = Order.createOrder(member, delivery, createOrderItem(item, line.getCount()));
+                orderRepository.save(order);
+                salesRollupService.recordOrder(order);
+                results.add(OrderLineResult.success(order.getId()));
+            } catch (NotEnoughStockException e) {
+                results.add(OrderLineResult.fail(e.getMessage()));
+            }
+        }
+        return results;
+    }
+
+    //재고 예약이 켜져 있으면 메모리에서 재고를 차감하고 Item 은 변경하지 않음 (row lock 없음)
+    private OrderItem createOrderItem(Item item, int count) {
+        if (stockReservationService.isEnabled()) {
+            stockReservationService.reserve(item.getId(), count);
+            return OrderItem.createReservedOrderItem(item, item.getPrice(), count);
+        }
+        return OrderItem.createOrderItem(item, item.getPrice(), count);
+    }
+
     //취소
-    @Transactional
     public void cancelOrder(Long orderId) {
-        Order order = orderRepository.findOne(orderId);
-        order.cancel();
+        retryingTransactionTemplate.executeWithoutResult("cancelOrder", () -> doCancelOrder(orderId));
+    }
+
+    private void doCancelOrder(Long orderId) {
+        //일괄 취소와 동시에 실행되어도 재고를 두번 복구하지 않도록 주문 row 를 잠그고, 이미 취소된 주문은 건너뜀
+        Order order = orderRepository.findOneForUpdate(orderId);
+        if (order.getStatus() == OrderStatus.CANCEL) {
+            return;
+        }
+        if (stockReservationService.isEnabled()) {
+            order.cancelWithoutStockRestore();
+            order.getOrderItems().forEach(oi -> stockReservationService.release(oi.getItem().getId(), oi.getCount()));
+        } else {
+            order.cancel();
+        }
+        salesRollupService.recordCancel(order);
+    }
+
+    //일괄 취소 (주문 id 목록, 최대 MAX_BULK_CANCEL 건)
+    // - 이미 취소된 주문은 건너뛰고 실제로 취소한 주문 수를 돌려줌
+    // - 배송완료된 주문이 하나라도 있으면 전체를 취소하지 않음
+    public int cancelOrders(List<Long> orderIds) {
+        if (orderIds.size() > MAX_BULK_CANCEL) {
+            throw new IllegalArgumentException("한번에 취소할 수 있는 주문은 " + MAX_BULK_CANCEL + "건 입니다.");
+        }
+        if (orderIds.isEmpty()) {
+            return 0;
+        }
+        return retryingTransactionTemplate.execute("cancelOrders",
+                () -> doCancelOrders(orderRepository.findCancelableIds(orderIds)));
+    }
+
+    //일괄 취소 (검색조건 + 주문일시 from 이상 to 미만)
+    // - 한번에 최대 MAX_BULK_CANCEL 건, 0 을 돌려줄 때까지 반복 호출
+    // - 조건이 없으면 전체 주문이 취소되므로 회원 이름이나 주문일시 범위가 있어야 함
+    // - 회원 이름 없이 주문일시로만 취소할 때는 from, to 가 모두 있어야 하고 최대 MAX_CANCEL_RANGE 기간
+    public int cancelOrders(OrderSearch orderSearch, LocalDateTime from, LocalDateTime to) {
+        boolean hasName = StringUtils.hasText(orderSearch.getMemberName());
+        if (!hasName && from == null && to == null) {
+            throw new IllegalArgumentException("취소할 주문의 회원 이름이나 주문일시 범위가 필요합니다.");
+        }
+        if (from != null && to != null && !from.isBefore(to)) {
+            throw new IllegalArgumentException("주문일시 범위가 잘못되었습니다.");
+        }
+        if (!hasName && (from == null || to == null || Duration.between(from, to).compareTo(MAX_CANCEL_RANGE) > 0)) {
+            throw new IllegalArgumentException("주문일시로만 취소할 때는 " + MAX_CANCEL_RANGE.toDays() + "일 이내의 범위(from, to) 가 필요합니다.");
+        }
+        return retryingTransactionTemplate.execute("cancelOrders",
+                () -> doCancelOrders(orderRepository.findCancelableIds(orderSearch, from, to, MAX_BULK_CANCEL)));
+    }
+
+    //주문마다 엔티티를 로딩해서 취소하지 않고 집합 단위로 처리
+    // - 배송완료 검사 : count 쿼리 한번
+    // - 주문 상태 변경 : bulk update 한번
+    // - 재고 복구 : 상품별로 합친 수량을 상품당 update 하나씩 JDBC batch 로 전송
+    private int doCancelOrders(List<Long> orderIds) {
+        if (orderIds.isEmpty()) {
+            return 0;
+        }
+        if (orderRepository.countDelivered(orderIds) > 0) {
+            throw new IllegalStateException("이미 배송완료된 상품은 취소가 불가능합니다.");
+        }
+
+        //대상 주문은 findCancelableIds 에서 잠궜으므로 취소 라인은 update 전후로 같음
+        List<OrderCancelLineDto> lines = orderRepository.findCancelLines(orderIds);
+        int canceled = (int) orderRepository.cancelAll(orderIds);
+        if (canceled != orderIds.size()) {
+            //그 사이 다른 트랜젝션이 취소/배송완료 처리한 주문이 있음 -> 롤백 후 대상 주문을 다시 조회 (RetryingTransactionTemplate)
+            throw new ConcurrencyFailureException("bulk cancel target changed. expected=" + orderIds.size() + ", canceled=" + canceled);
+        }
+
+        Map<Long, Integer> quantities = new LinkedHashMap<>();
+        lines.forEach(line -> quantities.merge(line.getItemId(), line.getCount(), Integer::sum));
+        if (stockReservationService.isEnabled()) {
+            quantities.forEach(stockReservationService::release);
+        } else {
+            itemRepository.addStocks(quantities);
+        }
+
+        salesRollupService.recordCancel(lines);
+        return canceled;
     }
 
     //검색
+    @Transactional(readOnly = true)
     public List<Order> findOrder(OrderSearch orderSearch) {
         //return orderRepository.findAllByString(orderSearch);
-        return orderRepository.findAll(orderSearch);
+        //return orderRepository.findAll(orderSearch);
+        return orderRepository.findAllCompiled(orderSearch);
+    }
+
+    //주문 목록 화면
+    @Transactional(readOnly = true)
+    public List<OrderListDto> findOrderList(OrderSearch orderSearch) {
+        return orderRepository.findOrderListDtos(orderSearch);
+    }
+
+    //주문 목록 화면 (페이징)
+    // - size + 1 건을 조회해서 다음 페이지 여부를 판단
+    // - 마지막 페이지까지 조회된 경우는 전체 건수를 바로 알 수 있으므로 count 하지 않음
+    // - 그 외에는 OrderCountEstimator 의 캐시/추정값 사용
+    @Transactional(readOnly = true)
+    public SearchPage<OrderListDto> findOrderList(OrderSearch orderSearch, int page, int size) {
+        page = Math.max(page, 0);
+        size = Math.min(Math.max(size, 1), MAX_PAGE_SIZE);
+        long offset = (long) page * size;
+
+        List<OrderListDto> orders = orderRepository.findOrderListDtos(orderSearch, offset, size + 1);
+        boolean hasNext = orders.size() > size;
+        if (hasNext) {
+            orders = orders.subList(0, size);
+        }
+
+        if (!hasNext && (page == 0 || !orders.isEmpty())) {
+            return new SearchPage<>(orders, page, size, offset + orders.size(), true, false);
+        }
+        OrderCountEstimator.Count count = orderCountEstimator.count(orderSearch);
+        //추정값이 이미 조회된 건수보다 작으면 조회된 건수까지는 있는 것으로 표시
+        long total = Math.max(count.getValue(), offset + orders.size() + (hasNext ? 1 : 0));
+        return new SearchPage<>(orders, page, size, total, count.isExact() && total == count.getValue(), hasNext);
     }
 }
@@ -0,0 +1,81 @@
+package jpabook.jpashop.service;
+
+import io.micrometer.core.instrument.MeterRegistry;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.dao.ConcurrencyFailureException;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import javax.persistence.OptimisticLockException;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.function.Supplier;
+
+//동시 수정 충돌(낙관적 락, 데드락 등) 시 새 트랜젝션으로 다시 실행
+// - 충돌한 트랜젝션은 롤백되고 영속성 컨텍스트도 버려지므로 다음 시도는 DB 의 최신 값을 다시 읽음
+// - 재시도 사이에 지수 백오프 + full jitter (0 ~ min(max-backoff, base * 2^n) 랜덤) 만큼 대기
+//   -> 충돌한 요청들이 같은 시점에 다시 부딪히지 않도록 흩어줌
+// - 이미 트랜젝션 안에서 호출되면 재시도하지 않고 바깥 트랜젝션에 참여 (롤백 여부는 바깥에서 결정)
+// - 메트릭 : tx.conflicts (충돌 횟수), tx.retries (재시도 횟수), tx.retry.exhausted (재시도 초과로 실패)
+@Slf4j
+@Component
+public class RetryingTransactionTemplate {
+
+    private final TransactionTemplate transactionTemplate;
+    private final MeterRegistry meterRegistry;
+    private final int maxAttempts;
+    private final long baseBackoffMs;
+    private final long maxBackoffMs;
+
+    public RetryingTransactionTemplate(PlatformTransactionManager transactionManager,
+                                       MeterRegistry meterRegistry,
+                                       @Value("${jpashop.tx-retry.max-attempts:5}") int maxAttempts,
+                                       @Value("${jpashop.tx-retry.base-backoff-ms:10}") long baseBackoffMs,
+                                       @Value("${jpashop.tx-retry.max-backoff-ms:200}") long maxBackoffMs) {
+        this.transactionTemplate = new TransactionTemplate(transactionManager);
+        this.meterRegistry = meterRegistry;
+        this.maxAttempts = maxAttempts;
+        this.baseBackoffMs = baseBackoffMs;
+        this.maxBackoffMs = maxBackoffMs;
+    }
+
+    public <T> T execute(String operation, Supplier<T> action) {
+        if (TransactionSynchronizationManager.isActualTransactionActive()) {
+            return action.get();
+        }
+
+        for (int attempt = 1; ; attempt++) {
+            try {
+                return transactionTemplate.execute(status -> action.get());
+            } catch (ConcurrencyFailureException | OptimisticLockException e) {
+                meterRegistry.counter("tx.conflicts", "operation", operation).increment();
+                if (attempt >= maxAttempts) {
+                    meterRegistry.counter("tx.retry.exhausted", "operation", operation).increment();
+                    log.warn("{} failed after {} attempts by concurrent update", operation, attempt);
+                    throw e;
+                }
+                meterRegistry.counter("tx.retries", "operation", operation).increment();
+                backoff(attempt, e);
+            }
+        }
+    }
+
+    public void executeWithoutResult(String operation, Runnable action) {
+        execute(operation, () -> {
+            action.run();
+            return null;
+        });
+    }
+
+    private void backoff(int attempt, RuntimeException cause) {
+        long ceiling = Math.min(maxBackoffMs, baseBackoffMs << Math.min(attempt - 1, 20));
+        try {
+            Thread.sleep(ThreadLocalRandom.current().nextLong(ceiling + 1));
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw cause;
+        }
+    }
+}
@@ -0,0 +1,157 @@
+package jpabook.jpashop.service;
+
+import jpabook.jpashop.domain.Order;
+import jpabook.jpashop.domain.SalesDaily;
+import jpabook.jpashop.domain.SalesOutbox;
+import jpabook.jpashop.repository.OrderCancelLineDto;
+import jpabook.jpashop.repository.SalesDayTotalDto;
+import jpabook.jpashop.repository.SalesRepository;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.sql.Date;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+
+//일별 매출 집계 (sales_daily) 증분 갱신
+// - 주문/취소 시 같은 트랜젝션에서 sales_outbox 에 변경분을 저장 (record)
+// - 스케줄러가 outbox 를 batch-size 건씩 읽어 (상품, 일) 별로 합친 뒤
+//   sales_daily 에 upsert 하고 읽은 outbox 를 삭제 (한 트랜젝션)
+// - outbox 를 for update 로 잠그므로 서버가 여러대여도 같은 변경분이 두번 반영되지 않음
+//   skip locked : 다른 서버가 잠근 outbox 는 기다리지 않고 건너뛰고 그 다음 row 들을 가져감 (서버끼리 줄 서지 않음)
+// - MySQL 8.0.19 이상 필요 (skip locked, insert ... as new 의 row alias. values(col) 은 8.0.20 부터 deprecated)
+@Slf4j
+@Service
+public class SalesRollupService {
+
+    private final SalesRepository salesRepository;
+    private final JdbcTemplate jdbcTemplate;
+    private final TransactionTemplate transactionTemplate;
+    private final int batchSize;
+
+    public SalesRollupService(SalesRepository salesRepository,
+                              JdbcTemplate jdbcTemplate,
+                              PlatformTransactionManager transactionManager,
+                              @Value("${jpashop.sales-rollup.batch-size:1000}") int batchSize) {
+        this.salesRepository = salesRepository;
+        this.jdbcTemplate = jdbcTemplate;
+        this.transactionTemplate = new TransactionTemplate(transactionManager);
+        this.batchSize = batchSize;
+    }
+
+    //주문 (호출한 트랜젝션에 참여)
+    public void recordOrder(Order order) {
+        record(order, 1);
+    }
+
+    //주문 취소 (호출한 트랜젝션에 참여)
+    public void recordCancel(Order order) {
+        record(order, -1);
+    }
+
+    //일괄 취소 (호출한 트랜젝션에 참여)
+    // - 주문상품을 (상품, 주문일) 별로 합쳐서 outbox 를 저장
+    public void recordCancel(List<OrderCancelLineDto> lines) {
+        Map<Key, long[]> sums = new LinkedHashMap<>();
+        for (OrderCancelLineDto line : lines) {
+            long[] sum = sums.computeIfAbsent(new Key(line.getItemId(), line.getOrderDate().toLocalDate()), k -> new long[2]);
+            sum[0] -= line.getCount();
+            sum[1] -= (long) line.getOrderPrice() * line.getCount();
+        }
+        sums.forEach((key, sum) -> salesRepository.saveOutbox(SalesOutbox.of(key.itemId, key.day, (int) sum[0], sum[1])));
+    }
+
+    private void record(Order order, int sign) {
+        order.getOrderItems().forEach(orderItem -> salesRepository.saveOutbox(SalesOutbox.of(order, orderItem, sign)));
+    }
+
+    //기간 내 상품별 일 매출 (아직 반영되지 않은 outbox 는 포함되지 않음)
+    @Transactional(readOnly = true)
+    public List<SalesDaily> findDaily(LocalDate from, LocalDate to, Long itemId) {
+        return salesRepository.findDaily(from, to, itemId);
+    }
+
+    //기간 내 일별 합계
+    @Transactional(readOnly = true)
+    public List<SalesDayTotalDto> findDayTotals(LocalDate from, LocalDate to) {
+        return salesRepository.findDayTotals(from, to);
+    }
+
+    //쌓인 outbox 를 모두 반영 (반영한 outbox 건수 반환)
+    @Scheduled(fixedDelayString = "${jpashop.sales-rollup.apply-interval-ms:1000}")
+    public int apply() {
+        int total = 0;
+        while (true) {
+            Integer applied = transactionTemplate.execute(status -> applyBatch());
+            total += applied;
+            if (applied < batchSize) {
+                return total;
+            }
+        }
+    }
+
+    private int applyBatch() {
+        List<Object[]> rows = jdbcTemplate.query(
+                "select sales_outbox_id, item_id, sales_day, qty, revenue from sales_outbox" +
+                        " order by sales_outbox_id limit ? for update skip locked",
+                (rs, rowNum) -> new Object[]{rs.getLong(1), rs.getLong(2), rs.getDate(3), rs.getLong(4), rs.getLong(5)},
+                batchSize);
+        if (rows.isEmpty()) {
+            return 0;
+        }
+
+        //같은 (상품, 일) 은 하나로 합쳐서 upsert 횟수를 줄임
+        Map<Key, long[]> sums = new LinkedHashMap<>();
+        List<Object[]> ids = new ArrayList<>(rows.size());
+        for (Object[] row : rows) {
+            long[] sum = sums.computeIfAbsent(new Key((Long) row[1], ((Date) row[2]).toLocalDate()), k -> new long[2]);
+            sum[0] += (Long) row[3];
+            sum[1] += (Long) row[4];
+            ids.add(new Object[]{row[0]});
+        }
+
+        List<Object[]> upserts = new ArrayList<>(sums.size());
+        sums.forEach((key, sum) -> upserts.add(new Object[]{key.itemId, Date.valueOf(key.day), sum[0], sum[1]}));
+        jdbcTemplate.batchUpdate(
+                "insert into sales_daily (item_id, sales_day, qty, revenue) values (?, ?, ?, ?) as new" +
+                        " on duplicate key update qty = sales_daily.qty + new.qty, revenue = sales_daily.revenue + new.revenue",
+                upserts);
+        jdbcTemplate.batchUpdate("delete from sales_outbox where sales_outbox_id = ?", ids);
+
+        log.debug("sales rollup applied. outbox={}, rows={}", rows.size(), upserts.size());
+        return rows.size();
+    }
+
+    private static class Key {
+        private final Long itemId;
+        private final LocalDate day;
+
+        Key(Long itemId, LocalDate day) {
+            this.itemId = itemId;
+            this.day = day;
+        }
+
+        @Override
+        public boolean equals(Object o) {
+            if (this == o) return true;
+            if (!(o instanceof Key)) return false;
+            Key key = (Key) o;
+            return itemId.equals(key.itemId) && day.equals(key.day);
+        }
+
+        @Override
+        public int hashCode() {
+            return Objects.hash(itemId, day);
+        }
+    }
+}
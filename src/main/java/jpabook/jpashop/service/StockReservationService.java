@@ -0,0 +1,242 @@
+package jpabook.jpashop.service;
+
+import jpabook.jpashop.domain.item.Item;
+import jpabook.jpashop.exception.NotEnoughStockException;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.TransactionDefinition;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import javax.annotation.PreDestroy;
+import javax.persistence.EntityManagerFactory;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeSet;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.locks.ReadWriteLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+
+//메모리 재고 예약
+// - 주문마다 Item 을 조회해서 변경감지로 재고를 줄이면 같은 상품 주문이 row lock 에서 직렬화됨
+// - 상품별 재고를 메모리 카운터(AtomicInteger) 로 들고 CAS 로 차감/복구 (DB 를 거치지 않음)
+// - 변경량(delta) 만 모아두었다가 주기적으로 batch update 로 item 테이블에 반영 (write-behind)
+// - 카운터는 이 서버 메모리에만 있으므로 서버가 한대일 때만 사용
+// - 상품별 ReadWriteLock : 차감/복구(read lock) 는 동시에 실행, 카운터를 버리는 reset 과 변경량을 반영하는 flush(write lock) 와는 겹치지 않음
+//   (차감 자체는 CAS 이고, write lock 은 DB 와 카운터를 맞추는 짧은 구간에만 잡음)
+@Slf4j
+@Service
+public class StockReservationService {
+
+    private final JdbcTemplate jdbcTemplate;
+    private final TransactionTemplate transactionTemplate;
+    private final EntityManagerFactory emf;
+    private final boolean enabled;
+
+    private final Map<Long, AtomicInteger> available = new ConcurrentHashMap<>(); //현재 주문 가능 재고
+    private final Map<Long, AtomicInteger> pending = new ConcurrentHashMap<>(); //DB 에 아직 반영되지 않은 변경량
+    private final Map<Long, ReadWriteLock> locks = new ConcurrentHashMap<>();
+
+    public StockReservationService(JdbcTemplate jdbcTemplate,
+                                   PlatformTransactionManager transactionManager,
+                                   EntityManagerFactory emf,
+                                   @Value("${jpashop.stock.reservation.enabled:false}") boolean enabled) {
+        this.jdbcTemplate = jdbcTemplate;
+        this.transactionTemplate = new TransactionTemplate(transactionManager);
+        //reset 은 관리자 수정 트랜젝션의 afterCommit 에서 호출되므로 항상 새 트랜젝션으로 반영
+        this.transactionTemplate.setPropagationBehavior(TransactionDefinition.PROPAGATION_REQUIRES_NEW);
+        this.emf = emf;
+        this.enabled = enabled;
+    }
+
+    public boolean isEnabled() {
+        return enabled;
+    }
+
+    //재고 차감
+    // - 재고가 모자라면 NotEnoughStockException (Item.removeStock 과 동일)
+    // - 주문 트랜젝션이 롤백되면 차감한 재고를 다시 돌려놓음
+    public void reserve(Long itemId, int quantity) {
+        ReadWriteLock lock = lock(itemId);
+        lock.readLock().lock();
+        try {
+            AtomicInteger stock = stock(itemId, lock);
+            while (true) {
+                int current = stock.get();
+                int rest = current - quantity;
+                if (rest < 0) {
+                    throw new NotEnoughStockException("need more stock");
+                }
+                if (stock.compareAndSet(current, rest)) {
+                    break;
+                }
+            }
+            delta(itemId).addAndGet(-quantity);
+        } finally {
+            lock.readLock().unlock();
+        }
+
+        if (TransactionSynchronizationManager.isSynchronizationActive()) {
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+                @Override
+                public void afterCompletion(int status) {
+                    if (status != STATUS_COMMITTED) {
+                        restore(itemId, quantity);
+                    }
+                }
+            });
+        }
+    }
+
+    //재고 복구 (주문 취소)
+    // - 취소 트랜젝션이 커밋된 후에 반영
+    public void release(Long itemId, int quantity) {
+        if (TransactionSynchronizationManager.isSynchronizationActive()) {
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+                @Override
+                public void afterCommit() {
+                    restore(itemId, quantity);
+                }
+            });
+        } else {
+            restore(itemId, quantity);
+        }
+    }
+
+    //관리자가 재고를 직접 수정한 경우 (ItemService.updateItem)
+    // - DB 값이 기준이 되므로 메모리 카운터를 버리고 다음 요청때 다시 읽음
+    // - 아직 반영되지 않은 변경량(이전 주문) 은 버리지 않고 DB 에 반영한 후 버림
+    public void reset(Long itemId) {
+        if (TransactionSynchronizationManager.isSynchronizationActive()) {
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+                @Override
+                public void afterCommit() {
+                    evict(itemId);
+                }
+            });
+        } else {
+            evict(itemId);
+        }
+    }
+
+    //모아둔 변경량을 item 테이블에 batch update 로 반영
+    // - 반영하는 상품들의 write lock 을 잡은 채로 변경량을 꺼내고 커밋까지 마침
+    //   (커밋 전에 reset 이 카운터를 버리면 다음 차감이 아직 변경량이 반영되지 않은 DB 재고를 다시 읽게 됨)
+    // - 여러 상품의 lock 을 잡는 곳은 여기뿐이고, 상품 id 순서로 잡음 (스케쥴러와 shutdown 이 동시에 실행되지 않도록 synchronized)
+    @Scheduled(fixedDelayString = "${jpashop.stock.reservation.flush-interval-ms:1000}")
+    public synchronized void flush() {
+        if (pending.isEmpty()) {
+            return;
+        }
+
+        List<Long> itemIds = new ArrayList<>(new TreeSet<>(pending.keySet()));
+        List<ReadWriteLock> held = new ArrayList<>();
+        List<Object[]> batchArgs = new ArrayList<>();
+        try {
+            for (Long itemId : itemIds) {
+                ReadWriteLock lock = lock(itemId);
+                lock.writeLock().lock();
+                held.add(lock);
+                AtomicInteger delta = pending.get(itemId);
+                int value = delta == null ? 0 : delta.getAndSet(0);
+                if (value != 0) {
+                    batchArgs.add(new Object[]{value, itemId});
+                }
+            }
+            if (batchArgs.isEmpty()) {
+                return;
+            }
+
+            try {
+                //version 도 올려서 같은 상품을 엔티티로 수정중인 트랜젝션(관리자 수정) 이 덮어쓰지 않도록 함
+                transactionTemplate.executeWithoutResult(status ->
+                        jdbcTemplate.batchUpdate("update item set stock_quantity = stock_quantity + ?, version = version + 1 where item_id = ?", batchArgs));
+            } catch (RuntimeException e) {
+                //반영하지 못한 변경량은 다음 flush 때 다시 시도
+                batchArgs.forEach(args -> delta((Long) args[1]).addAndGet((Integer) args[0]));
+                log.warn("stock write-behind flush failed. items={}", itemIds, e);
+                return;
+            }
+        } finally {
+            held.forEach(lock -> lock.writeLock().unlock());
+        }
+
+        //JDBC 로 직접 수정했으므로 2차 캐시의 Item 을 비워줌
+        batchArgs.forEach(args -> emf.getCache().evict(Item.class, args[1]));
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        flush();
+    }
+
+    private void restore(Long itemId, int quantity) {
+        ReadWriteLock lock = lock(itemId);
+        lock.readLock().lock();
+        try {
+            stock(itemId, lock).addAndGet(quantity);
+            delta(itemId).addAndGet(quantity);
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    //write lock 안에서 카운터를 버리고 남은 변경량을 DB 에 반영
+    // - 진행중인 차감/복구가 끝난 후 실행되고, 반영이 끝나기 전에는 다음 차감이 DB 재고를 다시 읽지 않음
+    private void evict(Long itemId) {
+        ReadWriteLock lock = lock(itemId);
+        lock.writeLock().lock();
+        try {
+            available.remove(itemId);
+            AtomicInteger delta = pending.remove(itemId);
+            int value = delta == null ? 0 : delta.getAndSet(0);
+            if (value == 0) {
+                return;
+            }
+            try {
+                transactionTemplate.executeWithoutResult(status ->
+                        jdbcTemplate.update("update item set stock_quantity = stock_quantity + ?, version = version + 1 where item_id = ?", value, itemId));
+            } catch (RuntimeException e) {
+                //다음 flush 때 다시 시도
+                delta(itemId).addAndGet(value);
+                log.warn("stock write-behind flush failed on reset. item={}", itemId, e);
+                return;
+            }
+        } finally {
+            lock.writeLock().unlock();
+        }
+        emf.getCache().evict(Item.class, itemId);
+    }
+
+    //처음 요청된 상품만 DB 에서 현재 재고를 읽어옴
+    // - ConcurrentHashMap.computeIfAbsent 안에서 DB 를 조회하면 같은 bin 의 다른 상품까지 막히므로 상품별 lock 으로 한번만 읽음
+    private AtomicInteger stock(Long itemId, ReadWriteLock lock) {
+        AtomicInteger stock = available.get(itemId);
+        if (stock != null) {
+            return stock;
+        }
+        synchronized (lock) {
+            stock = available.get(itemId);
+            if (stock == null) {
+                stock = new AtomicInteger(jdbcTemplate.queryForObject("select stock_quantity from item where item_id = ?", Integer.class, itemId));
+                available.put(itemId, stock);
+            }
+            return stock;
+        }
+    }
+
+    private ReadWriteLock lock(Long itemId) {
+        return locks.computeIfAbsent(itemId, id -> new ReentrantReadWriteLock());
+    }
+
+    private AtomicInteger delta(Long itemId) {
+        return pending.computeIfAbsent(itemId, id -> new AtomicInteger());
+    }
+}
@@ -0,0 +1,36 @@
+package jpabook.jpashop.service.query;
+
+import jpabook.jpashop.domain.Address;
+import jpabook.jpashop.domain.Order;
+import jpabook.jpashop.domain.OrderStatus;
+import jpabook.jpashop.repository.query.OrderBatchLoaders;
+import lombok.Data;
+
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.stream.Collectors;
+
+@Data
+public class OrderDto {
+
+    private Long orderId;
+    private String name;
+    private LocalDateTime orderDate;
+    private OrderStatus orderStatus;
+    private Address address;
+    private List<OrderItemDto> orderItems;
+
+    //member, delivery, orderItems 는 지연로딩 대신 배치 로더에 요청
+    // - loaders.dispatch() 후에 값이 채워짐
+    // - fetch plan 으로 이미 로딩된 연관관계는 바로 채워짐
+    // - 조회되지 않은 member, delivery 는 null 로 콜백하지 않고 dispatch() 에서 예외
+    public OrderDto(Order order, OrderBatchLoaders loaders) {
+        orderId = order.getId();
+        orderDate = order.getOrderDate();
+        orderStatus = order.getStatus();
+        loaders.member(order).thenAccept(m -> name = m.getName());
+        loaders.delivery(order).thenAccept(d -> address = d.getAddress());
+        loaders.orderItems(order).thenAccept(items ->
+                orderItems = items.stream().map(orderItem -> new OrderItemDto(orderItem)).collect(Collectors.toList()));
+    }
+}
@@ -0,0 +1,66 @@
+package jpabook.jpashop.service.query;
+
+import jpabook.jpashop.domain.Order;
+import jpabook.jpashop.repository.OrderCursor;
+import jpabook.jpashop.repository.OrderFetchPlan;
+import jpabook.jpashop.repository.OrderRepository;
+import jpabook.jpashop.repository.OrderSearch;
+import jpabook.jpashop.repository.query.OrderBatchLoaders;
+import lombok.RequiredArgsConstructor;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.util.List;
+import java.util.function.Function;
+import java.util.stream.Collectors;
+
+//API 용 조회 서비스 (OSIV off)
+// - 엔티티 조회와 DTO 변환을 하나의 읽기 전용 트랜젝션 안에서 끝냄
+// - 컨트롤러는 완성된 DTO 만 받으므로 JSON 변환 중에는 DB 커넥션을 잡고 있지 않음
+@Service
+@Transactional(readOnly = true)
+@RequiredArgsConstructor
+public class OrderQueryService {
+
+    private final OrderRepository orderRepository;
+    private final OrderBatchLoaders orderBatchLoaders;
+
+    //엔티티를 그대로 반환하는 경우 (v1) : fetch plan 의 연관관계가 모두 로딩된 상태로 반환
+    public List<Order> findOrders(OrderSearch orderSearch, OrderFetchPlan plan) {
+        return orderRepository.findAll(orderSearch, plan);
+    }
+
+    public List<OrderDto> findOrderDtos(OrderSearch orderSearch) {
+        return toDtos(orderRepository.findAll(orderSearch, OrderFetchPlan.DETAIL), o -> new OrderDto(o, orderBatchLoaders));
+    }
+
+    public List<OrderDto> findOrderDtosWithItem() {
+        return toDtos(orderRepository.findAllWithItem(), o -> new OrderDto(o, orderBatchLoaders));
+    }
+
+    //orderItems 는 배치 로더로 주문 id in 조회
+    public List<OrderDto> findOrderDtos(int offset, int limit) {
+        return toDtos(orderRepository.findAllByWithMemberDelivery(offset, limit), o -> new OrderDto(o, orderBatchLoaders));
+    }
+
+    public List<OrderDto> findOrderDtos(OrderCursor cursor, int limit) {
+        List<Order> orders = orderRepository.findAllByWithMemberDelivery(cursor, limit);
+        orderRepository.fetchOrderItems(orders);
+        return toDtos(orders, o -> new OrderDto(o, orderBatchLoaders));
+    }
+
+    public List<SimpleOrderDto> findSimpleOrderDtos(OrderSearch orderSearch) {
+        return toDtos(orderRepository.findAll(orderSearch, OrderFetchPlan.SIMPLE), o -> new SimpleOrderDto(o, orderBatchLoaders));
+    }
+
+    public List<SimpleOrderDto> findSimpleOrderDtosWithMemberDelivery() {
+        return toDtos(orderRepository.findAllByWithMemberDelivery(), o -> new SimpleOrderDto(o, orderBatchLoaders));
+    }
+
+    //fetch plan 에 없는 연관관계는 배치 로더가 트랜젝션 안에서 채움
+    private <T> List<T> toDtos(List<Order> orders, Function<Order, T> mapper) {
+        List<T> result = orders.stream().map(mapper).collect(Collectors.toList());
+        orderBatchLoaders.dispatch();
+        return result;
+    }
+}
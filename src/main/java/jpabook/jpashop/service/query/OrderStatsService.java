@@ -0,0 +1,60 @@
+package jpabook.jpashop.service.query;
+
+import jpabook.jpashop.domain.OrderStatus;
+import jpabook.jpashop.repository.query.MemberOrderTotalDto;
+import jpabook.jpashop.repository.query.OrderStatsQueryRepository;
+import jpabook.jpashop.repository.query.OrderStatusRevenueDto;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+//주문 금액 집계 (대시보드, 주문 목록 화면)
+// - 모든 결과를 jpashop.order-stats.bucket-ms 구간 단위로 캐시 (구간 안에서는 DB 를 다시 조회하지 않음)
+// - 주문별 합계는 구간마다 주문 id 별로 모아두고 없는 주문만 group by 한번으로 조회
+@Service
+@Transactional(readOnly = true)
+public class OrderStatsService {
+
+    private final OrderStatsQueryRepository orderStatsQueryRepository;
+    private final TimeBucketCache cache;
+
+    public OrderStatsService(OrderStatsQueryRepository orderStatsQueryRepository,
+                             @Value("${jpashop.order-stats.bucket-ms:60000}") long bucketMillis) {
+        this.orderStatsQueryRepository = orderStatsQueryRepository;
+        this.cache = new TimeBucketCache(bucketMillis);
+    }
+
+    public Map<Long, Long> findOrderTotals(Collection<Long> orderIds) {
+        Map<Long, Long> cached = cache.get("orderTotals", ConcurrentHashMap::new);
+
+        List<Long> missing = new ArrayList<>();
+        for (Long orderId : orderIds) {
+            if (!cached.containsKey(orderId)) {
+                missing.add(orderId);
+            }
+        }
+        if (!missing.isEmpty()) {
+            Map<Long, Long> loaded = orderStatsQueryRepository.findOrderTotals(missing);
+            missing.forEach(orderId -> cached.put(orderId, loaded.getOrDefault(orderId, 0L)));
+        }
+
+        Map<Long, Long> totals = new HashMap<>();
+        orderIds.forEach(orderId -> totals.put(orderId, cached.get(orderId)));
+        return totals;
+    }
+
+    public List<MemberOrderTotalDto> findMemberTotals(OrderStatus status, int limit) {
+        return cache.get("memberTotals:" + status + ":" + limit, () -> orderStatsQueryRepository.findMemberTotals(status, limit));
+    }
+
+    public List<OrderStatusRevenueDto> findStatusRevenue() {
+        return cache.get("statusRevenue", orderStatsQueryRepository::findStatusRevenue);
+    }
+}
@@ -0,0 +1,29 @@
+package jpabook.jpashop.service.query;
+
+import jpabook.jpashop.domain.Address;
+import jpabook.jpashop.domain.Order;
+import jpabook.jpashop.domain.OrderStatus;
+import jpabook.jpashop.repository.query.OrderBatchLoaders;
+import lombok.Data;
+
+import java.time.LocalDateTime;
+
+@Data
+public class SimpleOrderDto {
+    private Long orderId;
+    private String name;
+    private LocalDateTime orderDate;
+    private OrderStatus orderStatus;
+    private Address address;
+
+    // 지연로딩으로 초기화하면 각 레코드마다 추가적으로 쿼리가 발생되므로 배치 로더에 요청
+    // - loaders.dispatch() 시점에 member, delivery 가 각각 in 쿼리 한번으로 조회됨
+    // - 조회되지 않은 member, delivery 는 null 로 콜백하지 않고 dispatch() 에서 예외
+    public SimpleOrderDto(Order order, OrderBatchLoaders loaders) {
+        orderId = order.getId();
+        orderDate = order.getOrderDate();
+        orderStatus = order.getStatus();
+        loaders.member(order).thenAccept(m -> name = m.getName());
+        loaders.delivery(order).thenAccept(d -> address = d.getAddress());
+    }
+}
@@ -0,0 +1,70 @@
+package jpabook.jpashop.service.query;
+
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.LongSupplier;
+import java.util.function.Supplier;
+
+//시간 구간(bucket) 단위 캐시
+// - 같은 구간 안에서는 처음 계산한 값을 그대로 사용, 구간이 바뀌면 다시 계산
+// - 집계 결과처럼 bucket 길이만큼 늦게 반영되어도 되는 값에만 사용
+public class TimeBucketCache {
+
+    private final long bucketMillis;
+    private final LongSupplier clock;
+    private final Map<String, Entry> entries = new ConcurrentHashMap<>();
+
+    public TimeBucketCache(long bucketMillis) {
+        this(bucketMillis, System::currentTimeMillis);
+    }
+
+    TimeBucketCache(long bucketMillis, LongSupplier clock) {
+        this.bucketMillis = bucketMillis;
+        this.clock = clock;
+    }
+
+    //구간이 바뀐 직후 같은 key 로 동시에 요청이 와도 loader 는 한번만 실행
+    // - compute 안에서는 빈 future 만 등록하고 loader 는 밖에서 실행 (map 의 bin 을 조회 시간 동안 잡고 있지 않음)
+    // - 나머지 요청은 같은 future 를 기다렸다가 결과를 사용, loader 가 실패하면 등록을 지워서 다음 요청이 다시 조회
+    @SuppressWarnings("unchecked")
+    public <T> T get(String key, Supplier<T> loader) {
+        long bucket = clock.getAsLong() / bucketMillis;
+        Entry entry = entries.get(key);
+        if (entry == null || entry.bucket != bucket) {
+            Entry created = new Entry(bucket);
+            entry = entries.compute(key, (k, current) ->
+                    current != null && current.bucket == bucket ? current : created);
+            if (entry == created) {
+                load(key, created, loader);
+            }
+        }
+        try {
+            return (T) entry.value.join();
+        } catch (CompletionException e) {
+            if (e.getCause() instanceof RuntimeException) {
+                throw (RuntimeException) e.getCause();
+            }
+            throw e;
+        }
+    }
+
+    private void load(String key, Entry entry, Supplier<?> loader) {
+        try {
+            entry.value.complete(loader.get());
+        } catch (RuntimeException | Error e) {
+            entries.remove(key, entry);
+            entry.value.completeExceptionally(e);
+        }
+    }
+
+    private static class Entry {
+        private final long bucket;
+        private final CompletableFuture<Object> value = new CompletableFuture<>();
+
+        Entry(long bucket) {
+            this.bucket = bucket;
+        }
+    }
+}
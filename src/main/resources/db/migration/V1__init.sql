@@ -0,0 +1,79 @@
+-- 초기 스키마 (엔티티 매핑과 동일)
+-- 이미 테이블이 있는 DB 는 baseline-on-migrate 로 V1 을 건너뜀
+
+create table member (
+    member_id bigint not null,
+    city varchar(255),
+    street varchar(255),
+    zipcode varchar(255),
+    name varchar(255),
+    primary key (member_id)
+) engine=InnoDB;
+
+create table delivery (
+    delivery_id bigint not null,
+    city varchar(255),
+    street varchar(255),
+    zipcode varchar(255),
+    status varchar(255),
+    primary key (delivery_id)
+) engine=InnoDB;
+
+create table orders (
+    order_id bigint not null,
+    order_date datetime(6),
+    status varchar(255),
+    delivery_id bigint,
+    member_id bigint,
+    primary key (order_id)
+) engine=InnoDB;
+
+create table item (
+    dtype varchar(31) not null,
+    item_id bigint not null,
+    name varchar(255),
+    price integer not null,
+    stock_quantity integer not null,
+    artist varchar(255),
+    etc varchar(255),
+    author varchar(255),
+    isbn varchar(255),
+    actor varchar(255),
+    director varchar(255),
+    primary key (item_id)
+) engine=InnoDB;
+
+create table order_item (
+    order_item_id bigint not null,
+    count integer not null,
+    order_price integer not null,
+    item_id bigint,
+    order_id bigint,
+    primary key (order_item_id)
+) engine=InnoDB;
+
+create table category (
+    category_id bigint not null,
+    name varchar(255),
+    parent_id bigint,
+    primary key (category_id)
+) engine=InnoDB;
+
+create table category_item (
+    category_id bigint not null,
+    item_id bigint not null
+) engine=InnoDB;
+
+create table hibernate_sequence (
+    next_val bigint
+) engine=InnoDB;
+
+insert into hibernate_sequence values (1);
+
+alter table orders add constraint fk_orders_delivery foreign key (delivery_id) references delivery (delivery_id);
+alter table orders add constraint fk_orders_member foreign key (member_id) references member (member_id);
+alter table order_item add constraint fk_order_item_item foreign key (item_id) references item (item_id);
+alter table order_item add constraint fk_order_item_order foreign key (order_id) references orders (order_id);
+alter table category add constraint fk_category_parent foreign key (parent_id) references category (category_id);
+alter table category_item add constraint fk_category_item_item foreign key (item_id) references item (item_id);
+alter table category_item add constraint fk_category_item_category foreign key (category_id) references category (category_id);
@@ -0,0 +1,12 @@
+-- 주문 목록 화면 (GET /orders) 용 인덱스
+-- 주문상태 조건 + 주문일시 정렬 + 회원 조인을 인덱스만으로 처리 (InnoDB 보조 인덱스는 PK 를 포함하므로 order_id 도 커버됨)
+create index idx_orders_status_date_member on orders (status, order_date, member_id);
+
+-- 대표상품 조회 (주문별 첫번째 order_item)
+create index idx_order_item_order_item on order_item (order_id, item_id);
+
+-- 회원 이름 검색 (EXACT / PREFIX)
+create index idx_member_name on member (name);
+
+-- Keyset 페이징 (/api/v3.1/orders?cursor=)
+create index idx_orders_date_id on orders (order_date, order_id);
@@ -0,0 +1,22 @@
+-- 주문/취소 변경분 outbox (주문 트랜젝션에서 insert, SalesRollupService 가 반영 후 delete)
+create table sales_outbox (
+    sales_outbox_id bigint not null,
+    item_id bigint,
+    sales_day date,
+    qty integer not null,
+    revenue bigint not null,
+    created_at datetime(6),
+    primary key (sales_outbox_id)
+) engine=InnoDB;
+
+-- 상품별 일 매출 집계 (기간 조회는 이 테이블만 사용)
+create table sales_daily (
+    item_id bigint not null,
+    sales_day date not null,
+    qty bigint not null,
+    revenue bigint not null,
+    primary key (item_id, sales_day)
+) engine=InnoDB;
+
+-- 기간별 전체 상품 합계 (GET /api/v1/sales/days)
+create index idx_sales_daily_day on sales_daily (sales_day);
@@ -0,0 +1,2 @@
+-- 상품 재고 낙관적 락 (Item.version)
+alter table item add column version bigint not null default 0;
@@ -0,0 +1,23 @@
+-- 카테고리 closure table (조상, 자손, 거리)
+create table category_closure (
+    ancestor_id bigint not null,
+    descendant_id bigint not null,
+    depth integer not null,
+    primary key (ancestor_id, descendant_id)
+) engine=InnoDB;
+
+-- 상위 카테고리 조회 / 카테고리 이동
+create index idx_category_closure_descendant on category_closure (descendant_id);
+
+-- 카테고리의 상품 조회 (category_id 조건 + item_id 를 인덱스에서 바로 읽음)
+create index idx_category_item_category_item on category_item (category_id, item_id);
+
+-- 기존 카테고리의 경로를 parent_id 로부터 생성
+insert into category_closure (ancestor_id, descendant_id, depth)
+with recursive paths (ancestor_id, descendant_id, depth) as (
+    select category_id, category_id, 0 from category
+    union all
+    select p.ancestor_id, c.category_id, p.depth + 1
+    from paths p join category c on c.parent_id = p.descendant_id
+)
+select ancestor_id, descendant_id, depth from paths;
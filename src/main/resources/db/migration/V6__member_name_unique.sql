@@ -0,0 +1,18 @@
+-- 회원 이름 중복을 DB 에서 막음 (MemberService.join 의 중복 검사가 동시 가입에서도 안전하도록)
+
+-- 이미 같은 이름의 회원이 있으면 제약조건을 만들 수 없으므로 먼저 정리
+-- - 가장 먼저 가입한 회원(member_id 가 가장 작은 회원) 은 이름을 유지
+-- - 나머지는 이름 뒤에 '#member_id' 를 붙여서 변경 (예: kim -> kim#15), 운영자가 확인 후 회원에게 안내
+-- - 그룹은 unique 제약조건과 같은 collation 으로 묶임 (대소문자만 다른 이름도 중복)
+update member m
+join (select name, min(member_id) as keep_id
+      from member
+      where name is not null
+      group by name
+      having count(*) > 1) d on m.name = d.name and m.member_id <> d.keep_id
+set m.name = concat(left(m.name, 200), '#', m.member_id);
+
+alter table member add constraint uk_member_name unique (name);
+
+-- unique 인덱스가 이름 검색(EXACT / PREFIX) 도 처리하므로 기존 인덱스는 제거
+drop index idx_member_name on member;
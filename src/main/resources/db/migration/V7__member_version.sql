@@ -0,0 +1,9 @@
+-- 회원 테이블 버전 (회원 목록 API 의 ETag, 서버가 여러대여도 같은 값)
+-- 회원을 추가/변경하는 트랜젝션에서 MemberVersion 이 1 증가
+create table member_version (
+    member_version_id bigint not null,
+    version bigint not null,
+    primary key (member_version_id)
+) engine=InnoDB;
+
+insert into member_version (member_version_id, version) values (1, 0);
@@ -0,0 +1,5 @@
+-- 주문 목록 (GET /orders) 정렬 : order by order_date desc, order_id desc
+-- (status, order_date, member_id) 는 같은 order_date 안에서 member_id 순이라 order_id 정렬에 filesort 가 필요했음
+-- order_id 를 order_date 바로 뒤에 두어서 주문상태 조건이 있으면 인덱스 순서 그대로 읽음 (member_id 는 페이지 row 만 PK 로 읽음)
+create index idx_orders_status_date_id on orders (status, order_date, order_id);
+drop index idx_orders_status_date_member on orders;
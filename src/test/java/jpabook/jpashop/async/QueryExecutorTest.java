@@ -0,0 +1,92 @@
+package jpabook.jpashop.async;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.http.HttpStatus;
+import org.springframework.web.server.ResponseStatusException;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class QueryExecutorTest {
+
+    //동시 실행 2, 대기열 1
+    private final QueryExecutor executor = new QueryExecutor(new SimpleMeterRegistry(), true, false, 2, 1);
+
+    @AfterEach
+    public void shutdown() {
+        executor.shutdown();
+    }
+
+    @Test
+    public void 대기열초과시_거절() throws Exception {
+        //given
+        CountDownLatch latch = new CountDownLatch(1);
+        List<CompletableFuture<Integer>> accepted = new ArrayList<>();
+        for (int i = 0; i < 3; i++) {
+            accepted.add(executor.submit(() -> await(latch)));
+        }
+
+        //when
+        CompletableFuture<Integer> rejected = executor.submit(() -> 1);
+
+        //then
+        ExecutionException e = assertThrows(ExecutionException.class, () -> rejected.get(1, TimeUnit.SECONDS));
+        assertEquals(HttpStatus.SERVICE_UNAVAILABLE, ((ResponseStatusException) e.getCause()).getStatus(), "대기열이 차면 바로 503 으로 거절해야 한다.");
+
+        latch.countDown();
+        for (CompletableFuture<Integer> future : accepted) {
+            assertEquals(1, future.get(1, TimeUnit.SECONDS));
+        }
+        assertEquals(1, executor.submit(() -> 1).get(1, TimeUnit.SECONDS), "작업이 끝나면 다시 받을 수 있어야 한다.");
+    }
+
+    @Test
+    public void 동시실행수_제한() throws Exception {
+        //given
+        AtomicInteger running = new AtomicInteger();
+        AtomicInteger max = new AtomicInteger();
+
+        //when
+        List<CompletableFuture<Integer>> futures = new ArrayList<>();
+        for (int i = 0; i < 3; i++) {
+            futures.add(executor.submit(() -> {
+                max.accumulateAndGet(running.incrementAndGet(), Math::max);
+                sleep(50);
+                running.decrementAndGet();
+                return 1;
+            }));
+        }
+        for (CompletableFuture<Integer> future : futures) {
+            future.get(1, TimeUnit.SECONDS);
+        }
+
+        //then
+        assertEquals(2, max.get(), "커넥션 풀 크기 이상 동시에 실행되면 안된다.");
+    }
+
+    private static int await(CountDownLatch latch) {
+        try {
+            latch.await();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+        return 1;
+    }
+
+    private static void sleep(long millis) {
+        try {
+            Thread.sleep(millis);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+}
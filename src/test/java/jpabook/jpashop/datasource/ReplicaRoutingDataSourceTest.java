@@ -0,0 +1,116 @@
+package jpabook.jpashop.datasource;
+
+import com.zaxxer.hikari.HikariDataSource;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.datasource.DataSourceTransactionManager;
+import org.springframework.jdbc.datasource.LazyConnectionDataSourceProxy;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import javax.sql.DataSource;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+//내장 H2 DB 를 primary / replica 로 사용
+// - 각 DB 의 db_name 테이블에 자기 이름을 넣어두고 어느 DB 로 조회됐는지 확인
+class ReplicaRoutingDataSourceTest {
+
+    private static final String LAG_QUERY = "select lag from replica_lag";
+
+    private final List<HikariDataSource> dataSources = new ArrayList<>();
+
+    @AfterEach
+    public void close() {
+        dataSources.forEach(HikariDataSource::close);
+    }
+
+    @Test
+    public void 읽기전용_트랜젝션은_replica() throws Exception {
+        //given
+        DataSource dataSource = routing(ReplicaBalance.ROUND_ROBIN, "primary", "replica").dataSource;
+
+        //when, then
+        assertEquals("primary", dbName(dataSource, false), "쓰기 트랜젝션은 primary 로 가야 한다.");
+        assertEquals("replica", dbName(dataSource, true), "읽기 전용 트랜젝션은 replica 로 가야 한다.");
+        assertEquals("primary", new JdbcTemplate(dataSource).queryForObject("select name from db_name", String.class), "트랜젝션 밖은 primary");
+    }
+
+    @Test
+    public void replica_라운드로빈() throws Exception {
+        //given
+        DataSource dataSource = routing(ReplicaBalance.ROUND_ROBIN, "primary", "replica1", "replica2").dataSource;
+
+        //when
+        Set<String> names = new HashSet<>();
+        for (int i = 0; i < 4; i++) {
+            names.add(dbName(dataSource, true));
+        }
+
+        //then
+        assertEquals(Set.of("replica1", "replica2"), names, "replica 를 번갈아 사용해야 한다.");
+    }
+
+    @Test
+    public void 복제지연시_primary() throws Exception {
+        //given
+        Routing routing = routing(ReplicaBalance.LEAST_CONNECTIONS, "primary", "replica");
+        new JdbcTemplate(dataSources.get(1)).update("update replica_lag set lag = 30");
+
+        //when
+        routing.routingDataSource.checkLag(LAG_QUERY, "lag", 5);
+
+        //then
+        assertEquals(List.of(), routing.routingDataSource.availableReplicas(), "지연된 replica 는 제외되어야 한다.");
+        assertEquals("primary", dbName(routing.dataSource, true), "사용할 replica 가 없으면 primary 로 조회해야 한다.");
+
+        //복제가 따라잡으면 다시 사용
+        new JdbcTemplate(dataSources.get(1)).update("update replica_lag set lag = 0");
+        routing.routingDataSource.checkLag(LAG_QUERY, "lag", 5);
+        assertEquals("replica", dbName(routing.dataSource, true));
+    }
+
+    private String dbName(DataSource dataSource, boolean readOnly) {
+        TransactionTemplate tx = new TransactionTemplate(new DataSourceTransactionManager(dataSource));
+        tx.setReadOnly(readOnly);
+        return tx.execute(status -> new JdbcTemplate(dataSource).queryForObject("select name from db_name", String.class));
+    }
+
+    private Routing routing(ReplicaBalance balance, String primaryName, String... replicaNames) {
+        DataSource primary = embedded(primaryName);
+        List<DataSource> replicas = new ArrayList<>();
+        for (String name : replicaNames) {
+            replicas.add(embedded(name));
+        }
+        ReplicaRoutingDataSource routingDataSource = new ReplicaRoutingDataSource(primary, replicas, balance);
+        return new Routing(routingDataSource, new LazyConnectionDataSourceProxy(routingDataSource));
+    }
+
+    private DataSource embedded(String name) {
+        HikariDataSource dataSource = new HikariDataSource();
+        dataSource.setJdbcUrl("jdbc:h2:mem:" + name + System.nanoTime() + ";DB_CLOSE_DELAY=-1");
+        dataSource.setUsername("sa");
+        dataSources.add(dataSource);
+
+        JdbcTemplate jdbc = new JdbcTemplate(dataSource);
+        jdbc.execute("create table db_name (name varchar(20))");
+        jdbc.update("insert into db_name values (?)", name);
+        jdbc.execute("create table replica_lag (lag bigint)");
+        jdbc.update("insert into replica_lag values (0)");
+        return dataSource;
+    }
+
+    private static class Routing {
+        private final ReplicaRoutingDataSource routingDataSource;
+        private final DataSource dataSource;
+
+        Routing(ReplicaRoutingDataSource routingDataSource, DataSource dataSource) {
+            this.routingDataSource = routingDataSource;
+            this.dataSource = dataSource;
+        }
+    }
+}
@@ -0,0 +1,61 @@
+package jpabook.jpashop.profiler;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+class SqlProfileTest {
+
+    private static final int THREADS = 8;
+    private static final int QUERIES = 10_000;
+
+    @AfterEach
+    public void end() {
+        SqlProfile.end();
+    }
+
+    @Test
+    public void 여러스레드_동시집계() throws Exception {
+        //given
+        SqlProfile profile = SqlProfile.start("SqlProfileTest");
+
+        //when (작업 스레드들이 같은 SqlProfile 을 bind 하고 동시에 집계)
+        ExecutorService executor = Executors.newFixedThreadPool(THREADS);
+        CountDownLatch start = new CountDownLatch(1);
+        List<Future<?>> futures = new ArrayList<>();
+        for (int i = 0; i < THREADS; i++) {
+            futures.add(executor.submit(() -> {
+                SqlProfile previous = SqlProfile.bind(profile);
+                try {
+                    start.await();
+                    for (int j = 0; j < QUERIES; j++) {
+                        SqlProfile.current().addQuery(1_000);
+                        SqlProfile.current().addRow();
+                    }
+                } finally {
+                    SqlProfile.bind(previous);
+                }
+                return null;
+            }));
+        }
+        start.countDown();
+        for (Future<?> future : futures) {
+            future.get(10, TimeUnit.SECONDS);
+        }
+        executor.shutdown();
+
+        //then
+        assertEquals(THREADS * QUERIES, profile.getQueries(), "동시에 집계한 쿼리 수가 유실되지 않아야 한다.");
+        assertEquals(THREADS * QUERIES, profile.getRows());
+        assertEquals(THREADS * QUERIES * 1_000L, profile.getDbTimeNanos());
+    }
+}
@@ -0,0 +1,35 @@
+package jpabook.jpashop.repository;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.Arrays;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+
+class CategoryTreeTest {
+
+    @Test
+    public void 트리생성() throws Exception {
+        //given
+        List<Object[]> rows = Arrays.asList(
+                new Object[]{3L, "소설", 2L},
+                new Object[]{1L, "음반", null},
+                new Object[]{2L, "도서", null},
+                new Object[]{4L, "IT", 2L},
+                new Object[]{5L, "삭제된 부모", 99L});
+
+        //when
+        CategoryTree.Snapshot snapshot = CategoryTree.Snapshot.of(rows);
+
+        //then
+        assertEquals(2, snapshot.getRoots().size(), "부모가 없는 카테고리가 최상위");
+        assertEquals(1L, snapshot.getRoots().get(0).getId(), "id 순으로 정렬");
+        assertEquals(Arrays.asList(3L, 4L), Arrays.asList(
+                snapshot.find(2L).getChildren().get(0).getId(),
+                snapshot.find(2L).getChildren().get(1).getId()));
+        assertEquals(2L, snapshot.find(4L).getParentId());
+        assertNull(snapshot.find(5L), "부모가 없는 카테고리는 트리에 포함되지 않는다.");
+    }
+}
@@ -0,0 +1,52 @@
+package jpabook.jpashop.repository;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.Set;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+class MemberNameIndexTest {
+
+    //트랜젝션 밖에서 put 하면 바로 반영됨
+    private final MemberNameIndex index = new MemberNameIndex(null, null, 100);
+
+    @Test
+    public void 이름검색() throws Exception {
+        //given
+        index.put(1L, "김영한");
+        index.put(2L, "김영희");
+        index.put(3L, "박영한");
+        index.put(4L, "김");
+
+        //when, then
+        assertEquals(Set.of(1L), index.find("김영한", NameMatch.EXACT), "이름이 같은 회원만 찾아야 한다.");
+        assertEquals(Set.of(1L, 2L, 4L), index.find("김", NameMatch.PREFIX), "접두어가 같은 회원을 찾아야 한다.");
+        assertEquals(Set.of(1L, 3L), index.find("영한", NameMatch.CONTAINS), "이름에 포함된 회원을 찾아야 한다.");
+        assertEquals(Set.of(), index.find("이", NameMatch.CONTAINS), "없는 이름은 빈 결과");
+    }
+
+    @Test
+    public void 이름변경() throws Exception {
+        //given
+        index.put(1L, "김영한");
+
+        //when
+        index.put(1L, "이영한");
+
+        //then
+        assertEquals(Set.of(), index.find("김", NameMatch.PREFIX), "변경 전 이름으로는 찾을 수 없다.");
+        assertEquals(Set.of(1L), index.find("이영", NameMatch.PREFIX), "변경된 이름으로 찾아야 한다.");
+    }
+
+    @Test
+    public void 대소문자구분없음() throws Exception {
+        //given
+        index.put(1L, "Kim");
+
+        //when, then
+        assertEquals(Set.of(1L), index.find("kim", NameMatch.EXACT), "DB like 검색처럼 대소문자를 구분하지 않는다.");
+        assertEquals(Set.of(1L), index.find("KI", NameMatch.PREFIX));
+        assertEquals(Set.of(1L), index.find("IM", NameMatch.CONTAINS));
+    }
+}
@@ -0,0 +1,63 @@
+package jpabook.jpashop.repository.query;
+
+import org.junit.jupiter.api.Test;
+
+import javax.persistence.EntityNotFoundException;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.stream.Collectors;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class BatchLoaderTest {
+
+    @Test
+    public void 한번에조회() throws Exception {
+        //given
+        AtomicInteger calls = new AtomicInteger();
+        BatchLoader<Long, String> loader = new BatchLoader<>(ids -> {
+            calls.incrementAndGet();
+            return ids.stream().collect(Collectors.toMap(id -> id, id -> "회원" + id));
+        }, null);
+        CompletableFuture<String> first = loader.load(1L);
+        CompletableFuture<String> second = loader.load(2L);
+
+        //when
+        loader.dispatch();
+
+        //then
+        assertEquals("회원1", first.get());
+        assertEquals("회원2", second.get());
+        assertEquals(1, calls.get(), "모인 키를 한번에 조회해야 한다.");
+    }
+
+    @Test
+    public void 결과에없는키_예외() throws Exception {
+        //given
+        BatchLoader<Long, String> loader = new BatchLoader<>(ids -> Map.of(1L, "회원1"), null);
+        CompletableFuture<String> found = loader.load(1L);
+        CompletableFuture<String> missing = loader.load(2L);
+
+        //when
+        assertThrows(EntityNotFoundException.class, loader::dispatch, "조회되지 않은 키가 있으면 dispatch 가 실패해야 한다.");
+
+        //then
+        assertEquals("회원1", found.get());
+        assertTrue(missing.isCompletedExceptionally(), "콜백에 null 을 넘기지 않아야 한다.");
+    }
+
+    @Test
+    public void 결과에없는키_기본값() throws Exception {
+        //given
+        BatchLoader<Long, List<String>> loader = new BatchLoader<>(ids -> Map.of(), List.of());
+        CompletableFuture<List<String>> items = loader.load(1L);
+
+        //when
+        loader.dispatch();
+
+        //then
+        assertEquals(List.of(), items.get(), "기본값이 있으면 기본값으로 완료해야 한다.");
+    }
+}
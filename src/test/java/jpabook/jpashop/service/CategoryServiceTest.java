@@ -0,0 +1,130 @@
+package jpabook.jpashop.service;
+
+import jpabook.jpashop.domain.item.Book;
+import jpabook.jpashop.repository.CategoryItemDto;
+import jpabook.jpashop.repository.CategoryRepository;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.test.context.junit.jupiter.SpringExtension;
+import org.springframework.transaction.annotation.Transactional;
+
+import javax.persistence.EntityManager;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Set;
+import java.util.stream.Collectors;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+@ExtendWith(SpringExtension.class)
+@SpringBootTest
+@Transactional
+class CategoryServiceTest {
+
+    @Autowired
+    EntityManager em;
+
+    @Autowired
+    CategoryService categoryService;
+
+    @Autowired
+    CategoryRepository categoryRepository;
+
+    @Test
+    public void 하위카테고리상품조회() throws Exception {
+        //given
+        Long books = categoryService.create("도서", null);
+        Long it = categoryService.create("IT", books);
+        Long java = categoryService.create("자바", it);
+        Long music = categoryService.create("음반", null);
+
+        Book book1 = createBook("도서 안내");
+        Book book2 = createBook("IT 입문");
+        Book book3 = createBook("자바 ORM");
+        Book album = createBook("음반 안내");
+        categoryService.addItem(books, book1.getId());
+        categoryService.addItem(it, book2.getId());
+        categoryService.addItem(java, book3.getId());
+        categoryService.addItem(it, book3.getId()); //여러 하위 카테고리에 속한 상품
+        categoryService.addItem(music, album.getId());
+        em.flush();
+
+        //when
+        List<CategoryItemDto> first = categoryService.findItems(books, null, 2);
+        List<CategoryItemDto> second = categoryService.findItems(books, first.get(1).getItemId(), 2);
+
+        //then
+        assertEquals(Arrays.asList(book1.getId(), book2.getId()), ids(first));
+        assertEquals(Arrays.asList(book3.getId()), ids(second), "하위 카테고리의 상품이 한번씩만 조회되어야 한다.");
+        assertEquals(Arrays.asList(book2.getId(), book3.getId()), ids(categoryService.findItems(it, null, 10)));
+    }
+
+    @Test
+    public void 카테고리이동() throws Exception {
+        //given
+        Long books = categoryService.create("도서", null);
+        Long it = categoryService.create("IT", books);
+        Long java = categoryService.create("자바", it);
+        Long music = categoryService.create("음반", null);
+
+        //when
+        categoryService.move(it, music);
+
+        //then
+        assertEquals(Set.of(books), Set.copyOf(categoryRepository.findDescendantIds(books)), "이동한 서브트리는 기존 조상에서 빠져야 한다.");
+        assertEquals(Set.of(music, it, java), Set.copyOf(categoryRepository.findDescendantIds(music)), "하위 카테고리도 함께 이동해야 한다.");
+        assertThrows(IllegalArgumentException.class, () -> categoryService.move(music, java), "자신의 하위로 이동할 수 없다.");
+    }
+
+    @Test
+    public void 없는카테고리() throws Exception {
+        //given
+        Long books = categoryService.create("도서", null);
+
+        //when, then
+        assertThrows(IllegalArgumentException.class, () -> categoryService.create("IT", -1L), "없는 상위 카테고리 아래에 만들 수 없다.");
+        assertThrows(IllegalArgumentException.class, () -> categoryService.move(-1L, books));
+        assertThrows(IllegalArgumentException.class, () -> categoryService.move(books, -1L));
+        assertThrows(IllegalArgumentException.class, () -> categoryService.addItem(books, -1L));
+        assertTrue(categoryService.exists(books), "트리 스냅샷이 갱신되기 전에도 DB 에서 확인해야 한다.");
+        assertFalse(categoryService.exists(-1L));
+    }
+
+    @Test
+    public void 같은상품_중복추가() throws Exception {
+        //given
+        Long books = categoryService.create("도서", null);
+        Book book = createBook("자바 ORM");
+        categoryService.addItem(books, book.getId());
+        em.flush();
+
+        //when
+        categoryService.addItem(books, book.getId());
+        em.flush();
+
+        //then
+        Number rows = (Number) em.createNativeQuery("select count(*) from category_item where category_id = ? and item_id = ?")
+                .setParameter(1, books)
+                .setParameter(2, book.getId())
+                .getSingleResult();
+        assertEquals(1, rows.intValue(), "이미 있는 상품은 다시 추가되지 않아야 한다.");
+    }
+
+    private List<Long> ids(List<CategoryItemDto> items) {
+        return items.stream().map(CategoryItemDto::getItemId).collect(Collectors.toList());
+    }
+
+    private Book createBook(String name) {
+        Book book = new Book();
+        book.setName(name);
+        book.setPrice(10000);
+        book.setStockQuantity(10);
+        em.persist(book);
+        return book;
+    }
+}
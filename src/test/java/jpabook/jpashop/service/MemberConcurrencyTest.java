@@ -0,0 +1,77 @@
+package jpabook.jpashop.service;
+
+import jpabook.jpashop.domain.Member;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.test.context.junit.jupiter.SpringExtension;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+//동시 가입 (트랜젝션을 커밋해야 하므로 @Transactional 을 사용하지 않고 테스트 후 직접 삭제)
+@ExtendWith(SpringExtension.class)
+@SpringBootTest
+class MemberConcurrencyTest {
+
+    private static final String NAME = "동시가입회원";
+    private static final int JOINS = 8;
+
+    @Autowired
+    MemberService memberService;
+
+    @Autowired
+    JdbcTemplate jdbcTemplate;
+
+    @Test
+    public void 같은이름_동시가입() throws Exception {
+        //when
+        ExecutorService executor = Executors.newFixedThreadPool(JOINS);
+        CountDownLatch start = new CountDownLatch(1);
+        AtomicInteger success = new AtomicInteger();
+        AtomicInteger duplicated = new AtomicInteger();
+        List<Future<?>> futures = new ArrayList<>();
+        for (int i = 0; i < JOINS; i++) {
+            futures.add(executor.submit(() -> {
+                Member member = new Member();
+                member.setName(NAME);
+                start.await();
+                try {
+                    memberService.join(member);
+                    success.incrementAndGet();
+                } catch (IllegalStateException e) {
+                    assertEquals("이미 존재하는 회원입니다.", e.getMessage());
+                    duplicated.incrementAndGet();
+                }
+                return null;
+            }));
+        }
+        start.countDown();
+        for (Future<?> future : futures) {
+            future.get(60, TimeUnit.SECONDS);
+        }
+        executor.shutdown();
+
+        //then
+        Integer members = jdbcTemplate.queryForObject("select count(*) from member where name = ?", Integer.class, NAME);
+        assertEquals(1, success.get(), "같은 이름으로는 한명만 가입해야 한다.");
+        assertEquals(JOINS - 1, duplicated.get(), "나머지는 중복 회원 예외가 발생해야 한다.");
+        assertEquals(1, members, "같은 이름의 회원은 하나만 저장되어야 한다.");
+    }
+
+    @AfterEach
+    public void cleanUp() {
+        jdbcTemplate.update("delete from member where name = ?", NAME);
+    }
+}
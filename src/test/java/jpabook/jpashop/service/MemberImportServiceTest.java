@@ -0,0 +1,173 @@
+package jpabook.jpashop.service;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import jpabook.jpashop.repository.MemberNameIndex;
+import jpabook.jpashop.repository.MemberRepository;
+import jpabook.jpashop.repository.MemberVersion;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.test.context.junit.jupiter.SpringExtension;
+import org.springframework.transaction.PlatformTransactionManager;
+
+import javax.persistence.EntityManager;
+import java.io.StringReader;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.stream.Collectors;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+//청크마다 커밋되므로 @Transactional 을 사용하지 않고 테스트 후 직접 삭제
+@ExtendWith(SpringExtension.class)
+@SpringBootTest
+class MemberImportServiceTest {
+
+    @Autowired
+    EntityManager em;
+
+    @Autowired
+    MemberRepository memberRepository;
+
+    @Autowired
+    MemberNameIndex memberNameIndex;
+
+    @Autowired
+    MemberVersion memberVersion;
+
+    @Autowired
+    ObjectMapper objectMapper;
+
+    @Autowired
+    PlatformTransactionManager transactionManager;
+
+    @Autowired
+    JdbcTemplate jdbcTemplate;
+
+    @Test
+    public void CSV_일괄등록() throws Exception {
+        //given
+        MemberImportService memberImportService = service(2, 1);
+        String version = memberVersion.current();
+        jdbcTemplate.update("insert into member (member_id, name) values (?, ?)", 900_000_001L, "import-기존");
+        String csv = "name,city,street,zipcode\n" +
+                "import-1,서울,강가,1\n" +
+                "import-2,\"서울, 강남\",\"\"\"큰\"\" 길\",2\n" +
+                "import-1,서울,강가,3\n" +          //파일 안에서 중복 (다른 청크)
+                "import-기존,서울,강가,4\n" +        //이미 가입된 회원
+                ",서울,강가,5\n" +                   //이름 없음
+                "\n" +
+                "import-3,부산,해운대,6\n";
+
+        //when
+        List<MemberImportError> errors = new ArrayList<>();
+        List<MemberImportProgress> progress = new ArrayList<>();
+        MemberImportProgress result = memberImportService.importMembers(new StringReader(csv), MemberImportFormat.CSV,
+                new MemberImportService.Listener() {
+                    @Override
+                    public void onError(MemberImportError error) {
+                        errors.add(error);
+                    }
+
+                    @Override
+                    public void onProgress(MemberImportProgress p) {
+                        progress.add(p);
+                    }
+                });
+
+        //then
+        assertEquals(6, result.getProcessed());
+        assertEquals(3, result.getImported());
+        assertEquals(3, result.getFailed());
+        assertTrue(result.isDone());
+        assertEquals(Arrays.asList(4L, 5L, 6L), errors.stream().map(MemberImportError::getLine).sorted().collect(Collectors.toList()),
+                "실패한 줄 번호를 알려줘야 한다.");
+        assertTrue(progress.size() > 1, "청크마다 진행상황을 알려줘야 한다.");
+        assertEquals("서울, 강남", memberRepository.findByName("import-2").get(0).getAddress().getCity());
+        assertEquals("\"큰\" 길", memberRepository.findByName("import-2").get(0).getAddress().getStreet());
+        assertTrue(memberNameIndex.hasName("import-3"), "등록된 회원은 이름 인덱스에 반영되어야 한다.");
+        assertNotEquals(version, memberVersion.current(), "회원 테이블 버전이 DB 에서 증가해야 한다.");
+    }
+
+    @Test
+    public void NDJSON_일괄등록() throws Exception {
+        //given
+        MemberImportService memberImportService = service(1000, 100);
+        String ndjson = "{\"name\":\"import-json\",\"city\":\"서울\"}\n" +
+                "{\"name\":\n";
+
+        //when
+        List<MemberImportError> errors = new ArrayList<>();
+        MemberImportProgress result = memberImportService.importMembers(new StringReader(ndjson), MemberImportFormat.NDJSON,
+                new MemberImportService.Listener() {
+                    @Override
+                    public void onError(MemberImportError error) {
+                        errors.add(error);
+                    }
+
+                    @Override
+                    public void onProgress(MemberImportProgress p) {
+                    }
+                });
+
+        //then
+        assertEquals(1, result.getImported());
+        assertEquals(1, errors.size());
+        assertEquals(2L, errors.get(0).getLine(), "잘못된 JSON 줄은 실패로 알려줘야 한다.");
+        assertEquals("서울", memberRepository.findByName("import-json").get(0).getAddress().getCity());
+    }
+
+    @Test
+    public void 저장실패한줄만실패() throws Exception {
+        //given
+        MemberImportService memberImportService = service(4, 100);
+        String longName = "import-" + "가".repeat(250);
+        String csv = "import-a,서울,강가,1\n" +
+                longName + ",서울,강가,2\n" +        //컬럼 길이 초과
+                "import-b,서울,강가,3\n" +
+                "import-c,서울,강가,bad\n" +         //DB 에서 실패
+                "import-d,서울,강가,5\n";
+        jdbcTemplate.execute("alter table member add constraint ck_member_import_test check (zipcode <> 'bad')");
+
+        //when
+        List<MemberImportError> errors = new ArrayList<>();
+        MemberImportProgress result;
+        try {
+            result = memberImportService.importMembers(new StringReader(csv), MemberImportFormat.CSV,
+                    new MemberImportService.Listener() {
+                        @Override
+                        public void onError(MemberImportError error) {
+                            errors.add(error);
+                        }
+
+                        @Override
+                        public void onProgress(MemberImportProgress p) {
+                        }
+                    });
+        } finally {
+            jdbcTemplate.execute("alter table member drop constraint ck_member_import_test");
+        }
+
+        //then
+        assertEquals(3, result.getImported(), "실패한 줄 때문에 청크의 다른 줄이 빠지지 않아야 한다.");
+        assertEquals(2, result.getFailed());
+        assertEquals(Arrays.asList(2L, 4L), errors.stream().map(MemberImportError::getLine).sorted().collect(Collectors.toList()));
+        assertEquals(1, memberRepository.findByName("import-d").size());
+    }
+
+    @AfterEach
+    public void cleanUp() {
+        jdbcTemplate.update("delete from member where name like 'import-%'");
+    }
+
+    private MemberImportService service(int chunkSize, int flushSize) {
+        return new MemberImportService(em, memberRepository, memberNameIndex, memberVersion, objectMapper,
+                transactionManager, chunkSize, flushSize);
+    }
+}
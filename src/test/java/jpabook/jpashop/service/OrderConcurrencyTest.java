@@ -0,0 +1,224 @@
+package jpabook.jpashop.service;
+
+import jpabook.jpashop.domain.Address;
+import jpabook.jpashop.domain.Member;
+import jpabook.jpashop.domain.item.Book;
+import jpabook.jpashop.exception.NotEnoughStockException;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.test.context.junit.jupiter.SpringExtension;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import javax.persistence.EntityManager;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+//동시 주문 (트랜젝션을 커밋해야 하므로 @Transactional 을 사용하지 않고 테스트 후 직접 삭제)
+@ExtendWith(SpringExtension.class)
+@SpringBootTest(properties = "jpashop.tx-retry.max-attempts=100")
+class OrderConcurrencyTest {
+
+    private static final int BUYERS = 64;
+    private static final int STOCK = 50;
+
+    @Autowired
+    EntityManager em;
+
+    @Autowired
+    OrderService orderService;
+
+    @Autowired
+    JdbcTemplate jdbcTemplate;
+
+    @Autowired
+    PlatformTransactionManager transactionManager;
+
+    private Long memberId;
+    private Long itemId;
+
+    @Test
+    public void 동시주문_초과판매없음() throws Exception {
+        //given
+        TransactionTemplate tx = new TransactionTemplate(transactionManager);
+        tx.executeWithoutResult(status -> {
+            Member member = new Member();
+            member.setName("동시주문회원");
+            member.setAddress(new Address("서울", "강가", "123-123"));
+            em.persist(member);
+
+            Book book = new Book();
+            book.setName("시골 JPA");
+            book.setPrice(10000);
+            book.setStockQuantity(STOCK);
+            em.persist(book);
+
+            memberId = member.getId();
+            itemId = book.getId();
+        });
+
+        //when
+        ExecutorService executor = Executors.newFixedThreadPool(BUYERS);
+        CountDownLatch start = new CountDownLatch(1);
+        AtomicInteger success = new AtomicInteger();
+        AtomicInteger soldOut = new AtomicInteger();
+        List<Future<?>> futures = new ArrayList<>();
+        for (int i = 0; i < BUYERS; i++) {
+            futures.add(executor.submit(() -> {
+                start.await();
+                try {
+                    orderService.order(memberId, itemId, 1);
+                    success.incrementAndGet();
+                } catch (NotEnoughStockException e) {
+                    soldOut.incrementAndGet();
+                }
+                return null;
+            }));
+        }
+        start.countDown();
+        for (Future<?> future : futures) {
+            future.get(60, TimeUnit.SECONDS);
+        }
+        executor.shutdown();
+
+        //then
+        Integer stock = jdbcTemplate.queryForObject("select stock_quantity from item where item_id = ?", Integer.class, itemId);
+        Integer ordered = jdbcTemplate.queryForObject("select coalesce(sum(count), 0) from order_item where item_id = ?", Integer.class, itemId);
+        assertEquals(STOCK, success.get(), "재고 수량만큼만 주문에 성공해야 한다.");
+        assertEquals(BUYERS - STOCK, soldOut.get(), "나머지는 재고 부족으로 실패해야 한다.");
+        assertEquals(0, stock, "재고는 음수가 되거나 유실되지 않아야 한다.");
+        assertEquals(STOCK, ordered, "주문 수량의 합은 차감된 재고와 같아야 한다.");
+    }
+
+    @Test
+    public void 동시취소_재고중복복구없음() throws Exception {
+        //given
+        TransactionTemplate tx = new TransactionTemplate(transactionManager);
+        tx.executeWithoutResult(status -> {
+            Member member = new Member();
+            member.setName("동시취소회원");
+            member.setAddress(new Address("서울", "강가", "123-123"));
+            em.persist(member);
+
+            Book book = new Book();
+            book.setName("시골 JPA");
+            book.setPrice(10000);
+            book.setStockQuantity(STOCK);
+            em.persist(book);
+
+            memberId = member.getId();
+            itemId = book.getId();
+        });
+        List<Long> orderIds = new ArrayList<>();
+        for (int i = 0; i < 10; i++) {
+            orderIds.add(orderService.order(memberId, itemId, 1));
+        }
+
+        //when (일괄 취소와 개별 취소가 같은 주문을 동시에 취소)
+        ExecutorService executor = Executors.newFixedThreadPool(8);
+        CountDownLatch start = new CountDownLatch(1);
+        AtomicInteger canceled = new AtomicInteger();
+        List<Future<?>> futures = new ArrayList<>();
+        for (int i = 0; i < 8; i++) {
+            int n = i;
+            futures.add(executor.submit(() -> {
+                start.await();
+                if (n % 2 == 0) {
+                    canceled.addAndGet(orderService.cancelOrders(orderIds));
+                } else {
+                    orderService.cancelOrder(orderIds.get(n));
+                }
+                return null;
+            }));
+        }
+        start.countDown();
+        for (Future<?> future : futures) {
+            future.get(60, TimeUnit.SECONDS);
+        }
+        executor.shutdown();
+
+        //then
+        Integer stock = jdbcTemplate.queryForObject("select stock_quantity from item where item_id = ?", Integer.class, itemId);
+        Integer canceledOrders = jdbcTemplate.queryForObject("select count(*) from orders where member_id = ? and status = 'CANCEL'", Integer.class, memberId);
+        assertEquals(10, canceledOrders, "모든 주문이 취소되어야 한다.");
+        assertEquals(STOCK, stock, "재고는 취소된 수량만큼 한번만 복구되어야 한다.");
+    }
+
+    @Test
+    public void 동시일괄주문_라인별결과() throws Exception {
+        //given
+        TransactionTemplate tx = new TransactionTemplate(transactionManager);
+        tx.executeWithoutResult(status -> {
+            Member member = new Member();
+            member.setName("동시일괄주문회원");
+            member.setAddress(new Address("서울", "강가", "123-123"));
+            em.persist(member);
+
+            Book book = new Book();
+            book.setName("시골 JPA");
+            book.setPrice(10000);
+            book.setStockQuantity(STOCK * 4);
+            em.persist(book);
+
+            memberId = member.getId();
+            itemId = book.getId();
+        });
+
+        //when (여러 청크로 나뉘는 일괄 주문 4건이 같은 상품을 동시에 주문)
+        ExecutorService executor = Executors.newFixedThreadPool(4);
+        CountDownLatch start = new CountDownLatch(1);
+        List<Future<List<OrderLineResult>>> futures = new ArrayList<>();
+        for (int i = 0; i < 4; i++) {
+            futures.add(executor.submit(() -> {
+                List<OrderLine> lines = new ArrayList<>();
+                for (int j = 0; j < 150; j++) {
+                    lines.add(new OrderLine(memberId, itemId, 1));
+                }
+                start.await();
+                return orderService.orderBatch(lines);
+            }));
+        }
+        start.countDown();
+        int success = 0;
+        for (Future<List<OrderLineResult>> future : futures) {
+            List<OrderLineResult> results = future.get(60, TimeUnit.SECONDS);
+            assertEquals(150, results.size(), "라인 수만큼 결과가 있어야 한다.");
+            success += (int) results.stream().filter(r -> r.getOrderId() != null).count();
+        }
+        executor.shutdown();
+
+        //then
+        Integer stock = jdbcTemplate.queryForObject("select stock_quantity from item where item_id = ?", Integer.class, itemId);
+        Integer ordered = jdbcTemplate.queryForObject("select coalesce(sum(count), 0) from order_item where item_id = ?", Integer.class, itemId);
+        assertEquals(STOCK * 4, success, "재고 수량만큼만 주문에 성공해야 한다.");
+        assertEquals(0, stock, "재고는 음수가 되거나 유실되지 않아야 한다.");
+        assertEquals(STOCK * 4, ordered, "성공한 라인 수와 주문 수량의 합이 같아야 한다.");
+    }
+
+    @AfterEach
+    public void cleanUp() {
+        if (itemId == null) {
+            return;
+        }
+        List<Long> deliveryIds = jdbcTemplate.queryForList("select delivery_id from orders where member_id = ?", Long.class, memberId);
+        jdbcTemplate.update("delete from sales_outbox where item_id = ?", itemId);
+        jdbcTemplate.update("delete from sales_daily where item_id = ?", itemId);
+        jdbcTemplate.update("delete from order_item where item_id = ?", itemId);
+        jdbcTemplate.update("delete from orders where member_id = ?", memberId);
+        deliveryIds.forEach(id -> jdbcTemplate.update("delete from delivery where delivery_id = ?", id));
+        jdbcTemplate.update("delete from item where item_id = ?", itemId);
+        jdbcTemplate.update("delete from member where member_id = ?", memberId);
+    }
+}
@@ -0,0 +1,136 @@
+package jpabook.jpashop.service;
+
+import jpabook.jpashop.domain.Address;
+import jpabook.jpashop.domain.Member;
+import jpabook.jpashop.domain.Order;
+import jpabook.jpashop.domain.item.Book;
+import jpabook.jpashop.repository.MemberNameIndex;
+import jpabook.jpashop.repository.NameMatch;
+import jpabook.jpashop.repository.OrderRepository;
+import jpabook.jpashop.repository.OrderSearch;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.test.context.junit.jupiter.SpringExtension;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import javax.persistence.EntityManager;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Set;
+import java.util.stream.Collectors;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+//다른 서버에서 가입한 회원은 이름 인덱스에 없으므로 주문 검색이 DB 로 조회해야 함
+// - 버전이 커밋되어야 하므로 @Transactional 을 사용하지 않고 테스트 후 직접 삭제
+@ExtendWith(SpringExtension.class)
+@SpringBootTest
+class OrderSearchNameIndexTest {
+
+    private static final long OTHER_NODE_MEMBER_ID = 900_000_101L; //PooledIdGenerator 가 발급하는 id 와 겹치지 않도록
+
+    @Autowired
+    EntityManager em;
+
+    @Autowired
+    MemberService memberService;
+
+    @Autowired
+    OrderService orderService;
+
+    @Autowired
+    OrderRepository orderRepository;
+
+    @Autowired
+    MemberNameIndex memberNameIndex;
+
+    @Autowired
+    JdbcTemplate jdbcTemplate;
+
+    @Autowired
+    PlatformTransactionManager transactionManager;
+
+    private final List<Long> memberIds = new ArrayList<>();
+    private Long itemId;
+
+    @Test
+    public void 이름인덱스에없는회원_주문검색() throws Exception {
+        //given
+        TransactionTemplate tx = new TransactionTemplate(transactionManager);
+        itemId = tx.execute(status -> {
+            Book book = new Book();
+            book.setName("시골 JPA");
+            book.setPrice(10000);
+            book.setStockQuantity(10);
+            em.persist(book);
+            return book.getId();
+        });
+        memberNameIndex.rebuild();
+
+        Member local = new Member();
+        local.setName("색인회원A");
+        local.setAddress(new Address("서울", "강가", "123-123"));
+        memberIds.add(memberService.join(local));
+        assertTrue(memberNameIndex.isComplete(), "이 서버에서 가입한 회원은 인덱스에 반영된다.");
+
+        //다른 서버에서 가입 (이 서버의 인덱스에는 반영되지 않고 회원 테이블 버전만 증가)
+        tx.executeWithoutResult(status -> {
+            jdbcTemplate.update("insert into member (member_id, name, city) values (?, ?, ?)", OTHER_NODE_MEMBER_ID, "색인회원B", "부산");
+            jdbcTemplate.update("update member_version set version = version + 1");
+        });
+        memberIds.add(OTHER_NODE_MEMBER_ID);
+
+        Long orderA = orderService.order(memberIds.get(0), itemId, 1);
+        Long orderB = orderService.order(OTHER_NODE_MEMBER_ID, itemId, 1);
+
+        OrderSearch orderSearch = new OrderSearch();
+        orderSearch.setMemberName("색인회원");
+        orderSearch.setNameMatch(NameMatch.PREFIX);
+
+        //when, then
+        assertEquals(Set.of(memberIds.get(0)), memberNameIndex.find("색인회원", NameMatch.PREFIX), "인덱스에는 일부 회원만 있다.");
+        assertFalse(memberNameIndex.isComplete(), "다른 서버에서 변경된 회원이 있으면 완전하지 않다.");
+        assertEquals(Set.of(orderA, orderB), search(tx, orderSearch), "인덱스에 없는 회원의 주문도 찾아야 한다.");
+
+        memberNameIndex.rebuild();
+        assertTrue(memberNameIndex.isComplete(), "재구성하면 다시 인덱스를 사용한다.");
+        assertEquals(Set.of(orderA, orderB), search(tx, orderSearch));
+    }
+
+    //미리 만들어 둔 쿼리와 QueryDSL 검색 결과가 같아야 함
+    private Set<Long> search(TransactionTemplate tx, OrderSearch orderSearch) {
+        Set<Long> compiled = ids(orderService.findOrder(orderSearch));
+        Set<Long> queryDsl = tx.execute(status -> ids(orderRepository.findAll(orderSearch)));
+        assertEquals(compiled, queryDsl);
+        return compiled;
+    }
+
+    private static Set<Long> ids(List<Order> orders) {
+        return orders.stream().map(Order::getId).collect(Collectors.toSet());
+    }
+
+    @AfterEach
+    public void cleanUp() {
+        if (itemId == null) {
+            return;
+        }
+        for (Long memberId : memberIds) {
+            List<Long> deliveryIds = jdbcTemplate.queryForList("select delivery_id from orders where member_id = ?", Long.class, memberId);
+            jdbcTemplate.update("delete from order_item where order_id in (select order_id from orders where member_id = ?)", memberId);
+            jdbcTemplate.update("delete from orders where member_id = ?", memberId);
+            deliveryIds.forEach(id -> jdbcTemplate.update("delete from delivery where delivery_id = ?", id));
+            jdbcTemplate.update("delete from member where member_id = ?", memberId);
+        }
+        jdbcTemplate.update("delete from sales_outbox where item_id = ?", itemId);
+        jdbcTemplate.update("delete from sales_daily where item_id = ?", itemId);
+        jdbcTemplate.update("delete from item where item_id = ?", itemId);
+        memberNameIndex.rebuild();
+    }
+}
@@ -1,13 +1,18 @@
 package jpabook.jpashop.service;
 
 import jpabook.jpashop.domain.Address;
+import jpabook.jpashop.domain.DeliveryStatus;
 import jpabook.jpashop.domain.Member;
 import jpabook.jpashop.domain.Order;
 import jpabook.jpashop.domain.OrderStatus;
 import jpabook.jpashop.domain.item.Book;
 import jpabook.jpashop.domain.item.Item;
 import jpabook.jpashop.exception.NotEnoughStockException;
+import jpabook.jpashop.repository.NameMatch;
+import jpabook.jpashop.repository.OrderListDto;
 import jpabook.jpashop.repository.OrderRepository;
+import jpabook.jpashop.repository.OrderSearch;
+import jpabook.jpashop.repository.SearchPage;
 import org.junit.jupiter.api.Test;
 import org.junit.jupiter.api.extension.ExtendWith;
 import org.springframework.beans.factory.annotation.Autowired;
@@ -16,9 +21,15 @@ import org.springframework.test.context.junit.jupiter.SpringExtension;
 import org.springframework.transaction.annotation.Transactional;
 
 import javax.persistence.EntityManager;
+import java.time.LocalDateTime;
+import java.util.Arrays;
+import java.util.List;
+import java.util.stream.Collectors;
 
 import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
 import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
 
 @ExtendWith(SpringExtension.class)
 @SpringBootTest
@@ -92,6 +103,197 @@ class OrderServiceTest {
 
 
 
+    @Test
+    public void 일괄주문() throws Exception {
+        //given
+        Member member = createMember();
+        Book book1 = createBook("시골 JPA", 10000, 10);
+        Book book2 = createBook("시골 스프링", 20000, 1);
+
+        List<OrderLine> lines = Arrays.asList(
+                new OrderLine(member.getId(), book1.getId(), 2),
+                new OrderLine(member.getId(), book2.getId(), 2),
+                new OrderLine(member.getId(), -1L, 1));
+
+        //when
+        List<OrderLineResult> results = orderService.orderBatch(lines);
+
+        //then
+        assertEquals(3, results.size(), "라인 수만큼 결과가 있어야 한다.");
+        assertEquals(OrderStatus.ORDER, orderRepository.findOne(results.get(0).getOrderId()).getStatus(), "성공한 라인은 주문이 생성된다.");
+        assertEquals("need more stock", results.get(1).getError(), "재고가 부족한 라인은 실패한다.");
+        assertEquals("존재하지 않는 상품입니다.", results.get(2).getError(), "없는 상품은 실패한다.");
+        assertEquals(8, book1.getStockQuantity(), "성공한 라인만 재고가 줄어야 한다.");
+        assertEquals(1, book2.getStockQuantity(), "실패한 라인은 재고가 그대로여야 한다.");
+    }
+
+    @Test
+    public void 일괄주문_잘못된라인() throws Exception {
+        //given
+        Member member = createMember();
+        Book book = createBook("시골 JPA", 10000, 10);
+
+        List<OrderLine> lines = Arrays.asList(
+                new OrderLine(member.getId(), book.getId(), 0),
+                new OrderLine(member.getId(), book.getId(), -3),
+                null,
+                new OrderLine(null, book.getId(), 1));
+
+        //when
+        List<OrderLineResult> results = orderService.orderBatch(lines);
+
+        //then
+        assertEquals("주문 수량은 1개 이상이어야 합니다.", results.get(0).getError());
+        assertEquals("주문 수량은 1개 이상이어야 합니다.", results.get(1).getError(), "음수 수량은 재고를 늘리지 않고 실패한다.");
+        assertEquals("주문 수량은 1개 이상이어야 합니다.", results.get(2).getError());
+        assertEquals("존재하지 않는 회원입니다.", results.get(3).getError());
+        assertEquals(10, book.getStockQuantity(), "재고가 변경되지 않아야 한다.");
+    }
+
+    @Test
+    public void 일괄취소() throws Exception {
+        //given
+        Member member = createMember();
+        Book book1 = createBook("시골 JPA", 10000, 10);
+        Book book2 = createBook("시골 스프링", 20000, 10);
+        Long orderId1 = orderService.order(member.getId(), book1.getId(), 2);
+        Long orderId2 = orderService.order(member.getId(), book1.getId(), 3);
+        Long orderId3 = orderService.order(member.getId(), book2.getId(), 1);
+        orderService.cancelOrder(orderId3);
+
+        //when
+        int canceled = orderService.cancelOrders(Arrays.asList(orderId1, orderId2, orderId3));
+
+        //then
+        assertEquals(2, canceled, "이미 취소된 주문은 다시 취소하지 않는다.");
+        assertEquals(OrderStatus.CANCEL, orderRepository.findOne(orderId1).getStatus());
+        assertEquals(OrderStatus.CANCEL, orderRepository.findOne(orderId2).getStatus());
+        assertEquals(10, em.find(Book.class, book1.getId()).getStockQuantity(), "취소된 수량만큼 재고가 증가해야 한다.");
+        assertEquals(10, em.find(Book.class, book2.getId()).getStockQuantity(), "재고가 두번 복구되지 않아야 한다.");
+    }
+
+    @Test
+    public void 일괄취소_배송완료() throws Exception {
+        //given
+        Member member = createMember();
+        Book book = createBook("시골 JPA", 10000, 10);
+        Long orderId1 = orderService.order(member.getId(), book.getId(), 2);
+        Long orderId2 = orderService.order(member.getId(), book.getId(), 3);
+        orderRepository.findOne(orderId2).getDelivery().setStatus(DeliveryStatus.COMP);
+
+        //when
+        assertThrows(IllegalStateException.class, () -> orderService.cancelOrders(Arrays.asList(orderId1, orderId2)));
+
+        //then
+        assertEquals(OrderStatus.ORDER, orderRepository.findOne(orderId1).getStatus(), "배송완료된 주문이 있으면 모두 취소하지 않는다.");
+        assertEquals(5, book.getStockQuantity());
+    }
+
+    @Test
+    public void 일괄취소_검색조건() throws Exception {
+        //given
+        Member member = createMember();
+        Book book = createBook("시골 JPA", 10000, 10);
+        Long delivered = orderService.order(member.getId(), book.getId(), 1);
+        Long orderId1 = orderService.order(member.getId(), book.getId(), 2);
+        Long orderId2 = orderService.order(member.getId(), book.getId(), 3);
+        orderRepository.findOne(delivered).getDelivery().setStatus(DeliveryStatus.COMP);
+
+        OrderSearch byName = new OrderSearch();
+        byName.setMemberName("회원1");
+
+        //when
+        int canceled = orderService.cancelOrders(byName, null, null);
+
+        //then
+        assertEquals(2, canceled, "배송완료된 주문은 대상에서 제외하고 나머지를 취소한다.");
+        assertEquals(OrderStatus.CANCEL, orderRepository.findOne(orderId1).getStatus());
+        assertEquals(OrderStatus.CANCEL, orderRepository.findOne(orderId2).getStatus());
+        assertEquals(OrderStatus.ORDER, orderRepository.findOne(delivered).getStatus());
+        assertEquals(9, em.find(Book.class, book.getId()).getStockQuantity());
+        assertEquals(0, orderService.cancelOrders(byName, null, null), "더 취소할 주문이 없으면 0 이다.");
+
+        LocalDateTime now = LocalDateTime.now();
+        assertThrows(IllegalArgumentException.class, () -> orderService.cancelOrders(new OrderSearch(), null, null), "조건 없이 전체 주문을 취소할 수 없다.");
+        assertThrows(IllegalArgumentException.class, () -> orderService.cancelOrders(new OrderSearch(), now.minusDays(1), null));
+        assertThrows(IllegalArgumentException.class, () -> orderService.cancelOrders(new OrderSearch(), now.minusYears(1), now));
+        assertThrows(IllegalArgumentException.class, () -> orderService.cancelOrders(byName, now, now.minusDays(1)));
+    }
+
+    @Test
+    public void 주문검색() throws Exception {
+        //given
+        Member member = createMember();
+        Book book = createBook("시골 JPA", 10000, 10);
+        Long orderId1 = orderService.order(member.getId(), book.getId(), 1);
+        Long orderId2 = orderService.order(member.getId(), book.getId(), 1);
+        orderService.cancelOrder(orderId2);
+
+        OrderSearch byStatus = new OrderSearch();
+        byStatus.setOrderStatus(OrderStatus.CANCEL);
+        OrderSearch byStatusAndName = new OrderSearch();
+        byStatusAndName.setOrderStatus(OrderStatus.ORDER);
+        byStatusAndName.setMemberName("회원1");
+
+        //when
+        List<Order> canceled = orderService.findOrder(byStatus);
+        List<Order> ordered = orderService.findOrder(byStatusAndName);
+
+        //then
+        assertEquals(orderRepository.findAll(byStatus), canceled, "미리 만들어 둔 쿼리도 QueryDSL 검색과 결과가 같아야 한다.");
+        assertEquals(orderRepository.findAll(byStatusAndName), ordered);
+        assertTrue(canceled.stream().anyMatch(o -> o.getId().equals(orderId2)));
+        assertEquals(Arrays.asList(orderId1), ordered.stream().map(Order::getId).collect(Collectors.toList()));
+    }
+
+    @Test
+    public void 주문검색_이름인덱스에없는회원() throws Exception {
+        //given (트랜젝션이 커밋되지 않았으므로 회원 이름 인덱스에는 없음)
+        Member member = createMember();
+        Book book = createBook("시골 JPA", 10000, 10);
+        Long orderId = orderService.order(member.getId(), book.getId(), 1);
+
+        OrderSearch orderSearch = new OrderSearch();
+        orderSearch.setMemberName("회원1");
+        orderSearch.setNameMatch(NameMatch.EXACT);
+
+        //when
+        List<Order> compiled = orderService.findOrder(orderSearch);
+        List<Order> queryDsl = orderRepository.findAll(orderSearch);
+
+        //then
+        assertEquals(Arrays.asList(orderId), compiled.stream().map(Order::getId).collect(Collectors.toList()), "인덱스에 없으면 DB 에서 검색해야 한다.");
+        assertEquals(compiled, queryDsl);
+    }
+
+    @Test
+    public void 주문목록_페이징() throws Exception {
+        //given
+        Member member = createMember();
+        Book book = createBook("시골 JPA", 10000, 10);
+        for (int i = 0; i < 3; i++) {
+            orderService.order(member.getId(), book.getId(), 1);
+        }
+        OrderSearch orderSearch = new OrderSearch();
+        orderSearch.setMemberName("회원1");
+
+        //when
+        SearchPage<OrderListDto> first = orderService.findOrderList(orderSearch, 0, 2);
+        SearchPage<OrderListDto> last = orderService.findOrderList(orderSearch, 1, 2);
+
+        //then
+        assertEquals(2, first.getContent().size());
+        assertTrue(first.isHasNext(), "다음 페이지가 있어야 한다.");
+        assertEquals(3, first.getTotal(), "처음 조회한 건수는 count 쿼리로 조회한 정확한 값이다.");
+        assertTrue(first.isTotalExact());
+        assertEquals(2, first.getTotalPages());
+
+        assertEquals(1, last.getContent().size());
+        assertFalse(last.isHasNext());
+        assertEquals(3, last.getTotal(), "마지막 페이지는 조회된 건수로 전체 건수를 알 수 있다.");
+        assertTrue(last.isTotalExact());
+    }
+
     private Book createBook(String name, int price, int stockQuantity) {
         Book book = new Book();
         book.setName(name);
@@ -0,0 +1,100 @@
+package jpabook.jpashop.service;
+
+import jpabook.jpashop.domain.Address;
+import jpabook.jpashop.domain.Member;
+import jpabook.jpashop.domain.OrderStatus;
+import jpabook.jpashop.domain.item.Book;
+import jpabook.jpashop.repository.query.MemberOrderTotalDto;
+import jpabook.jpashop.repository.query.OrderStatsQueryRepository;
+import jpabook.jpashop.repository.query.OrderStatusRevenueDto;
+import jpabook.jpashop.service.query.OrderStatsService;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.test.context.junit.jupiter.SpringExtension;
+import org.springframework.transaction.annotation.Transactional;
+
+import javax.persistence.EntityManager;
+import java.util.List;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+@ExtendWith(SpringExtension.class)
+@SpringBootTest
+@Transactional
+class OrderStatsServiceTest {
+
+    @Autowired
+    EntityManager em;
+
+    @Autowired
+    OrderService orderService;
+
+    @Autowired
+    OrderStatsQueryRepository orderStatsQueryRepository;
+
+    @Test
+    public void 주문금액집계() throws Exception {
+        //given
+        OrderStatsService orderStatsService = new OrderStatsService(orderStatsQueryRepository, 60000);
+        Member member = createMember("회원1");
+        Book book = createBook("시골 JPA", 10000, 10);
+
+        Long orderId1 = orderService.order(member.getId(), book.getId(), 2);
+        Long orderId2 = orderService.order(member.getId(), book.getId(), 1);
+        orderService.cancelOrder(orderId2);
+        em.flush();
+        em.clear();
+
+        //when
+        Map<Long, Long> totals = orderStatsService.findOrderTotals(List.of(orderId1, orderId2));
+        List<MemberOrderTotalDto> memberTotals = orderStatsService.findMemberTotals(OrderStatus.ORDER, 10);
+        List<OrderStatusRevenueDto> revenue = orderStatsService.findStatusRevenue();
+
+        //then
+        assertEquals(Map.of(orderId1, 20000L, orderId2, 10000L), totals, "주문 금액은 가격 * 수량의 합이다.");
+        assertEquals(1, memberTotals.size());
+        assertEquals(20000L, memberTotals.get(0).getTotalPrice(), "취소된 주문은 회원 합계에서 빠져야 한다.");
+        assertEquals(20000L, revenueOf(revenue, OrderStatus.ORDER), "주문상태별 매출");
+        assertEquals(10000L, revenueOf(revenue, OrderStatus.CANCEL), "주문상태별 매출");
+    }
+
+    @Test
+    public void 집계캐시() throws Exception {
+        //given
+        OrderStatsService orderStatsService = new OrderStatsService(orderStatsQueryRepository, 60000);
+        Member member = createMember("회원1");
+        Book book = createBook("시골 JPA", 10000, 10);
+        orderService.order(member.getId(), book.getId(), 1);
+        List<OrderStatusRevenueDto> before = orderStatsService.findStatusRevenue();
+
+        //when
+        orderService.order(member.getId(), book.getId(), 1);
+
+        //then
+        assertEquals(before, orderStatsService.findStatusRevenue(), "같은 구간 안에서는 캐시된 집계를 사용해야 한다.");
+    }
+
+    private long revenueOf(List<OrderStatusRevenueDto> revenue, OrderStatus status) {
+        return revenue.stream().filter(r -> r.getStatus() == status).mapToLong(OrderStatusRevenueDto::getRevenue).sum();
+    }
+
+    private Member createMember(String name) {
+        Member member = new Member();
+        member.setName(name);
+        member.setAddress(new Address("서울", "강가", "123-123"));
+        em.persist(member);
+        return member;
+    }
+
+    private Book createBook(String name, int price, int stockQuantity) {
+        Book book = new Book();
+        book.setName(name);
+        book.setPrice(price);
+        book.setStockQuantity(stockQuantity);
+        em.persist(book);
+        return book;
+    }
+}
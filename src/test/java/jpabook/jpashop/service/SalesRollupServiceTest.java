@@ -0,0 +1,82 @@
+package jpabook.jpashop.service;
+
+import jpabook.jpashop.domain.Address;
+import jpabook.jpashop.domain.Member;
+import jpabook.jpashop.domain.SalesDaily;
+import jpabook.jpashop.domain.item.Book;
+import jpabook.jpashop.repository.SalesDayTotalDto;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.test.context.junit.jupiter.SpringExtension;
+import org.springframework.transaction.annotation.Transactional;
+
+import javax.persistence.EntityManager;
+import java.time.LocalDate;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+@ExtendWith(SpringExtension.class)
+@SpringBootTest
+@Transactional
+class SalesRollupServiceTest {
+
+    @Autowired
+    EntityManager em;
+
+    @Autowired
+    OrderService orderService;
+
+    @Autowired
+    SalesRollupService salesRollupService;
+
+    @Test
+    public void 일매출집계() throws Exception {
+        //given
+        Member member = createMember("회원1");
+        Book book1 = createBook("시골 JPA", 10000, 10);
+        Book book2 = createBook("스프링 JPA", 20000, 10);
+
+        orderService.order(member.getId(), book1.getId(), 2);
+        orderService.order(member.getId(), book2.getId(), 1);
+        Long canceled = orderService.order(member.getId(), book1.getId(), 3);
+        orderService.cancelOrder(canceled);
+        em.flush();
+
+        //when
+        int applied = salesRollupService.apply();
+        em.clear();
+
+        //then
+        LocalDate today = LocalDate.now();
+        List<SalesDaily> book1Sales = salesRollupService.findDaily(today, today, book1.getId());
+        assertEquals(4, applied, "주문 3건 + 취소 1건의 변경분이 반영되어야 한다.");
+        assertEquals(1, book1Sales.size());
+        assertEquals(2, book1Sales.get(0).getQty(), "취소된 수량은 빠져야 한다.");
+        assertEquals(20000L, book1Sales.get(0).getRevenue());
+
+        List<SalesDayTotalDto> totals = salesRollupService.findDayTotals(today.minusDays(1), today);
+        assertEquals(1, totals.size());
+        assertEquals(40000L, totals.get(0).getRevenue(), "일별 합계");
+        assertEquals(0, salesRollupService.apply(), "반영된 outbox 는 삭제되어야 한다.");
+    }
+
+    private Member createMember(String name) {
+        Member member = new Member();
+        member.setName(name);
+        member.setAddress(new Address("서울", "강가", "123-123"));
+        em.persist(member);
+        return member;
+    }
+
+    private Book createBook(String name, int price, int stockQuantity) {
+        Book book = new Book();
+        book.setName(name);
+        book.setPrice(price);
+        book.setStockQuantity(stockQuantity);
+        em.persist(book);
+        return book;
+    }
+}
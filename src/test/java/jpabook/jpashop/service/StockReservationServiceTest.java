@@ -0,0 +1,167 @@
+package jpabook.jpashop.service;
+
+import jpabook.jpashop.domain.Address;
+import jpabook.jpashop.domain.Member;
+import jpabook.jpashop.domain.Order;
+import jpabook.jpashop.domain.OrderStatus;
+import jpabook.jpashop.domain.item.Book;
+import jpabook.jpashop.exception.NotEnoughStockException;
+import jpabook.jpashop.repository.OrderRepository;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.test.context.junit.jupiter.SpringExtension;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.annotation.Propagation;
+import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import javax.persistence.EntityManager;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+@ExtendWith(SpringExtension.class)
+@SpringBootTest(properties = "jpashop.stock.reservation.enabled=true")
+@Transactional
+class StockReservationServiceTest {
+
+    @Autowired
+    EntityManager em;
+
+    @Autowired
+    OrderService orderService;
+
+    @Autowired
+    OrderRepository orderRepository;
+
+    @Autowired
+    StockReservationService stockReservationService;
+
+    @Autowired
+    PlatformTransactionManager transactionManager;
+
+    @Autowired
+    JdbcTemplate jdbcTemplate;
+
+    @Test
+    public void 재고예약_주문() throws Exception {
+        //given
+        Member member = createMember();
+        Book book = createBook("시골 JPA", 10000, 10);
+
+        //when
+        Long orderId = orderService.order(member.getId(), book.getId(), 2);
+
+        //then
+        Order getOrder = orderRepository.findOne(orderId);
+        assertEquals(OrderStatus.ORDER, getOrder.getStatus(), "상품 주문시 상태는 ORDER");
+        assertEquals(10, book.getStockQuantity(), "재고 예약시 Item 엔티티는 변경되지 않는다.");
+        assertThrows(NotEnoughStockException.class, () -> orderService.order(member.getId(), book.getId(), 9),
+                "메모리 재고(8) 보다 많이 주문하면 예외가 발생해야 한다.");
+    }
+
+    @Test
+    public void 재고예약_재고수량초과() throws Exception {
+        //given
+        Member member = createMember();
+        Book book = createBook("시골 JPA", 10000, 10);
+
+        //when
+        String message = assertThrows(NotEnoughStockException.class, () -> orderService.order(member.getId(), book.getId(), 11)).getMessage();
+
+        //then
+        assertEquals("need more stock", message, "재고 수량 부족 예외가 발생해야 한다.");
+    }
+
+    //flush 가 변경량을 꺼낸 후 커밋하기 전에 reset 이 카운터를 버리면 다음 차감이 반영 전 재고를 다시 읽어 초과 판매됨
+    // - 다른 트랜젝션이 item row 를 잠궈서 flush 의 update 가 커밋되지 않은 상태에서 reset 과 차감을 실행
+    @Test
+    @Transactional(propagation = Propagation.NOT_SUPPORTED)
+    public void 재고예약_flush중reset() throws Exception {
+        //given
+        TransactionTemplate tx = new TransactionTemplate(transactionManager);
+        Long itemId = tx.execute(status -> {
+            Book book = new Book();
+            book.setName("재고예약");
+            book.setPrice(10000);
+            book.setStockQuantity(10);
+            em.persist(book);
+            return book.getId();
+        });
+        stockReservationService.reserve(itemId, 10); //DB 에 반영되지 않은 변경량 -10
+
+        ExecutorService executor = Executors.newFixedThreadPool(4);
+        CountDownLatch locked = new CountDownLatch(1);
+        CountDownLatch unlock = new CountDownLatch(1);
+        try {
+            Future<?> locker = executor.submit(() -> tx.executeWithoutResult(status -> {
+                jdbcTemplate.queryForObject("select stock_quantity from item where item_id = ? for update", Integer.class, itemId);
+                locked.countDown();
+                await(unlock);
+            }));
+            locked.await();
+
+            //when
+            Future<?> flush = executor.submit(() -> stockReservationService.flush());
+            Thread.sleep(200); //flush 가 update 에서 대기
+            Future<?> reset = executor.submit(() -> stockReservationService.reset(itemId));
+            Thread.sleep(100);
+            Future<?> reserve = executor.submit(() -> {
+                stockReservationService.reserve(itemId, 1);
+                return null;
+            });
+            Thread.sleep(100);
+            unlock.countDown();
+            locker.get(10, TimeUnit.SECONDS);
+            flush.get(10, TimeUnit.SECONDS);
+            reset.get(10, TimeUnit.SECONDS);
+
+            //then
+            ExecutionException e = assertThrows(ExecutionException.class, () -> reserve.get(10, TimeUnit.SECONDS),
+                    "reset 후에는 변경량이 반영된 재고(0) 를 읽어야 한다.");
+            assertTrue(e.getCause() instanceof NotEnoughStockException);
+            assertEquals(0, jdbcTemplate.queryForObject("select stock_quantity from item where item_id = ?", Integer.class, itemId));
+        } finally {
+            unlock.countDown();
+            executor.shutdownNow();
+            stockReservationService.flush();
+            jdbcTemplate.update("delete from item where item_id = ?", itemId);
+        }
+    }
+
+    private static void await(CountDownLatch latch) {
+        try {
+            latch.await();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    private Book createBook(String name, int price, int stockQuantity) {
+        Book book = new Book();
+        book.setName(name);
+        book.setPrice(price);
+        book.setStockQuantity(stockQuantity);
+        em.persist(book);
+        em.flush(); //재고 예약은 JDBC 로 현재 재고를 읽음
+        return book;
+    }
+
+    private Member createMember() {
+        Member member = new Member();
+        member.setName("회원1");
+        member.setAddress(new Address("서울", "강가", "123-123"));
+        em.persist(member);
+        return member;
+    }
+}
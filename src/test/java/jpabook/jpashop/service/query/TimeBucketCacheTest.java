@@ -0,0 +1,75 @@
+package jpabook.jpashop.service.query;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+class TimeBucketCacheTest {
+
+    @Test
+    public void 구간변경_동시요청() throws Exception {
+        //given
+        AtomicLong now = new AtomicLong(0);
+        TimeBucketCache cache = new TimeBucketCache(1000, now::get);
+        AtomicInteger loads = new AtomicInteger();
+        cache.get("stats", loads::incrementAndGet);
+        now.set(1000); //다음 구간
+
+        //when
+        ExecutorService executor = Executors.newFixedThreadPool(16);
+        CountDownLatch start = new CountDownLatch(1);
+        List<Future<Integer>> futures = new ArrayList<>();
+        for (int i = 0; i < 16; i++) {
+            futures.add(executor.submit(() -> {
+                start.await();
+                return cache.get("stats", () -> {
+                    sleep();
+                    return loads.incrementAndGet();
+                });
+            }));
+        }
+        start.countDown();
+        for (Future<Integer> future : futures) {
+            assertEquals(2, future.get(10, TimeUnit.SECONDS), "모든 요청이 같은 결과를 받아야 한다.");
+        }
+        executor.shutdown();
+
+        //then
+        assertEquals(2, loads.get(), "구간마다 한번만 조회해야 한다.");
+    }
+
+    @Test
+    public void 조회실패_다음요청에서_다시조회() throws Exception {
+        //given
+        TimeBucketCache cache = new TimeBucketCache(1000, () -> 0);
+        AtomicInteger loads = new AtomicInteger();
+
+        //when
+        assertThrows(IllegalStateException.class, () -> cache.get("stats", () -> {
+            loads.incrementAndGet();
+            throw new IllegalStateException("조회 실패");
+        }));
+
+        //then
+        assertEquals(2, (int) cache.get("stats", loads::incrementAndGet), "실패한 결과는 캐시하지 않아야 한다.");
+    }
+
+    private static void sleep() {
+        try {
+            Thread.sleep(50);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+}